@@ -1,41 +1,145 @@
 package edu.brown.cs.student.main.broadband;
 
 import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.broadband.exceptions.DataNotFoundException;
 import edu.brown.cs.student.main.broadband.exceptions.DataSourceException;
 import edu.brown.cs.student.main.broadband.exceptions.InputNotFoundException;
+import edu.brown.cs.student.main.metrics.CallTimer;
 import java.io.IOException;
-import java.lang.reflect.Type;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import okio.Buffer;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import okio.BufferedSource;
+import okio.Okio;
 
 /**
  * This class implements the CensusDataSource interface to retrieve data from the American Community
  * Survey (ACS).
+ *
+ * <p>Requests go through one {@link HttpClient}, which keeps connections to the census API alive
+ * across requests and uses HTTP/2 where the server offers it, with a connect and a request timeout.
+ * Lookups are also available asynchronously, through {@link AsyncCensusDataSource}; the synchronous
+ * lookups wait for them.
  */
-public class ACSCensusDataSource implements CensusDataSource {
+public class ACSCensusDataSource implements CensusDataSource, AsyncCensusDataSource {
 
-  private Map<String, String> statecode_map;
-  private Map<String, String> countycode_map;
+  /** The ACS variable of the percentage of households with broadband, looked up by default. */
+  public static final String BROADBAND_VARIABLE = "S2802_C03_022E";
 
-  private Set<String> acsVariables;
+  /* The census API answers at most 50 variables per request, NAME included */
+  private static final int MAX_VARIABLES_PER_REQUEST = 49;
+  private static final JsonAdapter<List<List<String>>> ROWS_ADAPTER =
+      new Moshi.Builder()
+          .build()
+          .adapter(Types.newParameterizedType(List.class, List.class, String.class));
+
+  private static final URI CENSUS_API = URI.create("https://api.census.gov");
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+  private volatile Map<String, String> statecode_map;
+  /* County name to county code, per state code; each state's map is immutable once loaded, and
+   * concurrent first lookups of a state share its pending fetch */
+  private final Map<String, CompletableFuture<Map<String, String>>> countycodes;
+  private volatile Map<String, String> countycode_map;
+
+  /* The datasets variables are looked up in, in the order they are tried */
+  private static final List<String> DATASETS = List.of("subject", "profile");
+
+  /* The variables of each dataset; empty until they are retrieved */
+  private volatile Map<String, VariableCatalog> variableCatalogs;
+
+  private final CallTimer upstreamTimer;
+  private final CensusUpstream upstream;
+  private final HttpClient client;
+  private final URI baseUri;
+  private final Duration requestTimeout;
+
+  /* Created on first use, and shared by every data source made without a client of its own */
+  private static class DefaultClient {
+    static final HttpClient INSTANCE =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+  }
 
   /**
    * Constructs a new ACSCensusDataSource with empty state and county code maps, and an ACS
-   * variables set.
+   * variables set, using a shared HTTP client with a 5 second connect timeout and a 10 second
+   * request timeout.
    */
   public ACSCensusDataSource() {
-    statecode_map = new HashMap<>();
-    countycode_map = new HashMap<>();
-    acsVariables = new HashSet<>();
+    this(CensusUpstreamConfig.DEFAULT);
+  }
+
+  /**
+   * Constructs a new ACSCensusDataSource as {@link #ACSCensusDataSource()} does, coping with a slow
+   * or failing census API as configured.
+   *
+   * @param upstreamConfig The retries, hedging, deadline and circuit breaker of census requests.
+   */
+  public ACSCensusDataSource(CensusUpstreamConfig upstreamConfig) {
+    this(null, CENSUS_API, REQUEST_TIMEOUT, upstreamConfig);
+  }
+
+  /**
+   * Constructs a new ACSCensusDataSource with empty state and county code maps, and an ACS
+   * variables set, sending its requests through the given client to the given server.
+   *
+   * @param client The HTTP client to send requests with, or null for the shared default client.
+   * @param baseUri The scheme and authority of the census API, such as https://api.census.gov.
+   * @param requestTimeout How long to wait for the response to a request.
+   */
+  public ACSCensusDataSource(HttpClient client, URI baseUri, Duration requestTimeout) {
+    this(client, baseUri, requestTimeout, CensusUpstreamConfig.DEFAULT);
+  }
+
+  /**
+   * Constructs a new ACSCensusDataSource with empty state and county code maps, and an ACS
+   * variables set, sending its requests through the given client to the given server and coping
+   * with a slow or failing server as configured.
+   *
+   * @param client The HTTP client to send requests with, or null for the shared default client.
+   * @param baseUri The scheme and authority of the census API, such as https://api.census.gov.
+   * @param requestTimeout How long to wait for the response to a request.
+   * @param upstreamConfig The retries, hedging, deadline and circuit breaker of census requests.
+   */
+  public ACSCensusDataSource(
+      HttpClient client,
+      URI baseUri,
+      Duration requestTimeout,
+      CensusUpstreamConfig upstreamConfig) {
+    statecode_map = Map.of();
+    countycodes = new ConcurrentHashMap<>();
+    countycode_map = Map.of();
+    variableCatalogs = Map.of();
+    upstreamTimer = new CallTimer();
+    upstream = new CensusUpstream(upstreamConfig, upstreamTimer);
+    this.client = client;
+    this.baseUri = baseUri;
+    this.requestTimeout = requestTimeout;
   }
 
   /**
@@ -45,22 +149,13 @@ public class ACSCensusDataSource implements CensusDataSource {
    */
   public void getStateCode() throws DataSourceException {
     try {
-      URL requestURL =
-          new URL("https", "api.census.gov", "/data/2010/dec/sf1?get=NAME&for=state:*");
-      HttpURLConnection clientConnection = connect(requestURL);
-      Moshi moshi = new Moshi.Builder().build();
-      Type listStringObject = Types.newParameterizedType(List.class, List.class, String.class);
-      JsonAdapter<List<List<String>>> adapter = moshi.adapter(listStringObject);
       /* Store Statename, Statecode as a list of list of strings (how it is represented in the API) */
-      List<List<String>> body =
-          adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
-      clientConnection.disconnect();
-      if (body == null) {
-        throw new DataSourceException("malformed response from ACS");
-      }
+      List<List<String>> body = fetchRows("/data/2010/dec/sf1?get=NAME&for=state:*");
+      Map<String, String> statecodes = new HashMap<>();
       for (List<String> i : body) {
-        statecode_map.put(i.get(0), i.get(1));
+        statecodes.put(i.get(0), i.get(1));
       }
+      statecode_map = Map.copyOf(statecodes);
     } catch (IOException e) {
       throw new DataSourceException(e.getMessage());
     }
@@ -72,91 +167,357 @@ public class ACSCensusDataSource implements CensusDataSource {
    * @return The unmodifiable state code map.
    */
   public Map<String, String> getStatecode_map() {
-    return Collections.unmodifiableMap(statecode_map);
+    return statecode_map;
   }
 
   /**
-   * Returns an unmodifiable view of the county code map.
+   * Returns the county code map of the state whose county codes were last retrieved by {@link
+   * #getCountyCode(String)}.
    *
    * @return The unmodifiable county code map.
    */
   public Map<String, String> getCountycode_map() {
-    return Collections.unmodifiableMap(countycode_map);
+    return countycode_map;
+  }
+
+  /**
+   * Returns the timer of the calls to the Census API, which records how long each call took to
+   * receive its response, and whether it failed.
+   *
+   * @return The timer of the Census API calls.
+   */
+  public CallTimer getUpstreamTimer() {
+    return upstreamTimer;
+  }
+
+  /**
+   * Returns the retries, duplicate requests and circuit breaker of the calls to the Census API.
+   *
+   * @return The census upstream.
+   */
+  public CensusUpstream getUpstream() {
+    return upstream;
+  }
+
+  /**
+   * Requests an endpoint of the Census API and parses its response, a JSON list of rows whose first
+   * row names the columns. Requests that fail with a network error or a 429 or 5xx status are
+   * retried, and slow ones duplicated, as the {@link CensusUpstreamConfig} says. The future fails
+   * with a {@link DataSourceException} if the response is not a success or is malformed, the
+   * deadline passes or the circuit breaker is open, and with an IOException if the request fails or
+   * times out.
+   *
+   * @param endpoint The path and query of the endpoint, such as /data/2010/dec/sf1?get=NAME.
+   * @return A future of the rows of the response.
+   */
+  protected CompletableFuture<List<List<String>>> fetchRowsAsync(String endpoint) {
+    return upstream.call(
+        timeout -> send(endpoint, timeout, ROWS_ADAPTER::fromJson),
+        ACSCensusDataSource::isTransient);
+  }
+
+  /**
+   * Requests a variable list of the Census API, such as /data/2021/acs/acs1/subject/variables, and
+   * reads it into a catalog as it arrives, as {@link #fetchRowsAsync(String)} does for rows.
+   *
+   * @param endpoint The path of the variable list.
+   * @return A future of the catalog of the variables.
+   */
+  protected CompletableFuture<VariableCatalog> fetchCatalogAsync(String endpoint) {
+    return upstream.call(
+        timeout -> send(endpoint, timeout, body -> VariableCatalog.read(JsonReader.of(body))),
+        ACSCensusDataSource::isTransient);
   }
 
-  private static HttpURLConnection connect(URL requestURL) throws DataSourceException, IOException {
-    URLConnection urlConnection = requestURL.openConnection();
-    if (!(urlConnection instanceof HttpURLConnection)) {
-      throw new DataSourceException("unexpected: result of connection wasn't HTTP");
+  /** Reads the body of a response. */
+  private interface BodyReader<T> {
+    T read(BufferedSource body) throws IOException;
+  }
+
+  /** A response status other than 200 from the Census API. */
+  private static class UnexpectedStatusException extends DataSourceException {
+    private final int status;
+
+    UnexpectedStatusException(int status) {
+      super("unexpected: API connection not success status " + status);
+      this.status = status;
+    }
+  }
+
+  /* Whether a request that failed this way might succeed if it is sent again */
+  private static boolean isTransient(Throwable error) {
+    return error instanceof IOException
+        || (error instanceof UnexpectedStatusException unexpected
+            && (unexpected.status == 429 || unexpected.status >= 500));
+  }
+
+  /* Sends one request, which must be answered within the timeout */
+  private <T> CompletableFuture<T> send(String endpoint, Duration timeout, BodyReader<T> reader) {
+    HttpRequest request;
+    try {
+      int query = endpoint.indexOf('?');
+      URI uri =
+          new URI(
+              baseUri.getScheme(),
+              baseUri.getAuthority(),
+              query < 0 ? endpoint : endpoint.substring(0, query),
+              query < 0 ? null : endpoint.substring(query + 1),
+              null);
+      request =
+          HttpRequest.newBuilder(uri)
+              .timeout(timeout.compareTo(requestTimeout) < 0 ? timeout : requestTimeout)
+              .GET()
+              .build();
+    } catch (URISyntaxException e) {
+      return CompletableFuture.failedFuture(new DataSourceException(e.getMessage()));
+    }
+    long start = System.nanoTime();
+    HttpClient httpClient = client == null ? DefaultClient.INSTANCE : client;
+    CompletableFuture<HttpResponse<InputStream>> exchange =
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+    CompletableFuture<T> answer =
+        exchange
+            .thenApply(
+                response -> {
+                  /* The body is read as it arrives, rather than copied whole first */
+                  T body;
+                  try (BufferedSource source = Okio.buffer(Okio.source(response.body()))) {
+                    if (response.statusCode() != 200) {
+                      throw new CompletionException(
+                          new UnexpectedStatusException(response.statusCode()));
+                    }
+                    body = reader.read(source);
+                  } catch (IOException | RuntimeException e) {
+                    if (e instanceof CompletionException) {
+                      throw (CompletionException) e;
+                    }
+                    throw new CompletionException(
+                        new DataSourceException("malformed response from ACS"));
+                  }
+                  if (body == null) {
+                    throw new CompletionException(
+                        new DataSourceException("malformed response from ACS"));
+                  }
+                  return body;
+                })
+            .whenComplete(
+                (body, error) -> {
+                  /* A request given up on was neither answered nor failed, and its cut-short
+                   * latency would skew the p95 that hedging waits for */
+                  if (!isCancellation(error)) {
+                    upstreamTimer.record(System.nanoTime() - start, error != null);
+                  }
+                });
+    /* Giving up on the answer, as on a losing duplicate request, gives up on the request too */
+    answer.whenComplete(
+        (body, error) -> {
+          if (isCancellation(error)) {
+            exchange.cancel(true);
+            exchange.thenAccept(ACSCensusDataSource::discard);
+          }
+        });
+    return answer;
+  }
+
+  private static boolean isCancellation(Throwable error) {
+    return error instanceof CancellationException
+        || (error instanceof CompletionException
+            && error.getCause() instanceof CancellationException);
+  }
+
+  private static void discard(HttpResponse<InputStream> response) {
+    try {
+      response.body().close();
+    } catch (IOException e) {
+      // the connection is being dropped anyway
+    }
+  }
+
+  private List<List<String>> fetchRows(String endpoint) throws DataSourceException, IOException {
+    try {
+      return fetchRowsAsync(endpoint).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof IOException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof DataSourceException cause) {
+        throw cause;
+      }
+      throw new DataSourceException(String.valueOf(e.getCause()));
     }
-    HttpURLConnection clientConnection = (HttpURLConnection) urlConnection;
-    clientConnection.connect(); // GET
-    if (clientConnection.getResponseCode() != 200) {
-      throw new DataSourceException(
-          "unexpected: API connection not success status " + clientConnection.getResponseMessage());
+  }
+
+  /** Waits for a lookup, rethrowing the exception it failed with. */
+  private static <T> T await(CompletableFuture<T> lookup)
+      throws DataSourceException, DataNotFoundException {
+    try {
+      return lookup.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DataNotFoundException notFound) {
+        throw notFound;
+      }
+      if (cause instanceof DataSourceException failed) {
+        throw failed;
+      }
+      if (cause instanceof InputNotFoundException invalid) {
+        throw invalid;
+      }
+      throw new DataSourceException(String.valueOf(cause));
     }
-    return clientConnection;
   }
 
   /**
-   * Retrieve the county codes for a given state from the Census API and stores them in a county
-   * code map.
+   * Retrieve the county codes for a given state from the Census API, unless they were already
+   * retrieved, and stores them in a county code map.
    *
    * @param statecode The state code for which county codes are to be retrieved.
    * @throws DataSourceException if an error occurs during data retrieval.
    */
   public void getCountyCode(String statecode) throws DataSourceException {
-    countycode_map.clear();
+    countycode_map = getCountyCodes(statecode);
+  }
+
+  /**
+   * Returns the county codes of a state, keyed by county name. The codes of every state are fetched
+   * from the Census API the first time they are needed and kept for the life of this data source;
+   * concurrent first requests for a state share a single fetch.
+   *
+   * @param statecode The state code for which county codes are to be retrieved.
+   * @return The unmodifiable county code map of the state.
+   * @throws DataSourceException if an error occurs during data retrieval.
+   */
+  public Map<String, String> getCountyCodes(String statecode) throws DataSourceException {
     try {
-      URL requestURL =
-          new URL(
-              "https",
-              "api.census.gov",
-              "/data/2010/dec/sf1?get=NAME&for=county:*&in=state:" + statecode);
-      HttpURLConnection clientConnection = connect(requestURL);
-      Moshi moshi = new Moshi.Builder().build();
-      Type listStringObject = Types.newParameterizedType(List.class, List.class, String.class);
-      JsonAdapter<List<List<String>>> adapter = moshi.adapter(listStringObject);
-      List<List<String>> body =
-          adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
-      clientConnection.disconnect();
-      if (body == null) {
-        throw new DataSourceException("malformed response from ACS");
+      return await(countyCodesAsync(statecode));
+    } catch (DataNotFoundException e) {
+      throw new DataSourceException(e.getMessage());
+    }
+  }
+
+  private CompletableFuture<Map<String, String>> countyCodesAsync(String statecode) {
+    CompletableFuture<Map<String, String>> codes =
+        countycodes.computeIfAbsent(
+            statecode,
+            code ->
+                fetchRowsAsync("/data/2010/dec/sf1?get=NAME&for=county:*&in=state:" + code)
+                    .thenApply(ACSCensusDataSource::parseCountyCodes));
+    /* A failed fetch is forgotten, so the next lookup retries it */
+    codes.whenComplete(
+        (result, error) -> {
+          if (error != null) {
+            countycodes.remove(statecode, codes);
+          }
+        });
+    return codes;
+  }
+
+  /**
+   * Retrieves the county codes of every state from the Census API in a single request, so that no
+   * later lookup has to fetch a county list.
+   *
+   * @throws DataSourceException if an error occurs during data retrieval.
+   */
+  public void preloadCountyCodes() throws DataSourceException {
+    try {
+      List<List<String>> body = fetchRows("/data/2010/dec/sf1?get=NAME&for=county:*");
+      Map<String, Map<String, String>> byState = new HashMap<>();
+      /* Rows are county name, state code, county code, after a header row */
+      for (List<String> i : body.subList(Math.min(1, body.size()), body.size())) {
+        byState.computeIfAbsent(i.get(1), state -> new HashMap<>()).put(countyName(i), i.get(2));
       }
-      for (List<String> i : body) {
-        countycode_map.put(i.get(0).split(",")[0], i.get(2));
+      for (Map.Entry<String, Map<String, String>> state : byState.entrySet()) {
+        countycodes.put(
+            state.getKey(), CompletableFuture.completedFuture(Map.copyOf(state.getValue())));
       }
     } catch (IOException e) {
       throw new DataSourceException(e.getMessage());
     }
   }
 
+  private static Map<String, String> parseCountyCodes(List<List<String>> body) {
+    Map<String, String> codes = new HashMap<>();
+    /* Rows are county name, state code, county code, after a header row */
+    for (List<String> i : body.subList(Math.min(1, body.size()), body.size())) {
+      codes.put(countyName(i), i.get(2));
+    }
+    return Map.copyOf(codes);
+  }
+
+  /* "Kent County, Rhode Island" is looked up as "Kent County" */
+  private static String countyName(List<String> row) {
+    return row.get(0).split(",")[0];
+  }
+
   /**
-   * Retrieves ACS variables from the Census API and stores them in an ACS variables set.
+   * Retrieves the ACS variables of the subject tables and data profiles from the Census API, both
+   * at once. Each variable list is read as it arrives, keeping only the variable names. Once they
+   * are retrieved, a variable is looked up in the dataset that has it, and lookups of a variable
+   * that is in neither are rejected without a request.
    *
    * @throws DataSourceException If an error occurs during data retrieval.
    */
   public void getACSVariables() throws DataSourceException {
     try {
-      URL requestURL = new URL("https", "api.census.gov", "/data/2021/acs/acs1/subject/variables");
-      HttpURLConnection clientConnection = connect(requestURL);
-      Moshi moshi = new Moshi.Builder().build();
-      Type listStringObject = Types.newParameterizedType(List.class, List.class, String.class);
-      JsonAdapter<List<List<String>>> adapter = moshi.adapter(listStringObject);
-      List<List<String>> body =
-          adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
-      clientConnection.disconnect();
-      if (body == null) {
-        throw new DataSourceException("malformed response from ACS");
+      Map<String, CompletableFuture<VariableCatalog>> requests = new HashMap<>();
+      for (String dataset : DATASETS) {
+        requests.put(
+            dataset, fetchCatalogAsync("/data/2021/acs/acs1/%s/variables".formatted(dataset)));
       }
-      for (List<String> i : body) {
-        acsVariables.add(i.get(0));
+      Map<String, VariableCatalog> catalogs = new HashMap<>();
+      for (Map.Entry<String, CompletableFuture<VariableCatalog>> request : requests.entrySet()) {
+        catalogs.put(request.getKey(), request.getValue().join());
       }
+      variableCatalogs = Map.copyOf(catalogs);
     } catch (Exception e) {
       throw new DataSourceException(e.getMessage());
     }
   }
 
+  /**
+   * Checks an ACS variable against the retrieved variables, if they have been retrieved.
+   *
+   * @param acsVariable The ACS variable.
+   * @return Whether the variable is unknown to the census API.
+   */
+  public boolean isUnknownVariable(String acsVariable) {
+    Map<String, VariableCatalog> catalogs = variableCatalogs;
+    if (catalogs.isEmpty()) {
+      return false;
+    }
+    for (VariableCatalog catalog : catalogs.values()) {
+      if (catalog.contains(acsVariable)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the retrieved ACS variables whose names start with a prefix, in every dataset.
+   *
+   * @param prefix The prefix, e.g. "S2802_" for the variables of table S2802.
+   * @return The names of the variables, sorted and without duplicates; empty if the variables were
+   *     not retrieved.
+   */
+  public List<String> findVariables(String prefix) {
+    /* Some variables, such as GEO_ID, are in both datasets */
+    SortedSet<String> found = new TreeSet<>();
+    for (VariableCatalog catalog : variableCatalogs.values()) {
+      found.addAll(catalog.withPrefix(prefix));
+    }
+    return List.copyOf(found);
+  }
+
+  private InputNotFoundException unknownVariable(Collection<String> variables) {
+    for (String variable : variables) {
+      if (isUnknownVariable(variable)) {
+        return new InputNotFoundException("The acs variable you entered (" + variable);
+      }
+    }
+    return null;
+  }
+
   /**
    * Retrieves the broadband percentage for a specific county and state, considering a specific ACS
    * variable.
@@ -171,56 +532,263 @@ public class ACSCensusDataSource implements CensusDataSource {
    */
   public String getBroadbandPercentage(String countyname, String statename, String acsVariable)
       throws InputNotFoundException, DataSourceException, DataNotFoundException {
-    if (!statecode_map.containsKey(statename)) {
-      throw new InputNotFoundException("The state you entered (" + statename);
+    return await(getBroadbandPercentageAsync(countyname, statename, acsVariable));
+  }
+
+  /**
+   * Retrieves the broadband percentage for a specific county and state, considering a specific ACS
+   * variable, without waiting for the census API. The future fails with an {@link
+   * InputNotFoundException} if the county, state, or ACS variable is not found, a {@link
+   * DataSourceException} if an error occurs during data retrieval, or a {@link
+   * DataNotFoundException} if the data is not found.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param acsVariable The ACS variable the caller wants to retrieve data for.
+   * @return A future of the broadband percentage as a String.
+   */
+  @Override
+  public CompletableFuture<String> getBroadbandPercentageAsync(
+      String countyname, String statename, String acsVariable) {
+    InputNotFoundException unknown = unknownVariable(List.of(acsVariable));
+    if (unknown != null) {
+      return CompletableFuture.failedFuture(unknown);
     }
-    String state_code = statecode_map.get(statename);
+    return resolveCountyAsync(countyname, statename)
+        .thenCompose(
+            codes -> {
+              /* Check which variable list to look at (subject/variables or profile/variables) */
+              String endpointParam =
+                  "/data/2021/acs/acs1/%s/variables?get=NAME,%s&for=county:%s&in=state:%s"
+                      .formatted(
+                          datasetOf(acsVariable), acsVariable, codes.county(), codes.state());
+              return fetchRowsAsync(endpointParam)
+                  .handle(
+                      (body, error) -> {
+                        if (error != null) {
+                          throw new CompletionException(
+                              notFound(error, countyname, statename, acsVariable));
+                        }
+                        if (body.size() < 2) {
+                          throw new CompletionException(
+                              new DataNotFoundException(countyname, statename, acsVariable));
+                        }
+                        String broadband_percentage = body.get(1).get(1);
+
+                        if (broadband_percentage == null) return "null";
+                        return broadband_percentage;
+                      });
+            });
+  }
+
+  /**
+   * Retrieves the values of several ACS variables for a specific county and state. The variables
+   * are grouped by the dataset they belong to (subject or profile tables), and every group is
+   * fetched in one request naming all its variables, so the county list is fetched once and each
+   * dataset is requested once rather than once per variable.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param variables The ACS variables to retrieve.
+   * @return The value of every variable as a String, keyed by variable, in the order given.
+   * @throws InputNotFoundException if the county, state, or one of the ACS variables is not found.
+   * @throws DataSourceException if an error occurs during data retrieval.
+   * @throws DataNotFoundException if a group of variables, or one of the variables, has no data.
+   */
+  @Override
+  public Map<String, String> getBroadbandPercentages(
+      String countyname, String statename, List<String> variables)
+      throws InputNotFoundException, DataSourceException, DataNotFoundException {
+    return await(getBroadbandPercentagesAsync(countyname, statename, variables));
+  }
 
-    this.getCountyCode(state_code);
-    if (!countycode_map.containsKey(countyname)) {
-      throw new InputNotFoundException("The county you entered (" + countyname);
+  /**
+   * Retrieves the values of several ACS variables for a specific county and state without waiting
+   * for the census API. The variables are grouped by dataset as in {@link
+   * #getBroadbandPercentages(String, String, List)}, and the requests of all groups are sent at
+   * once rather than one after another.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param variables The ACS variables to retrieve.
+   * @return A future of the value of every variable as a String, keyed by variable, in the order
+   *     given.
+   */
+  @Override
+  public CompletableFuture<Map<String, String>> getBroadbandPercentagesAsync(
+      String countyname, String statename, List<String> variables) {
+    InputNotFoundException unknown = unknownVariable(variables);
+    if (unknown != null) {
+      return CompletableFuture.failedFuture(unknown);
     }
-    String county_code = countycode_map.get(countyname);
+    return resolveCountyAsync(countyname, statename)
+        .thenCompose(
+            codes -> {
+              Map<String, List<String>> groups = new LinkedHashMap<>();
+              for (String variable : new LinkedHashSet<>(variables)) {
+                groups
+                    .computeIfAbsent(datasetOf(variable), dataset -> new ArrayList<>())
+                    .add(variable);
+              }
+              List<CompletableFuture<List<List<String>>>> requests = new ArrayList<>();
+              for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+                List<String> groupVariables = group.getValue();
+                for (int from = 0;
+                    from < groupVariables.size();
+                    from += MAX_VARIABLES_PER_REQUEST) {
+                  String requested =
+                      String.join(
+                          ",",
+                          groupVariables.subList(
+                              from,
+                              Math.min(groupVariables.size(), from + MAX_VARIABLES_PER_REQUEST)));
+                  String endpointParam =
+                      "/data/2021/acs/acs1/%s/variables?get=NAME,%s&for=county:%s&in=state:%s"
+                          .formatted(group.getKey(), requested, codes.county(), codes.state());
+                  requests.add(
+                      fetchRowsAsync(endpointParam)
+                          .handle(
+                              (body, error) -> {
+                                if (error != null) {
+                                  throw new CompletionException(
+                                      notFound(error, countyname, statename, requested));
+                                }
+                                if (body.size() < 2) {
+                                  throw new CompletionException(
+                                      new DataNotFoundException(countyname, statename, requested));
+                                }
+                                return body;
+                              }));
+                }
+              }
+              return CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new))
+                  .thenApply(
+                      done -> {
+                        Map<String, String> fetched = new HashMap<>();
+                        for (CompletableFuture<List<List<String>>> request : requests) {
+                          /* The first row names the columns of the second */
+                          List<String> header = request.join().get(0);
+                          List<String> row = request.join().get(1);
+                          for (int i = 0; i < Math.min(header.size(), row.size()); i++) {
+                            fetched.put(header.get(i), row.get(i) == null ? "null" : row.get(i));
+                          }
+                        }
+                        Map<String, String> values = new LinkedHashMap<>();
+                        for (String variable : variables) {
+                          String value = fetched.get(variable);
+                          if (value == null) {
+                            throw new CompletionException(
+                                new DataNotFoundException(countyname, statename, variable));
+                          }
+                          values.put(variable, value);
+                        }
+                        return values;
+                      });
+            });
+  }
 
-    try {
-      /* Check which variable list to look at (subject/variables or profile/variables) */
-      String param;
-      if (acsVariable.equals("S2802_C03_022E")) {
-        param = "subject";
-      } else {
-        param = "profile";
-        if (!acsVariable.contains(acsVariable)) {
-          throw new InputNotFoundException("The acs variable you entered (" + acsVariable);
-        }
-      }
-      String endpointParam =
-          "/data/2021/acs/acs1/%s/variables?get=NAME,%s&for=county:".formatted(param, acsVariable)
-              + county_code
-              + "&in=state:"
-              + state_code;
-
-      URL requestURL = new URL("https", "api.census.gov", endpointParam);
-      System.out.println("URL=" + requestURL);
-      HttpURLConnection clientConnection = connect(requestURL);
-      Moshi moshi = new Moshi.Builder().build();
-      Type listStringObject = Types.newParameterizedType(List.class, List.class, String.class);
-      JsonAdapter<List<List<String>>> adapter = moshi.adapter(listStringObject);
-      List<List<String>> body =
-          adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
-      clientConnection.disconnect();
-      if (body == null) {
-        throw new DataSourceException("malformed response from ACS");
-      }
-      String broadband_percentage = body.get(1).get(1);
+  /* An empty answer to a data request becomes a DataNotFoundException; any other failure is passed
+   * on as it is, so that an unavailable census API is never taken for missing data */
+  private static Exception notFound(
+      Throwable error, String countyname, String statename, String variables) {
+    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+    if (isEmptyAnswer(cause)) {
+      return new DataNotFoundException(countyname, statename, variables);
+    }
+    if (cause instanceof DataSourceException
+        || cause instanceof DataNotFoundException
+        || cause instanceof InputNotFoundException) {
+      return (Exception) cause;
+    }
+    if (cause instanceof IOException) {
+      return new DataSourceException(cause.getMessage());
+    }
+    return new DataSourceException(String.valueOf(cause));
+  }
 
-      if (broadband_percentage == null) return "null";
-      return broadband_percentage;
+  /* The census API answers 204 No Content to a request for data it does not have */
+  private static boolean isEmptyAnswer(Throwable error) {
+    return error instanceof UnexpectedStatusException unexpected && unexpected.status == 204;
+  }
 
+  /**
+   * Retrieves the value of an ACS variable for every county of a state, in one request.
+   *
+   * @param statename The name of the state.
+   * @param acsVariable The ACS variable to retrieve.
+   * @return The value of the variable as a String, keyed by county name, for every county of the
+   *     state that the ACS has data for.
+   * @throws InputNotFoundException if the state or ACS variable is not found.
+   * @throws DataSourceException if an error occurs during data retrieval.
+   * @throws DataNotFoundException if the variable has no data for the state.
+   */
+  public Map<String, String> getStateBroadbandPercentages(String statename, String acsVariable)
+      throws InputNotFoundException, DataSourceException, DataNotFoundException {
+    String state_code = statecode_map.get(statename);
+    if (state_code == null) {
+      throw new InputNotFoundException("The state you entered (" + statename);
+    }
+    InputNotFoundException unknown = unknownVariable(List.of(acsVariable));
+    if (unknown != null) {
+      throw unknown;
+    }
+    String endpointParam =
+        "/data/2021/acs/acs1/%s/variables?get=NAME,%s&for=county:*&in=state:%s"
+            .formatted(datasetOf(acsVariable), acsVariable, state_code);
+    List<List<String>> body;
+    try {
+      body = fetchRows(endpointParam);
     } catch (IOException e) {
       throw new DataSourceException(e.getMessage());
     } catch (DataSourceException e) {
-      throw new DataNotFoundException(countyname, statename, acsVariable);
+      if (isEmptyAnswer(e)) {
+        throw new DataNotFoundException("every county", statename, acsVariable);
+      }
+      throw e;
+    }
+    int column = body.isEmpty() ? -1 : body.get(0).indexOf(acsVariable);
+    if (column < 0) {
+      throw new DataNotFoundException("every county", statename, acsVariable);
+    }
+    Map<String, String> values = new HashMap<>();
+    for (List<String> i : body.subList(1, body.size())) {
+      values.put(countyName(i), i.get(column) == null ? "null" : i.get(column));
+    }
+    return Map.copyOf(values);
+  }
+
+  /** The census codes of a county and its state. */
+  private record CountyCodes(String state, String county) {}
+
+  private CompletableFuture<CountyCodes> resolveCountyAsync(String countyname, String statename) {
+    String state_code = statecode_map.get(statename);
+    if (state_code == null) {
+      return CompletableFuture.failedFuture(
+          new InputNotFoundException("The state you entered (" + statename));
+    }
+    return countyCodesAsync(state_code)
+        .thenApply(
+            county_codes -> {
+              if (!county_codes.containsKey(countyname)) {
+                throw new InputNotFoundException("The county you entered (" + countyname);
+              }
+              return new CountyCodes(state_code, county_codes.get(countyname));
+            });
+  }
+
+  /**
+   * Gets the dataset an ACS variable belongs to: the first whose retrieved variables have it, or
+   * else the subject tables for variables starting with "S", and the data profiles for the rest.
+   */
+  private String datasetOf(String acsVariable) {
+    Map<String, VariableCatalog> catalogs = variableCatalogs;
+    for (String dataset : DATASETS) {
+      VariableCatalog catalog = catalogs.get(dataset);
+      if (catalog != null && catalog.contains(acsVariable)) {
+        return dataset;
+      }
     }
+    return acsVariable.startsWith("S") ? "subject" : "profile";
   }
 
   /**
@@ -236,6 +804,6 @@ public class ACSCensusDataSource implements CensusDataSource {
    */
   public String getBroadbandPercentage(String countyname, String statename)
       throws InputNotFoundException, DataSourceException, DataNotFoundException {
-    return getBroadbandPercentage(countyname, statename, "S2802_C03_022E");
+    return getBroadbandPercentage(countyname, statename, BROADBAND_VARIABLE);
   }
 }
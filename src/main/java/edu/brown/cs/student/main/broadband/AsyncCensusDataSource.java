@@ -0,0 +1,36 @@
+package edu.brown.cs.student.main.broadband;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The AsyncCensusDataSource interface provides the lookups of {@link CensusDataSource} without
+ * blocking: each returns a future that completes when the census data arrives, or fails with the
+ * exception the lookup failed with.
+ */
+public interface AsyncCensusDataSource {
+
+  /**
+   * Retrieves the value of an ACS variable for a specific county and state.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param variable A specific variable to consider.
+   * @return A future of the value as a String.
+   */
+  CompletableFuture<String> getBroadbandPercentageAsync(
+      String countyname, String statename, String variable);
+
+  /**
+   * Retrieves the values of several ACS variables for a specific county and state.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param variables The variables to retrieve.
+   * @return A future of the value of every variable as a String, keyed by variable, in the order
+   *     given.
+   */
+  CompletableFuture<Map<String, String>> getBroadbandPercentagesAsync(
+      String countyname, String statename, List<String> variables);
+}
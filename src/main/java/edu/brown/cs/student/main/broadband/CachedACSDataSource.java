@@ -1,16 +1,70 @@
 package edu.brown.cs.student.main.broadband;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import edu.brown.cs.student.main.broadband.exceptions.DataNotFoundException;
+import edu.brown.cs.student.main.broadband.exceptions.DataSourceException;
 import edu.brown.cs.student.main.broadband.exceptions.InputNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-/** The CachedACSDataSource class provides caching functionality for an ACSCensusDataSource. */
-public class CachedACSDataSource implements CensusDataSource {
+/**
+ * The CachedACSDataSource class provides caching functionality for an ACSCensusDataSource.
+ *
+ * <p>Answers are cached in memory and, optionally, in a {@link DiskCacheStore} behind it: a miss in
+ * memory is looked up on disk before the census API is called, and answers from the census API are
+ * written to both. The disk tier keeps answers across restarts.
+ *
+ * <p>With state prefetching on, the first miss for a state and variable fetches the variable for
+ * every county of the state in one census call, and the following misses for that state are
+ * answered from it, since lookups tend to cluster by state. A state fetch that fails is not tried
+ * again for as long as unknown inputs are remembered, and none is made while the census API's
+ * circuit breaker is not closed; the county is looked up alone instead.
+ *
+ * <p>The size and expiry of the in-memory cache are set by a {@link CensusCacheConfig}. With a
+ * refresh interval, an entry older than it is reloaded from the census API in the background on its
+ * next lookup, which gets the old value rather than waiting.
+ *
+ * <p>Lookups that fail because the state, county or variable is not found are remembered for a
+ * short while, and repeating one in that time is rejected before any tier or the census API is
+ * consulted. Unknown variables are also rejected by the wrapped source against its variable list.
+ */
+public class CachedACSDataSource implements CensusDataSource, AsyncCensusDataSource {
 
   private final ACSCensusDataSource wrappedACSCensusDataSource;
+  private final DiskCacheStore diskStore; // null without a disk tier
+  private static final int REFRESH_THREADS = 2;
+  private static final int REFRESH_QUEUE_SIZE = 256;
+
   private final LoadingCache<String, String> cache;
+  private final ExecutorService refresher; // null without background refresh
+  private final LongAdder diskHits;
+  /* Keys of lookups whose input was not found; null if they are not remembered */
+  private final Cache<String, Boolean> rejected;
+  private final LongAdder negativeHits;
+  private final boolean prefetchStates;
+  /* County name to value, per "state,variable", from whole-state fetches */
+  private final LoadingCache<String, Map<String, String>> stateTables;
+  /* "state,variable" of whole-state fetches that failed recently; null if they are not remembered */
+  private final Cache<String, Boolean> failedStateTables;
 
   /**
    * Construct a new CachedACSDataSource with the specified ACSCensusDataSource to wrap.
@@ -18,56 +72,314 @@ public class CachedACSDataSource implements CensusDataSource {
    * @param toWrap The ACSCensusDataSource to wrap.
    */
   public CachedACSDataSource(ACSCensusDataSource toWrap) {
-    this.wrappedACSCensusDataSource = toWrap;
+    this(toWrap, null);
+  }
 
-    this.cache =
+  /**
+   * Construct a new CachedACSDataSource with the specified ACSCensusDataSource to wrap, and a disk
+   * store as a second cache tier.
+   *
+   * @param toWrap The ACSCensusDataSource to wrap.
+   * @param diskStore The store to keep answers in across restarts, or null for none.
+   */
+  public CachedACSDataSource(ACSCensusDataSource toWrap, DiskCacheStore diskStore) {
+    this(toWrap, diskStore, false);
+  }
+
+  /**
+   * Construct a new CachedACSDataSource with the specified ACSCensusDataSource to wrap, a disk
+   * store as a second cache tier, and whether to prefetch whole states on a miss.
+   *
+   * @param toWrap The ACSCensusDataSource to wrap.
+   * @param diskStore The store to keep answers in across restarts, or null for none.
+   * @param prefetchStates Whether the first miss for a state fetches every county of the state.
+   */
+  public CachedACSDataSource(
+      ACSCensusDataSource toWrap, DiskCacheStore diskStore, boolean prefetchStates) {
+    this(toWrap, diskStore, prefetchStates, CensusCacheConfig.DEFAULT);
+  }
+
+  /**
+   * Construct a new CachedACSDataSource with the specified ACSCensusDataSource to wrap, a disk
+   * store as a second cache tier, whether to prefetch whole states on a miss, and the size and
+   * expiry of the in-memory cache.
+   *
+   * @param toWrap The ACSCensusDataSource to wrap.
+   * @param diskStore The store to keep answers in across restarts, or null for none.
+   * @param prefetchStates Whether the first miss for a state fetches every county of the state.
+   * @param config The size, expiry and background refresh of the in-memory cache.
+   */
+  public CachedACSDataSource(
+      ACSCensusDataSource toWrap,
+      DiskCacheStore diskStore,
+      boolean prefetchStates,
+      CensusCacheConfig config) {
+    this.wrappedACSCensusDataSource = toWrap;
+    this.diskStore = diskStore;
+    this.diskHits = new LongAdder();
+    this.negativeHits = new LongAdder();
+    this.rejected =
+        config.negativeExpireAfterWrite() == null
+            ? null
+            : CacheBuilder.newBuilder()
+                .maximumSize(config.negativeMaximumSize())
+                .expireAfterWrite(config.negativeExpireAfterWrite())
+                .build();
+    this.failedStateTables =
+        config.negativeExpireAfterWrite() == null
+            ? null
+            : CacheBuilder.newBuilder()
+                .maximumSize(config.negativeMaximumSize())
+                .expireAfterWrite(config.negativeExpireAfterWrite())
+                .build();
+    this.prefetchStates = prefetchStates;
+    this.stateTables =
         CacheBuilder.newBuilder()
-            /* Developer can decide/change how many entries are stored in the cache */
-            .maximumSize(3)
-            /* Developer can decide/change how long information is stored in the cache */
-            .expireAfterWrite(1, TimeUnit.MINUTES)
-            /* Keep statistical info around for profiling purposes */
-            .recordStats()
+            /* About one table per state and variable in use */
+            .maximumSize(256)
+            .expireAfterWrite(config.expireAfterWrite())
             .build(
                 new CacheLoader<>() {
                   @Override
-                  public String load(String key) {
-                    /* If this data isn't yet present in the cache, load it: */
-                    String[] split_params = key.split(",");
-                    /* check number of parameters (2 or 3) to call correct getBroadbandPercentage method */
-                    if (split_params.length == 2) {
-                      String countyname = split_params[0];
-                      String statename = split_params[1];
-                      try {
-                        String out =
-                            wrappedACSCensusDataSource.getBroadbandPercentage(
-                                countyname, statename);
-                        return out;
-                      } catch (Exception e) {
-                        throw new InputNotFoundException(
-                            "The input you entered (" + countyname + ", " + statename);
-                      }
-                    } else {
-                      String countyname = split_params[0];
-                      String statename = split_params[1];
-                      String acsvariable = split_params[2];
-                      try {
-                        String out =
-                            wrappedACSCensusDataSource.getBroadbandPercentage(
-                                countyname, statename, acsvariable);
-                        return out;
-                      } catch (Exception e) {
-                        throw new InputNotFoundException(
-                            "The input you entered ("
-                                + countyname
-                                + ", "
-                                + statename
-                                + ", "
-                                + acsvariable);
-                      }
-                    }
+                  public Map<String, String> load(String stateAndVariable) throws Exception {
+                    int comma = stateAndVariable.lastIndexOf(',');
+                    return fetchState(
+                        stateAndVariable.substring(0, comma),
+                        stateAndVariable.substring(comma + 1));
                   }
                 });
+
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder()
+            /* Developer can decide/change how many entries are stored in the cache */
+            .maximumSize(config.maximumSize())
+            /* Developer can decide/change how long information is stored in the cache */
+            .expireAfterWrite(config.expireAfterWrite())
+            /* Keep statistical info around for profiling purposes */
+            .recordStats();
+    if (config.refreshAfterWrite() != null) {
+      /* Old entries are reloaded in the background, and served until the reload is done */
+      builder.refreshAfterWrite(config.refreshAfterWrite());
+      ThreadPoolExecutor refresher =
+          new ThreadPoolExecutor(
+              REFRESH_THREADS,
+              REFRESH_THREADS,
+              30,
+              TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(REFRESH_QUEUE_SIZE),
+              new ThreadFactoryBuilder()
+                  .setNameFormat("census-refresh-%d")
+                  .setDaemon(true)
+                  .build());
+      refresher.allowCoreThreadTimeOut(true);
+      this.refresher = refresher;
+    } else {
+      this.refresher = null;
+    }
+    this.cache =
+        builder.build(
+            new CacheLoader<>() {
+              @Override
+              public String load(String key) throws DataSourceException {
+                /* If this data isn't yet present in the cache, look for it on disk */
+                String stored = fromDisk(key);
+                if (stored != null) {
+                  return stored;
+                }
+                if (prefetchStates) {
+                  String prefetched = fromStateTable(key, true);
+                  if (prefetched != null) {
+                    return prefetched;
+                  }
+                }
+                String out = loadFromSource(key);
+                toDisk(key, out);
+                return out;
+              }
+
+              @Override
+              public ListenableFuture<String> reload(String key, String oldValue) {
+                /* A reload skips the disk tier, which holds the same old value. If the queue
+                 * is full, the old value is kept and reloaded on a later lookup */
+                ListenableFutureTask<String> task =
+                    ListenableFutureTask.create(
+                        () -> {
+                          String out = loadFromSource(key);
+                          toDisk(key, out);
+                          return out;
+                        });
+                refresher.execute(task);
+                return task;
+              }
+            });
+  }
+
+  /**
+   * Looks a key up in the whole-state table of its state and variable, fetching the table first if
+   * asked to. Returns null if there is no table, or the table has no value for the county.
+   */
+  private String fromStateTable(String key, boolean fetch) {
+    String[] split_params = key.split(",");
+    String variable =
+        split_params.length == 2 ? ACSCensusDataSource.BROADBAND_VARIABLE : split_params[2];
+    String stateAndVariable = split_params[1] + "," + variable;
+    Map<String, String> table;
+    if (fetch) {
+      /* Fall back to looking up the county alone, rather than adding a whole-state request to the
+       * traffic of a census API that is failing */
+      if (wrappedACSCensusDataSource.getUpstream().getBreakerState() != CircuitBreaker.State.CLOSED
+          || (failedStateTables != null
+              && failedStateTables.getIfPresent(stateAndVariable) != null)) {
+        return null;
+      }
+      try {
+        table = stateTables.get(stateAndVariable);
+      } catch (ExecutionException | UncheckedExecutionException e) {
+        if (failedStateTables != null) {
+          failedStateTables.put(stateAndVariable, Boolean.TRUE);
+        }
+        if (!isNotFound(e.getCause())) {
+          e.printStackTrace();
+        }
+        return null;
+      }
+    } else {
+      table = stateTables.getIfPresent(stateAndVariable);
+    }
+    return table == null ? null : table.get(split_params[0]);
+  }
+
+  private Map<String, String> fetchState(String statename, String variable) throws Exception {
+    Map<String, String> table =
+        wrappedACSCensusDataSource.getStateBroadbandPercentages(statename, variable);
+    for (Map.Entry<String, String> county : table.entrySet()) {
+      toDisk(county.getKey() + "," + statename + "," + variable, county.getValue());
+    }
+    return table;
+  }
+
+  /**
+   * Fetches an ACS variable for every county of a state in one census call, so that later lookups
+   * in the state are answered without calling the census API.
+   *
+   * @param statename The name of the state.
+   * @param variable The ACS variable to fetch.
+   * @return The number of counties of the state with a value.
+   * @throws Exception If the state is not found or the census call fails.
+   */
+  public int prefetchState(String statename, String variable) throws Exception {
+    String stateAndVariable = statename + "," + variable;
+    stateTables.invalidate(stateAndVariable);
+    try {
+      return stateTables.get(stateAndVariable).size();
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    }
+  }
+
+  private String fromDisk(String key) {
+    if (diskStore == null) {
+      return null;
+    }
+    String stored = diskStore.get(key);
+    if (stored != null) {
+      diskHits.increment();
+    }
+    return stored;
+  }
+
+  private void toDisk(String key, String value) {
+    if (diskStore != null) {
+      try {
+        diskStore.put(key, value);
+      } catch (IOException e) {
+        // the answer is still cached in memory
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private String loadFromSource(String key) throws DataSourceException {
+    /* Neither tier has this data: load it from the census API */
+    String[] split_params = key.split(",");
+    /* check number of parameters (2 or 3) to call correct getBroadbandPercentage method */
+    if (split_params.length == 2) {
+      String countyname = split_params[0];
+      String statename = split_params[1];
+      try {
+        String out = wrappedACSCensusDataSource.getBroadbandPercentage(countyname, statename);
+        return out;
+      } catch (Exception e) {
+        rejectIfNotFound(key, e);
+        throw notFoundOrFailed(e, "The input you entered (" + countyname + ", " + statename);
+      }
+    } else {
+      String countyname = split_params[0];
+      String statename = split_params[1];
+      String acsvariable = split_params[2];
+      try {
+        String out =
+            wrappedACSCensusDataSource.getBroadbandPercentage(countyname, statename, acsvariable);
+        return out;
+      } catch (Exception e) {
+        rejectIfNotFound(key, e);
+        throw notFoundOrFailed(
+            e, "The input you entered (" + countyname + ", " + statename + ", " + acsvariable);
+      }
+    }
+  }
+
+  /* Remembers a key whose lookup failed because an input or its data was not found, but not one
+   * that failed because the census API could not be reached */
+  private void rejectIfNotFound(String key, Throwable error) {
+    if (rejected != null && isNotFound(error)) {
+      rejected.put(key, Boolean.TRUE);
+    }
+  }
+
+  /* Whether a lookup failed because an input or its data was not found */
+  private static boolean isNotFound(Throwable error) {
+    if (error instanceof CompletionException) {
+      error = error.getCause();
+    }
+    return error instanceof InputNotFoundException || error instanceof DataNotFoundException;
+  }
+
+  /* Throws InputNotFoundException for a lookup that failed because an input or its data was not
+   * found, and otherwise returns the DataSourceException to report it with, so that a census API
+   * that could not be reached is not reported as bad input */
+  private static DataSourceException notFoundOrFailed(Throwable error, String input) {
+    if (isNotFound(error)) {
+      throw new InputNotFoundException(input);
+    }
+    if (error instanceof CompletionException) {
+      error = error.getCause();
+    }
+    return error instanceof DataSourceException failed
+        ? failed
+        : new DataSourceException(String.valueOf(error) + ": ");
+  }
+
+  /* Throws if the lookup of a key recently failed because an input was not found */
+  private void checkRejected(String key) {
+    if (rejected != null && rejected.getIfPresent(key) != null) {
+      negativeHits.increment();
+      throw new InputNotFoundException("The input you entered (" + key.replace(",", ", "));
+    }
+  }
+
+  /* Gets a key from the cache, loading it if needed, and rethrows the reason a load failed */
+  private String lookup(String key) throws DataSourceException {
+    checkRejected(key);
+    try {
+      return cache.get(key);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof DataSourceException cause
+          ? cause
+          : new DataSourceException(String.valueOf(e.getCause()) + ": ");
+    } catch (UncheckedExecutionException e) {
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
   }
 
   /**
@@ -76,11 +388,13 @@ public class CachedACSDataSource implements CensusDataSource {
    * @param countyname The name of the county.
    * @param statename The name of the state.
    * @return The broadband percentage as a String.
+   * @throws DataSourceException If the census API could not be reached.
    */
   @Override
-  public String getBroadbandPercentage(String countyname, String statename) {
+  public String getBroadbandPercentage(String countyname, String statename)
+      throws DataSourceException {
     String target = countyname + "," + statename;
-    String result = cache.getUnchecked(target);
+    String result = lookup(target);
     return result;
   }
 
@@ -92,14 +406,152 @@ public class CachedACSDataSource implements CensusDataSource {
    * @param statename The name of the state.
    * @param acsvariable The ACS variable to consider.
    * @return The broadband percentage as a String.
+   * @throws DataSourceException If the census API could not be reached.
    */
   @Override
-  public String getBroadbandPercentage(String countyname, String statename, String acsvariable) {
+  public String getBroadbandPercentage(String countyname, String statename, String acsvariable)
+      throws DataSourceException {
     String target = countyname + "," + statename + "," + acsvariable;
-    String result = cache.getUnchecked(target);
+    String result = lookup(target);
     return result;
   }
 
+  /**
+   * Retrieves the values of several ACS variables for a specific county and state. Variables
+   * already cached in memory or on disk are answered from there, and the rest are fetched in one
+   * batched lookup whose answers are cached for each variable.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param variables The ACS variables to retrieve.
+   * @return The value of every variable as a String, keyed by variable, in the order given.
+   * @throws DataSourceException If the census API could not be reached.
+   */
+  @Override
+  public Map<String, String> getBroadbandPercentages(
+      String countyname, String statename, List<String> variables) throws DataSourceException {
+    try {
+      return getBroadbandPercentagesAsync(countyname, statename, variables).join();
+    } catch (CompletionException e) {
+      throw notFoundOrFailed(
+          e,
+          "The input you entered ("
+              + countyname
+              + ", "
+              + statename
+              + ", "
+              + String.join(",", variables));
+    }
+  }
+
+  /**
+   * Retrieves the value of an ACS variable for a specific county and state without waiting for the
+   * census API. A cached value completes the future at once; otherwise the value is looked up
+   * asynchronously and cached when it arrives. Whole states are only prefetched by the synchronous
+   * lookups and {@link #prefetchState(String, String)}.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param acsvariable The ACS variable to consider.
+   * @return A future of the value as a String.
+   */
+  @Override
+  public CompletableFuture<String> getBroadbandPercentageAsync(
+      String countyname, String statename, String acsvariable) {
+    String target = countyname + "," + statename + "," + acsvariable;
+    try {
+      checkRejected(target);
+    } catch (InputNotFoundException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    String value = fromTiers(target);
+    if (value != null) {
+      return CompletableFuture.completedFuture(value);
+    }
+    return wrappedACSCensusDataSource
+        .getBroadbandPercentageAsync(countyname, statename, acsvariable)
+        .whenComplete(
+            (out, error) -> {
+              if (error != null) {
+                rejectIfNotFound(target, error);
+              }
+            })
+        .thenApply(
+            out -> {
+              cache.put(target, out);
+              toDisk(target, out);
+              return out;
+            });
+  }
+
+  /**
+   * Retrieves the values of several ACS variables for a specific county and state without waiting
+   * for the census API, as {@link #getBroadbandPercentages(String, String, List)} does.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param variables The ACS variables to retrieve.
+   * @return A future of the value of every variable as a String, keyed by variable, in the order
+   *     given.
+   */
+  @Override
+  public CompletableFuture<Map<String, String>> getBroadbandPercentagesAsync(
+      String countyname, String statename, List<String> variables) {
+    Map<String, String> values = new LinkedHashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String variable : variables) {
+      String target = countyname + "," + statename + "," + variable;
+      try {
+        checkRejected(target);
+      } catch (InputNotFoundException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+      String value = fromTiers(target);
+      if (value == null && !missing.contains(variable)) {
+        missing.add(variable);
+      }
+      /* Missing values keep their place in the order and are filled in below */
+      values.put(variable, value);
+    }
+    if (missing.isEmpty()) {
+      return CompletableFuture.completedFuture(values);
+    }
+    return wrappedACSCensusDataSource
+        .getBroadbandPercentagesAsync(countyname, statename, missing)
+        .whenComplete(
+            (fetched, error) -> {
+              /* A failed batch only says which variable failed if it had one */
+              if (error != null && missing.size() == 1) {
+                rejectIfNotFound(countyname + "," + statename + "," + missing.get(0), error);
+              }
+            })
+        .thenApply(
+            fetched -> {
+              for (Map.Entry<String, String> entry : fetched.entrySet()) {
+                String target = countyname + "," + statename + "," + entry.getKey();
+                cache.put(target, entry.getValue());
+                toDisk(target, entry.getValue());
+                values.put(entry.getKey(), entry.getValue());
+              }
+              return values;
+            });
+  }
+
+  /* Looks a key up in memory, on disk, then in the fetched state tables, without loading it */
+  private String fromTiers(String target) {
+    String value = cache.getIfPresent(target);
+    if (value == null) {
+      value = fromDisk(target);
+      if (value == null) {
+        value = fromStateTable(target, false);
+      }
+      if (value != null) {
+        cache.put(target, value);
+      }
+    }
+    return value;
+  }
+
   /**
    * Retrieves the cache hit count.
    *
@@ -139,4 +591,31 @@ public class CachedACSDataSource implements CensusDataSource {
     int evictioncount = (int) cache.stats().evictionCount();
     return evictioncount;
   }
+
+  /**
+   * Retrieves the number of in-memory cache misses that were answered by the disk tier.
+   *
+   * @return The disk hit count.
+   */
+  public long getDiskHitCount() {
+    return diskHits.sum();
+  }
+
+  /**
+   * Retrieves the number of lookups rejected because their input was recently not found.
+   *
+   * @return The negative hit count.
+   */
+  public long getNegativeHitCount() {
+    return negativeHits.sum();
+  }
+
+  /**
+   * Retrieves all the statistics of the cache.
+   *
+   * @return The cache statistics.
+   */
+  public CacheStats getCacheStats() {
+    return cache.stats();
+  }
 }
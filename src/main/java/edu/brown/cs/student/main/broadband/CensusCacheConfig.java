@@ -0,0 +1,123 @@
+package edu.brown.cs.student.main.broadband;
+
+import static edu.brown.cs.student.main.broadband.ConfigProperties.longProperty;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * The sizing and expiry of the in-memory cache of a {@link CachedACSDataSource}.
+ *
+ * <p>An entry is dropped once it is older than {@code expireAfterWrite}, and the next lookup of it
+ * waits for the census API. With a {@code refreshAfterWrite} shorter than that, the first lookup of
+ * an entry older than {@code refreshAfterWrite} reloads it in the background instead, and keeps
+ * getting the old value until the new one arrives, so entries that are looked up often are never
+ * waited for.
+ *
+ * <p>Lookups of unknown states, counties and variables are remembered in a separate, smaller cache
+ * for {@code negativeExpireAfterWrite}, and rejected without calling the census API while they are.
+ *
+ * <p>A deployment can set these properties (e.g. {@code -Dcensus.cacheSize=5000}):
+ *
+ * <ul>
+ *   <li>{@code census.cacheSize}: the most entries kept; 1000 by default.
+ *   <li>{@code census.cacheExpireSeconds}: how long an entry is kept; 3600 by default.
+ *   <li>{@code census.cacheRefreshSeconds}: how old an entry is when it is reloaded in the
+ *       background; 300 by default, and 0 to never reload.
+ *   <li>{@code census.negativeCacheSize}: the most unknown inputs remembered; 10000 by default.
+ *   <li>{@code census.negativeCacheExpireSeconds}: how long an unknown input is remembered; 60 by
+ *       default, and 0 to not remember them.
+ * </ul>
+ *
+ * @param maximumSize The most entries kept.
+ * @param expireAfterWrite How long an entry is kept after it is loaded.
+ * @param refreshAfterWrite How long after it is loaded an entry is reloaded in the background, or
+ *     null to never reload.
+ * @param negativeMaximumSize The most unknown inputs remembered.
+ * @param negativeExpireAfterWrite How long an unknown input is remembered, or null to not remember
+ *     them.
+ */
+public record CensusCacheConfig(
+    long maximumSize,
+    Duration expireAfterWrite,
+    Duration refreshAfterWrite,
+    long negativeMaximumSize,
+    Duration negativeExpireAfterWrite) {
+  static final String SIZE = "census.cacheSize";
+  static final String EXPIRE_SECONDS = "census.cacheExpireSeconds";
+  static final String REFRESH_SECONDS = "census.cacheRefreshSeconds";
+  static final String NEGATIVE_SIZE = "census.negativeCacheSize";
+  static final String NEGATIVE_EXPIRE_SECONDS = "census.negativeCacheExpireSeconds";
+
+  private static final long NEGATIVE_SIZE_DEFAULT = 10_000;
+  private static final Duration NEGATIVE_EXPIRE_DEFAULT = Duration.ofMinutes(1);
+
+  /** Three entries for a minute, never reloaded: the cache used when none is configured. */
+  public static final CensusCacheConfig DEFAULT =
+      new CensusCacheConfig(3, Duration.ofMinutes(1), null);
+
+  /**
+   * Makes a configuration that remembers up to 10000 unknown inputs for a minute.
+   *
+   * @param maximumSize The most entries kept.
+   * @param expireAfterWrite How long an entry is kept after it is loaded.
+   * @param refreshAfterWrite How long after it is loaded an entry is reloaded in the background, or
+   *     null to never reload.
+   */
+  public CensusCacheConfig(
+      long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite) {
+    this(
+        maximumSize,
+        expireAfterWrite,
+        refreshAfterWrite,
+        NEGATIVE_SIZE_DEFAULT,
+        NEGATIVE_EXPIRE_DEFAULT);
+  }
+
+  /**
+   * Checks the configuration.
+   *
+   * @throws IllegalArgumentException If a size or a duration is not positive, or entries would
+   *     expire before they are reloaded.
+   */
+  public CensusCacheConfig {
+    if (maximumSize <= 0
+        || expireAfterWrite == null
+        || expireAfterWrite.isNegative()
+        || expireAfterWrite.isZero()
+        || (refreshAfterWrite != null
+            && (refreshAfterWrite.isNegative()
+                || refreshAfterWrite.isZero()
+                || refreshAfterWrite.compareTo(expireAfterWrite) >= 0))) {
+      throw new IllegalArgumentException(
+          "Invalid census cache: maximumSize=%d, expireAfterWrite=%s, refreshAfterWrite=%s."
+              .formatted(maximumSize, expireAfterWrite, refreshAfterWrite));
+    }
+    if (negativeMaximumSize <= 0
+        || (negativeExpireAfterWrite != null
+            && (negativeExpireAfterWrite.isNegative() || negativeExpireAfterWrite.isZero()))) {
+      throw new IllegalArgumentException(
+          "Invalid census negative cache: negativeMaximumSize=%d, negativeExpireAfterWrite=%s."
+              .formatted(negativeMaximumSize, negativeExpireAfterWrite));
+    }
+  }
+
+  /**
+   * Makes the configuration that the given properties ask for.
+   *
+   * @param properties The properties, e.g. the system properties.
+   * @return The configuration.
+   * @throws IllegalArgumentException If a property has an invalid value.
+   */
+  public static CensusCacheConfig fromProperties(Properties properties) {
+    long refreshSeconds = longProperty(properties, REFRESH_SECONDS, 300);
+    long negativeExpireSeconds =
+        longProperty(properties, NEGATIVE_EXPIRE_SECONDS, NEGATIVE_EXPIRE_DEFAULT.toSeconds());
+    return new CensusCacheConfig(
+        longProperty(properties, SIZE, 1000),
+        Duration.ofSeconds(longProperty(properties, EXPIRE_SECONDS, 3600)),
+        refreshSeconds == 0 ? null : Duration.ofSeconds(refreshSeconds),
+        longProperty(properties, NEGATIVE_SIZE, NEGATIVE_SIZE_DEFAULT),
+        negativeExpireSeconds == 0 ? null : Duration.ofSeconds(negativeExpireSeconds));
+  }
+}
@@ -1,5 +1,9 @@
 package edu.brown.cs.student.main.broadband;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * The CensusDataSource interface provides methods to retrieve broadband percentage data from a
  * census data source.
@@ -28,4 +32,24 @@ public interface CensusDataSource {
    */
   String getBroadbandPercentage(String countyname, String statename, String variable)
       throws Exception;
+
+  /**
+   * Retrieves the values of several ACS variables for a specific county and state at once. The
+   * default implementation looks each variable up on its own; implementations backed by the census
+   * API fetch them in as few requests as they can.
+   *
+   * @param countyname The name of the county.
+   * @param statename The name of the state.
+   * @param variables The variables to retrieve.
+   * @return The value of every variable as a String, keyed by variable, in the order given.
+   * @throws Exception If an error occurs during data retrieval.
+   */
+  default Map<String, String> getBroadbandPercentages(
+      String countyname, String statename, List<String> variables) throws Exception {
+    Map<String, String> values = new LinkedHashMap<>();
+    for (String variable : variables) {
+      values.put(variable, getBroadbandPercentage(countyname, statename, variable));
+    }
+    return values;
+  }
 }
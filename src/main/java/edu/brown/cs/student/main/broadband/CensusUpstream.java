@@ -0,0 +1,259 @@
+package edu.brown.cs.student.main.broadband;
+
+import edu.brown.cs.student.main.broadband.exceptions.DataSourceException;
+import edu.brown.cs.student.main.metrics.CallTimer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Sends requests to the census API with the retries, duplicate (hedged) requests, deadline and
+ * circuit breaker of a {@link CensusUpstreamConfig}.
+ */
+public class CensusUpstream {
+  /* Retries may add at most a fifth to the requests sent, plus a few, so that they cannot
+   * multiply the load on an API that is already failing */
+  private static final double RETRY_BUDGET_RATIO = 0.2;
+  private static final double RETRY_BUDGET_MAX = 10;
+  /* The p95 latency is only trusted for hedging once this many requests were timed, and is then
+   * recomputed at most this often */
+  private static final long HEDGE_MIN_SAMPLES = 20;
+  private static final long HEDGE_RECOMPUTE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final CensusUpstreamConfig config;
+  private final CallTimer timer;
+  private final CircuitBreaker breaker;
+  private final LongAdder retries;
+  private final LongAdder hedges;
+  private double retryTokens;
+  private volatile long hedgeDelayNanos; // -1 while there is too little data
+  private volatile long hedgeComputedAt;
+
+  /**
+   * Constructs a CensusUpstream.
+   *
+   * @param config The retries, hedging, deadline and circuit breaker to apply.
+   * @param timer The timer that every request sent is recorded in, whose p95 latency is the delay
+   *     before a duplicate request is sent.
+   */
+  public CensusUpstream(CensusUpstreamConfig config, CallTimer timer) {
+    this.config = config;
+    this.timer = timer;
+    this.breaker = new CircuitBreaker(config.breakerFailures(), config.breakerOpenDuration());
+    this.retries = new LongAdder();
+    this.hedges = new LongAdder();
+    this.retryTokens = RETRY_BUDGET_MAX;
+    this.hedgeDelayNanos = -1;
+  }
+
+  /**
+   * Makes a call to the census API. The future fails with a {@link DataSourceException} if the
+   * circuit breaker is open or the deadline passes, and otherwise with the failure of the last
+   * request sent.
+   *
+   * @param send Sends one request that must be answered within the given time. Cancelling the
+   *     future it returns must cancel the request.
+   * @param retryable Whether a request that failed with the given exception may be sent again.
+   * @param <T> The type of the answer.
+   * @return A future of the answer.
+   */
+  public <T> CompletableFuture<T> call(
+      Function<Duration, CompletableFuture<T>> send, Predicate<Throwable> retryable) {
+    long deadline = System.nanoTime() + config.deadline().toNanos();
+    depositRetryToken();
+    CompletableFuture<T> result = new CompletableFuture<>();
+    attempt(send, retryable, deadline, 1, result);
+    return result
+        .orTimeout(config.deadline().toNanos(), TimeUnit.NANOSECONDS)
+        .exceptionallyCompose(
+            error ->
+                CompletableFuture.failedFuture(
+                    unwrap(error) instanceof TimeoutException
+                        ? deadlineExceeded()
+                        : unwrap(error)));
+  }
+
+  private <T> void attempt(
+      Function<Duration, CompletableFuture<T>> send,
+      Predicate<Throwable> retryable,
+      long deadline,
+      int number,
+      CompletableFuture<T> result) {
+    long remaining = deadline - System.nanoTime();
+    if (remaining <= 0 || result.isDone()) {
+      return;
+    }
+    hedged(send, retryable, remaining)
+        .whenComplete(
+            (value, error) -> {
+              if (error == null) {
+                result.complete(value);
+                return;
+              }
+              Throwable cause = unwrap(error);
+              if (number < config.maxAttempts()
+                  && retryable.test(cause)
+                  && breaker.getState() == CircuitBreaker.State.CLOSED) {
+                long backoff = backoffNanos(number);
+                if (System.nanoTime() + backoff < deadline && withdrawRetryToken()) {
+                  retries.increment();
+                  CompletableFuture.delayedExecutor(backoff, TimeUnit.NANOSECONDS)
+                      .execute(() -> attempt(send, retryable, deadline, number + 1, result));
+                  return;
+                }
+              }
+              /* A request cut short by the deadline failed because of it */
+              result.completeExceptionally(
+                  System.nanoTime() - deadline >= 0 ? deadlineExceeded() : cause);
+            });
+  }
+
+  private static DataSourceException deadlineExceeded() {
+    return new DataSourceException("census API deadline exceeded: ");
+  }
+
+  /* Sends a request, and a duplicate if it is slower than usual; the first answer wins, and the
+   * call only fails once every request sent has */
+  private <T> CompletableFuture<T> hedged(
+      Function<Duration, CompletableFuture<T>> send,
+      Predicate<Throwable> retryable,
+      long remaining) {
+    long delay = hedgeDelayNanos();
+    if (delay < 0 || delay >= remaining) {
+      return guarded(send, retryable, remaining, null);
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    List<CompletableFuture<T>> sent = new CopyOnWriteArrayList<>();
+    AtomicInteger pending = new AtomicInteger(1);
+    guarded(send, retryable, remaining, sent)
+        .whenComplete((value, error) -> settle(result, pending, value, error));
+    CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS)
+        .execute(
+            () -> {
+              /* Only if the first request is still unanswered */
+              if (result.isDone() || pending.getAndUpdate(p -> p == 0 ? 0 : p + 1) == 0) {
+                return;
+              }
+              hedges.increment();
+              guarded(send, retryable, remaining - delay, sent)
+                  .whenComplete((value, error) -> settle(result, pending, value, error));
+            });
+    /* The losing request is not waited for */
+    result.whenComplete((value, error) -> sent.forEach(request -> request.cancel(true)));
+    return result;
+  }
+
+  private static <T> void settle(
+      CompletableFuture<T> result, AtomicInteger pending, T value, Throwable error) {
+    if (error == null) {
+      result.complete(value);
+    } else if (pending.decrementAndGet() == 0) {
+      result.completeExceptionally(error);
+    }
+  }
+
+  /* Sends a request through the circuit breaker, and tells the breaker how it went */
+  private <T> CompletableFuture<T> guarded(
+      Function<Duration, CompletableFuture<T>> send,
+      Predicate<Throwable> retryable,
+      long timeoutNanos,
+      List<CompletableFuture<T>> sent) {
+    if (!breaker.tryAcquire()) {
+      return CompletableFuture.failedFuture(
+          new DataSourceException("census API unavailable: circuit breaker open: "));
+    }
+    CompletableFuture<T> request = send.apply(Duration.ofNanos(timeoutNanos));
+    if (sent != null) {
+      sent.add(request);
+    }
+    return request.whenComplete(
+        (value, error) -> {
+          Throwable cause = error == null ? null : unwrap(error);
+          if (cause instanceof CancellationException) {
+            breaker.onCancel();
+          } else if (cause != null && retryable.test(cause)) {
+            breaker.onFailure();
+          } else {
+            /* The API answered, even if it was to say the request was bad */
+            breaker.onSuccess();
+          }
+        });
+  }
+
+  /* Full jitter: a random backoff up to the base backoff doubled for each attempt so far */
+  private long backoffNanos(int attempts) {
+    long ceiling = config.retryBackoff().toNanos() << Math.min(attempts - 1, 20);
+    return ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  private synchronized void depositRetryToken() {
+    retryTokens = Math.min(RETRY_BUDGET_MAX, retryTokens + RETRY_BUDGET_RATIO);
+  }
+
+  private synchronized boolean withdrawRetryToken() {
+    if (retryTokens < 1) {
+      return false;
+    }
+    retryTokens -= 1;
+    return true;
+  }
+
+  private long hedgeDelayNanos() {
+    if (config.hedgeDelay() == null) {
+      return -1;
+    }
+    long now = System.nanoTime();
+    if (hedgeDelayNanos < 0 || now - hedgeComputedAt >= HEDGE_RECOMPUTE_NANOS) {
+      hedgeComputedAt = now;
+      var latency = timer.getLatency().snapshot();
+      hedgeDelayNanos =
+          latency.getCount() < HEDGE_MIN_SAMPLES
+              ? -1
+              : Math.max(config.hedgeDelay().toNanos(), latency.getPercentileNanos(0.95));
+    }
+    return hedgeDelayNanos;
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null
+        ? error.getCause()
+        : error;
+  }
+
+  /**
+   * Gets the state of the circuit breaker.
+   *
+   * @return The state.
+   */
+  public CircuitBreaker.State getBreakerState() {
+    return breaker.getState();
+  }
+
+  /**
+   * Gets the number of requests sent again after a failure.
+   *
+   * @return The retry count.
+   */
+  public long getRetryCount() {
+    return retries.sum();
+  }
+
+  /**
+   * Gets the number of duplicate requests sent because the first was slow.
+   *
+   * @return The hedge count.
+   */
+  public long getHedgeCount() {
+    return hedges.sum();
+  }
+}
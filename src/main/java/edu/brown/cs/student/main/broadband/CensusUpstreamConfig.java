@@ -0,0 +1,113 @@
+package edu.brown.cs.student.main.broadband;
+
+import static edu.brown.cs.student.main.broadband.ConfigProperties.longProperty;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * How an {@link ACSCensusDataSource} copes with a slow or failing census API.
+ *
+ * <p>A request that fails with a network error, a timeout or a 429 or 5xx status is retried up to
+ * {@code maxAttempts} times in all, after a random backoff of up to {@code retryBackoff} doubled
+ * for every attempt so far. A request still unanswered after the census API's p95 latency (but no
+ * sooner than {@code hedgeDelay}) is sent a second time, and the first answer is used. Retries and
+ * duplicates end at the request's {@code deadline}. After {@code breakerFailures} failed requests
+ * in a row, requests fail at once for {@code breakerOpenDuration}, after which one is let through
+ * to try the API again.
+ *
+ * <p>A deployment can set these properties (e.g. {@code -Dcensus.maxAttempts=2}):
+ *
+ * <ul>
+ *   <li>{@code census.maxAttempts}: the most times a request is sent, 1 for no retries; 3 by
+ *       default.
+ *   <li>{@code census.retryBackoffMillis}: the backoff before the first retry; 100 by default.
+ *   <li>{@code census.hedgeDelayMillis}: the least time before a duplicate request is sent; 50 by
+ *       default, and 0 to never send one.
+ *   <li>{@code census.deadlineMillis}: how long a request may take in all; 15000 by default.
+ *   <li>{@code census.breakerFailures}: how many failures in a row open the breaker; 5 by default.
+ *   <li>{@code census.breakerOpenSeconds}: how long the breaker stays open; 30 by default.
+ * </ul>
+ *
+ * @param maxAttempts The most times a request is sent.
+ * @param retryBackoff The backoff before the first retry.
+ * @param hedgeDelay The least time before a duplicate request is sent, or null to never send one.
+ * @param deadline How long a request may take in all, retries included.
+ * @param breakerFailures How many failures in a row open the circuit breaker.
+ * @param breakerOpenDuration How long the circuit breaker stays open.
+ */
+public record CensusUpstreamConfig(
+    int maxAttempts,
+    Duration retryBackoff,
+    Duration hedgeDelay,
+    Duration deadline,
+    int breakerFailures,
+    Duration breakerOpenDuration) {
+  static final String MAX_ATTEMPTS = "census.maxAttempts";
+  static final String RETRY_BACKOFF_MILLIS = "census.retryBackoffMillis";
+  static final String HEDGE_DELAY_MILLIS = "census.hedgeDelayMillis";
+  static final String DEADLINE_MILLIS = "census.deadlineMillis";
+  static final String BREAKER_FAILURES = "census.breakerFailures";
+  static final String BREAKER_OPEN_SECONDS = "census.breakerOpenSeconds";
+
+  /** The configuration used when none is set. */
+  public static final CensusUpstreamConfig DEFAULT =
+      new CensusUpstreamConfig(
+          3,
+          Duration.ofMillis(100),
+          Duration.ofMillis(50),
+          Duration.ofSeconds(15),
+          5,
+          Duration.ofSeconds(30));
+
+  /**
+   * Checks the configuration.
+   *
+   * @throws IllegalArgumentException If a count or a duration is not positive.
+   */
+  public CensusUpstreamConfig {
+    if (maxAttempts <= 0
+        || breakerFailures <= 0
+        || !isPositive(retryBackoff)
+        || (hedgeDelay != null && !isPositive(hedgeDelay))
+        || !isPositive(deadline)
+        || !isPositive(breakerOpenDuration)) {
+      throw new IllegalArgumentException(
+          ("Invalid census upstream: maxAttempts=%d, retryBackoff=%s, hedgeDelay=%s, deadline=%s,"
+                  + " breakerFailures=%d, breakerOpenDuration=%s.")
+              .formatted(
+                  maxAttempts,
+                  retryBackoff,
+                  hedgeDelay,
+                  deadline,
+                  breakerFailures,
+                  breakerOpenDuration));
+    }
+  }
+
+  /**
+   * Makes the configuration that the given properties ask for.
+   *
+   * @param properties The properties, e.g. the system properties.
+   * @return The configuration.
+   * @throws IllegalArgumentException If a property has an invalid value.
+   */
+  public static CensusUpstreamConfig fromProperties(Properties properties) {
+    long hedgeMillis =
+        longProperty(properties, HEDGE_DELAY_MILLIS, DEFAULT.hedgeDelay().toMillis());
+    return new CensusUpstreamConfig(
+        (int) longProperty(properties, MAX_ATTEMPTS, DEFAULT.maxAttempts()),
+        Duration.ofMillis(
+            longProperty(properties, RETRY_BACKOFF_MILLIS, DEFAULT.retryBackoff().toMillis())),
+        hedgeMillis == 0 ? null : Duration.ofMillis(hedgeMillis),
+        Duration.ofMillis(longProperty(properties, DEADLINE_MILLIS, DEFAULT.deadline().toMillis())),
+        (int) longProperty(properties, BREAKER_FAILURES, DEFAULT.breakerFailures()),
+        Duration.ofSeconds(
+            longProperty(
+                properties, BREAKER_OPEN_SECONDS, DEFAULT.breakerOpenDuration().toSeconds())));
+  }
+
+  private static boolean isPositive(Duration duration) {
+    return duration != null && !duration.isNegative() && !duration.isZero();
+  }
+}
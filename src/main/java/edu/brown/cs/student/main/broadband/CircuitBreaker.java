@@ -0,0 +1,118 @@
+package edu.brown.cs.student.main.broadband;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A circuit breaker for calls to an upstream API.
+ *
+ * <p>While closed, every call is let through. After {@code failureThreshold} failures in a row the
+ * breaker opens, and calls are turned away at once instead of waiting on an API that is down. Once
+ * it has been open for {@code openDuration}, it lets a single trial call through: the breaker
+ * closes if the trial succeeds, and opens again if it fails.
+ */
+public class CircuitBreaker {
+
+  /** The states of a breaker. */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final Clock clock;
+
+  private State state;
+  private int failures; // in a row, while closed
+  private Instant openedAt;
+  private boolean trialInFlight;
+
+  /**
+   * Constructs a closed CircuitBreaker.
+   *
+   * @param failureThreshold How many failures in a row open the breaker.
+   * @param openDuration How long the breaker stays open before it lets a trial call through.
+   */
+  public CircuitBreaker(int failureThreshold, Duration openDuration) {
+    this(failureThreshold, openDuration, Clock.systemUTC());
+  }
+
+  /**
+   * Constructs a closed CircuitBreaker that reads the time from the given clock.
+   *
+   * @param failureThreshold How many failures in a row open the breaker.
+   * @param openDuration How long the breaker stays open before it lets a trial call through.
+   * @param clock The clock to time the open state with.
+   */
+  public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.clock = clock;
+    this.state = State.CLOSED;
+  }
+
+  /**
+   * Asks to make a call. A caller that is let through must report how the call went with {@link
+   * #onSuccess()}, {@link #onFailure()} or {@link #onCancel()}.
+   *
+   * @return Whether the call may be made.
+   */
+  public synchronized boolean tryAcquire() {
+    if (state == State.OPEN) {
+      if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+        return false;
+      }
+      state = State.HALF_OPEN;
+      trialInFlight = false;
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialInFlight) {
+        return false;
+      }
+      trialInFlight = true;
+    }
+    return true;
+  }
+
+  /** Reports that a call succeeded, which closes the breaker unless it is open. */
+  public synchronized void onSuccess() {
+    if (state == State.OPEN) {
+      /* A call made before the breaker opened; only the trial call may close it */
+      return;
+    }
+    state = State.CLOSED;
+    failures = 0;
+  }
+
+  /** Reports that a call failed, which opens the breaker if it was a trial or one too many. */
+  public synchronized void onFailure() {
+    if (state == State.OPEN) {
+      /* A call made before the breaker opened; the breaker stays open as long as it was going to */
+      return;
+    }
+    if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = clock.instant();
+      failures = 0;
+    }
+  }
+
+  /** Reports that a call was given up on before it finished, so another trial may be made. */
+  public synchronized void onCancel() {
+    if (state == State.HALF_OPEN) {
+      trialInFlight = false;
+    }
+  }
+
+  /**
+   * Gets the state of the breaker.
+   *
+   * @return The state.
+   */
+  public synchronized State getState() {
+    return state;
+  }
+}
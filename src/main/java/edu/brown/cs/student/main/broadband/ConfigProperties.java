@@ -0,0 +1,30 @@
+package edu.brown.cs.student.main.broadband;
+
+import java.util.Properties;
+
+/** Reads the settings of {@link CensusCacheConfig} and {@link CensusUpstreamConfig}. */
+final class ConfigProperties {
+  private ConfigProperties() {}
+
+  /**
+   * Reads an integer setting.
+   *
+   * @param properties The settings.
+   * @param name The name of the setting.
+   * @param defaultValue The value used if the setting is not given.
+   * @return The value of the setting.
+   * @throws IllegalArgumentException If the setting is not an integer.
+   */
+  static long longProperty(Properties properties, String name, long defaultValue) {
+    String value = properties.getProperty(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.strip());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "Invalid %s value: %s. It should be an integer.".formatted(name, value));
+    }
+  }
+}
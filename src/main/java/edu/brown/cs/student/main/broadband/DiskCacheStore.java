@@ -0,0 +1,333 @@
+package edu.brown.cs.student.main.broadband;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * A persistent string key/value store on local disk, used as a second cache tier behind the
+ * in-memory cache of {@link CachedACSDataSource} so that census answers survive restarts.
+ *
+ * <p>The store is one append-only file. Every put appends a record holding the key, the value, the
+ * time it was written and a CRC32C of the record; the latest record of a key wins. An in-memory
+ * index maps each key to the position of its latest value, and values are read from a memory
+ * mapping of the file, so a hit is a hash lookup and a copy of a few bytes. Records are written
+ * through the same mapping, which is grown in chunks that double in size, so a put only remaps the
+ * file once the chunk is full; the unused end of the chunk is cut off when the store is closed or
+ * opened. Entries older than the time-to-live are ignored. When the file holds more than twice the
+ * bytes of its live entries, it is compacted: the live entries are copied to a new file that
+ * atomically replaces the old one.
+ *
+ * <p>When the store is opened the file is scanned to rebuild the index. A record cut short by a
+ * crash, or whose CRC does not match, ends the scan and the file is truncated before it.
+ */
+public class DiskCacheStore implements Closeable {
+  private static final int MAGIC = 0x42424b56; // "BBKV"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 8;
+  // record: length, writtenAt, key length, key, value length, value, crc
+  private static final int RECORD_OVERHEAD = Integer.BYTES * 4 + Long.BYTES;
+  private static final long MIN_COMPACTION_BYTES = 1 << 20;
+  private static final long MIN_MAPPING_BYTES = 1 << 16;
+
+  private final Path path;
+  private final long ttlMillis;
+  private final Clock clock;
+  private FileChannel channel;
+  private long end; // where the next record goes; the file may be mapped further
+  private long liveBytes;
+  private volatile State state;
+
+  /** The index and the mapping it points into; replaced as a whole when the mapping grows. */
+  private record State(MappedByteBuffer mapping, Map<String, Entry> index) {}
+
+  /** Where the value of a key is, and when it was written. */
+  private record Entry(int valueOffset, int valueLength, long writtenAt, int recordLength) {}
+
+  /**
+   * Opens a store, creating its file if needed.
+   *
+   * @param path The file of the store.
+   * @param ttl How long an entry is served after it is written.
+   * @throws IOException If the file cannot be opened.
+   */
+  public DiskCacheStore(Path path, Duration ttl) throws IOException {
+    this(path, ttl, Clock.systemUTC());
+  }
+
+  /**
+   * Opens a store, creating its file if needed, with a clock for entry ages.
+   *
+   * @param path The file of the store.
+   * @param ttl How long an entry is served after it is written.
+   * @param clock The clock the age of entries is measured with.
+   * @throws IOException If the file cannot be opened.
+   */
+  public DiskCacheStore(Path path, Duration ttl, Clock clock) throws IOException {
+    this.path = path;
+    this.ttlMillis = ttl.toMillis();
+    this.clock = clock;
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    open();
+  }
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param key The key.
+   * @return The value, or null if the key has no value or it is older than the time-to-live.
+   */
+  public String get(String key) {
+    while (true) {
+      State current = state;
+      Entry entry = current.index().get(key);
+      if (entry == null || clock.millis() - entry.writtenAt() > ttlMillis) {
+        return null;
+      }
+      if (entry.valueOffset() + entry.valueLength() <= current.mapping().limit()) {
+        byte[] value = new byte[entry.valueLength()];
+        current.mapping().get(entry.valueOffset(), value);
+        return new String(value, StandardCharsets.UTF_8);
+      }
+      // written after this state was read; its mapping is already published
+    }
+  }
+
+  /**
+   * Sets the value of a key, compacting the file if it has grown to more than twice its live
+   * entries.
+   *
+   * @param key The key.
+   * @param value The value.
+   * @throws IOException If the value cannot be written.
+   */
+  public synchronized void put(String key, String value) throws IOException {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+    int recordLength = RECORD_OVERHEAD + keyBytes.length + valueBytes.length;
+    long writtenAt = clock.millis();
+    ByteBuffer record = ByteBuffer.allocate(recordLength);
+    record.putInt(recordLength).putLong(writtenAt);
+    record.putInt(keyBytes.length).put(keyBytes);
+    record.putInt(valueBytes.length).put(valueBytes);
+    CRC32C crc = new CRC32C();
+    crc.update(record.array(), 0, recordLength - Integer.BYTES);
+    record.putInt((int) crc.getValue());
+    record.flip();
+
+    if (!channel.isOpen()) {
+      throw new ClosedChannelException();
+    }
+    int position = (int) end;
+    if (end + recordLength > Integer.MAX_VALUE) {
+      throw new IOException("The cache file %s is full.".formatted(path));
+    }
+    State current = state;
+    if (end + recordLength > current.mapping().capacity()) {
+      long capacity = Math.max(2L * current.mapping().capacity(), end + recordLength);
+      // the new mapping is published before the index points into it
+      current =
+          new State(
+              map(channel, Math.min(Integer.MAX_VALUE, Math.max(MIN_MAPPING_BYTES, capacity))),
+              current.index());
+      state = current;
+    }
+    current.mapping().put(position, record.array(), 0, recordLength);
+    end += recordLength;
+    Entry entry =
+        new Entry(
+            position + recordLength - Integer.BYTES - valueBytes.length,
+            valueBytes.length,
+            writtenAt,
+            recordLength);
+    Entry previous = current.index().put(key, entry);
+    liveBytes += recordLength - (previous == null ? 0 : previous.recordLength());
+    if (end > MIN_COMPACTION_BYTES && end > 2 * liveBytes) {
+      compact();
+    }
+  }
+
+  /**
+   * Rewrites the file with only the latest, unexpired value of every key.
+   *
+   * @throws IOException If the file cannot be rewritten.
+   */
+  public synchronized void compact() throws IOException {
+    Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    State current = state;
+    long now = clock.millis();
+    try (FileChannel out =
+        FileChannel.open(
+            tempPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip());
+      for (Entry entry : current.index().values()) {
+        if (now - entry.writtenAt() > ttlMillis) {
+          continue;
+        }
+        int recordStart =
+            entry.valueOffset() + entry.valueLength() + Integer.BYTES - entry.recordLength();
+        ByteBuffer record =
+            current.mapping().slice(recordStart, entry.recordLength()).asReadOnlyBuffer();
+        while (record.hasRemaining()) {
+          out.write(record);
+        }
+      }
+      out.force(true);
+      // the old file stays open, and in use, until the new one has replaced it
+      Files.move(
+          tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tempPath);
+      throw e;
+    }
+    FileChannel old = channel;
+    open();
+    old.close();
+  }
+
+  /**
+   * Gets the number of keys with a value, including expired values not yet compacted away.
+   *
+   * @return The number of keys.
+   */
+  public int size() {
+    return state.index().size();
+  }
+
+  /**
+   * Gets the size of the file.
+   *
+   * @return The size of the file in bytes.
+   * @throws IOException If the size cannot be read.
+   */
+  public synchronized long fileSize() throws IOException {
+    if (!channel.isOpen()) {
+      throw new ClosedChannelException();
+    }
+    return end;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel.isOpen()) {
+      channel.truncate(end);
+      channel.close();
+    }
+  }
+
+  /**
+   * Opens the file and rebuilds the index from it. The store only switches to the file once it is
+   * fully read, so a failure leaves the store as it was.
+   */
+  private void open() throws IOException {
+    FileChannel opened =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (opened.size() < HEADER_BYTES || !hasHeader(opened)) {
+        opened.truncate(0);
+        opened.write(
+            ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip(), 0);
+      }
+      MappedByteBuffer mapping = map(opened, opened.size());
+      Map<String, Entry> index = new ConcurrentHashMap<>();
+      long now = clock.millis();
+      int position = HEADER_BYTES;
+      long live = 0;
+      while (true) {
+        Entry entry = readRecord(mapping, position);
+        if (entry == null) {
+          break;
+        }
+        String key = readKey(mapping, position);
+        Entry previous = index.remove(key);
+        if (previous != null) {
+          live -= previous.recordLength();
+        }
+        if (now - entry.writtenAt() <= ttlMillis) {
+          index.put(key, entry);
+          live += entry.recordLength();
+        }
+        position += entry.recordLength();
+      }
+      if (position < opened.size()) {
+        // a torn or corrupt tail, or the unused end of a chunk: drop it so later records are
+        // appended after valid ones
+        opened.truncate(position);
+        mapping = map(opened, position);
+      }
+      channel = opened;
+      end = position;
+      liveBytes = live;
+      state = new State(mapping, index);
+    } catch (IOException | RuntimeException e) {
+      opened.close();
+      throw e;
+    }
+  }
+
+  private static boolean hasHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    channel.read(header, 0);
+    header.flip();
+    return header.getInt() == MAGIC && header.getInt() == FORMAT_VERSION;
+  }
+
+  /* Maps the first bytes of the file, growing the file if it is shorter */
+  private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+    return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  /** Reads the record at a position, or returns null if it is incomplete or corrupt. */
+  private static Entry readRecord(MappedByteBuffer mapping, int position) {
+    int remaining = mapping.limit() - position;
+    if (remaining < RECORD_OVERHEAD) {
+      return null;
+    }
+    int recordLength = mapping.getInt(position);
+    if (recordLength < RECORD_OVERHEAD || recordLength > remaining) {
+      return null;
+    }
+    CRC32C crc = new CRC32C();
+    crc.update(mapping.slice(position, recordLength - Integer.BYTES));
+    if ((int) crc.getValue() != mapping.getInt(position + recordLength - Integer.BYTES)) {
+      return null;
+    }
+    long writtenAt = mapping.getLong(position + Integer.BYTES);
+    int keyLength = mapping.getInt(position + Integer.BYTES + Long.BYTES);
+    if (keyLength < 0 || keyLength > recordLength - RECORD_OVERHEAD) {
+      return null;
+    }
+    int valueLengthAt = position + Integer.BYTES * 2 + Long.BYTES + keyLength;
+    int valueLength = mapping.getInt(valueLengthAt);
+    if (RECORD_OVERHEAD + keyLength + valueLength != recordLength) {
+      return null;
+    }
+    return new Entry(valueLengthAt + Integer.BYTES, valueLength, writtenAt, recordLength);
+  }
+
+  private static String readKey(MappedByteBuffer mapping, int position) {
+    int keyLength = mapping.getInt(position + Integer.BYTES + Long.BYTES);
+    byte[] key = new byte[keyLength];
+    mapping.get(position + Integer.BYTES * 2 + Long.BYTES, key);
+    return new String(key, StandardCharsets.UTF_8);
+  }
+}
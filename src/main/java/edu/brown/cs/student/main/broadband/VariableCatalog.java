@@ -0,0 +1,129 @@
+package edu.brown.cs.student.main.broadband;
+
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The names of the variables of an ACS dataset, as a sorted table for exact and prefix lookups.
+ *
+ * <p>A catalog is read from the census API's variable list, a JSON list of rows whose first row
+ * names the columns, one of which is "name". The list is read one value at a time and only the
+ * names are kept, so the labels and concepts that make up most of the document are never held in
+ * memory.
+ */
+public class VariableCatalog {
+  private static final String NAME_COLUMN = "name";
+
+  private final String[] names; // sorted, without duplicates
+
+  private VariableCatalog(String[] names) {
+    this.names = names;
+  }
+
+  /**
+   * Makes a catalog of the given variable names.
+   *
+   * @param names The variable names, in any order.
+   * @return The catalog.
+   */
+  public static VariableCatalog of(List<String> names) {
+    String[] sorted = names.toArray(String[]::new);
+    Arrays.sort(sorted);
+    int size = 0;
+    for (String name : sorted) {
+      if (size == 0 || !sorted[size - 1].equals(name)) {
+        sorted[size++] = name;
+      }
+    }
+    return new VariableCatalog(Arrays.copyOf(sorted, size));
+  }
+
+  /**
+   * Reads a catalog from a census variable list.
+   *
+   * @param reader The reader of the variable list.
+   * @return The catalog.
+   * @throws IOException If the list cannot be read, or has no "name" column.
+   */
+  public static VariableCatalog read(JsonReader reader) throws IOException {
+    try {
+      return of(readNames(reader));
+    } catch (JsonDataException e) {
+      throw new IOException("malformed variable list: " + e.getMessage(), e);
+    }
+  }
+
+  private static List<String> readNames(JsonReader reader) throws IOException {
+    List<String> names = new ArrayList<>();
+    reader.beginArray();
+    int column = -1;
+    if (reader.hasNext()) {
+      reader.beginArray();
+      for (int i = 0; reader.hasNext(); i++) {
+        if (reader.peek() != JsonReader.Token.STRING) {
+          reader.skipValue();
+        } else if (reader.nextString().equals(NAME_COLUMN)) {
+          column = i;
+        }
+      }
+      reader.endArray();
+      if (column < 0) {
+        throw new IOException("variable list has no " + NAME_COLUMN + " column");
+      }
+    }
+    while (reader.hasNext()) {
+      reader.beginArray();
+      for (int i = 0; reader.hasNext(); i++) {
+        if (i == column && reader.peek() == JsonReader.Token.STRING) {
+          names.add(reader.nextString());
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endArray();
+    }
+    reader.endArray();
+    return names;
+  }
+
+  /**
+   * Checks whether the catalog has a variable.
+   *
+   * @param name The variable name.
+   * @return Whether the variable is in the catalog.
+   */
+  public boolean contains(String name) {
+    return Arrays.binarySearch(names, name) >= 0;
+  }
+
+  /**
+   * Finds the variables whose names start with a prefix.
+   *
+   * @param prefix The prefix, e.g. "S2802_" for the variables of table S2802.
+   * @return The names of the variables, sorted.
+   */
+  public List<String> withPrefix(String prefix) {
+    int from = Arrays.binarySearch(names, prefix);
+    if (from < 0) {
+      from = -from - 1;
+    }
+    int to = from;
+    while (to < names.length && names[to].startsWith(prefix)) {
+      to++;
+    }
+    return List.of(Arrays.copyOfRange(names, from, to));
+  }
+
+  /**
+   * Gets the number of variables in the catalog.
+   *
+   * @return The number of variables.
+   */
+  public int size() {
+    return names.length;
+  }
+}
@@ -1,28 +1,58 @@
 package edu.brown.cs.student.main.csv;
 
-import static edu.brown.cs.student.main.csv.Parser.regexSplitCSVRow;
-
 import edu.brown.cs.student.main.csv.exceptions.CsvNotLoadedException;
+import edu.brown.cs.student.main.csv.exceptions.InValidColumnIndexException;
+import edu.brown.cs.student.main.csv.exceptions.PaginationException;
+import edu.brown.cs.student.main.csv.query.QueryPlan;
+import edu.brown.cs.student.main.csv.query.QueryPlanCache;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 /**
  * AccessCSV provides functionalities to load, view, and search through CSV files. It relies on a
- * Parser to parse the CSV file into a structured format that can be easily queried.
+ * Parser to parse the CSV file into a structured format that can be easily queried. Loaded files
+ * are kept in a dictionary-encoded {@link ColumnarParsedResult}.
+ *
+ * <p>Several files can be loaded at once, each under its own name. The loaded files are kept as
+ * immutable {@link Dataset}s in a map that is never modified: a load parses its file first, without
+ * holding any lock, and then publishes a copy of the map holding the new dataset through an atomic
+ * reference. Every view or search reads the map once and works on the dataset it found, so a load
+ * never blocks nor changes the rows of a request in flight. Methods without a dataset name work on
+ * the {@link #DEFAULT_DATASET}.
  */
 public class AccessCSV {
-  private Parser<List<String>> parser;
-  private ParsedResult<List<String>> parsedResult;
-  private Searcher<String> searcher;
+  /** The name of the dataset that methods without a dataset name work on. */
+  public static final String DEFAULT_DATASET = "default";
+
+  private static final int PLAN_CACHE_SIZE = 256;
+
+  private final AtomicReference<Map<String, Dataset>> datasets;
+  // every load gets a new version, so cached plans and cursors of older files are never reused
+  private final AtomicLong versions;
+  private final QueryPlanCache planCache;
   /** Constructs a new AccessCSV instance with no initial CSV file loaded. */
   public AccessCSV() {
-    parser = null;
+    datasets = new AtomicReference<>(Map.of());
+    versions = new AtomicLong();
+    planCache = new QueryPlanCache(PLAN_CACHE_SIZE);
   }
   /**
    * Loads a CSV file from the specified filePath. If the file contains a header row, this can be
@@ -34,83 +64,420 @@ public class AccessCSV {
    * @throws Exception for other parsing errors encountered during file loading.
    */
   public void LoadCSV(String filePath, boolean hasHeader) throws Exception {
+    LoadCSV(DEFAULT_DATASET, filePath, hasHeader, false);
+  }
+  /**
+   * Loads a CSV file from the specified filePath as the default dataset, optionally parsing it in
+   * parallel.
+   *
+   * @param filePath The path to the CSV file to be loaded.
+   * @param hasHeader Indicates whether the first row of the CSV file is a header row.
+   * @param parallel Indicates whether the file should be parsed in parallel.
+   * @throws FileNotFoundException if the file is not found under the designated data directory.
+   * @throws Exception for other parsing errors encountered during file loading.
+   */
+  public void LoadCSV(String filePath, boolean hasHeader, boolean parallel) throws Exception {
+    LoadCSV(DEFAULT_DATASET, filePath, hasHeader, parallel);
+  }
+  /**
+   * Loads a CSV file from the specified filePath under a dataset name, optionally parsing it in
+   * parallel. A parallel load memory-maps the file and tokenizes chunks of it on a fork-join pool
+   * (see {@link ParallelParser}), which pays off for large files on multi-core hosts.
+   *
+   * <p>After a file is parsed, a binary snapshot of it is written next to it (see {@link
+   * CsvSnapshot}). Later loads of the unchanged file read the snapshot instead of parsing again.
+   *
+   * <p>The dataset replaces any dataset loaded earlier under the same name once it is fully parsed.
+   * Requests that started before that keep reading the earlier one.
+   *
+   * @param dataset The name to load the file as.
+   * @param filePath The path to the CSV file to be loaded.
+   * @param hasHeader Indicates whether the first row of the CSV file is a header row.
+   * @param parallel Indicates whether the file should be parsed in parallel.
+   * @return The loaded dataset.
+   * @throws FileNotFoundException if the file is not found under the designated data directory.
+   * @throws Exception for other parsing errors encountered during file loading.
+   */
+  public Dataset LoadCSV(String dataset, String filePath, boolean hasHeader, boolean parallel)
+      throws Exception {
+    return LoadCSV(dataset, filePath, hasHeader, parallel, new LoadProgress());
+  }
+  /**
+   * Loads a CSV file under a dataset name, reporting the bytes read and rows parsed to progress as
+   * it goes. The dataset is published only once the whole file is parsed.
+   *
+   * @param dataset The name to load the file as.
+   * @param filePath The path to the CSV file to be loaded.
+   * @param hasHeader Indicates whether the first row of the CSV file is a header row.
+   * @param parallel Indicates whether the file should be parsed in parallel.
+   * @param progress The progress of the load, updated while the file is parsed.
+   * @return The loaded dataset.
+   * @throws FileNotFoundException if the file is not found under the designated data directory.
+   * @throws Exception for other parsing errors encountered during file loading.
+   */
+  public Dataset LoadCSV(
+      String dataset, String filePath, boolean hasHeader, boolean parallel, LoadProgress progress)
+      throws Exception {
+    Path path = checkLoadable(dataset, filePath);
+    long start = System.nanoTime();
+    long bytes = Files.size(path);
+    progress.start(bytes);
+    CsvSnapshot.Fingerprint fingerprint = CsvSnapshot.fingerprint(path, hasHeader);
+    ColumnarParsedResult columnar = CsvSnapshot.read(path, fingerprint);
+    if (columnar != null) {
+      progress.setBytes(fingerprint.size());
+      progress.setRows(columnar.getRowCount());
+    } else {
+      columnar = parse(path, hasHeader, parallel, progress);
+      try {
+        CsvSnapshot.write(path, fingerprint, columnar);
+      } catch (IOException e) {
+        // the snapshot only speeds up the next load; the file itself was loaded
+      }
+    }
+    Dataset loaded =
+        new Dataset(
+            dataset,
+            filePath,
+            columnar,
+            versions.incrementAndGet(),
+            bytes,
+            System.nanoTime() - start);
+    datasets.updateAndGet(
+        current -> {
+          Map<String, Dataset> next = new HashMap<>(current);
+          next.put(dataset, loaded);
+          return Map.copyOf(next);
+        });
+    progress.finish();
+    return loaded;
+  }
+
+  /**
+   * Checks that a file can be loaded under a dataset name, before any of it is read.
+   *
+   * @return The path of the file.
+   */
+  static Path checkLoadable(String dataset, String filePath) throws FileNotFoundException {
+    if (dataset == null || dataset.isBlank()) {
+      throw new IllegalArgumentException("Dataset name must not be blank.");
+    }
     if (!isUnderDataDirectory(filePath)) {
       throw new FileNotFoundException(
           "Illegal file path: %s. Provided file should be under data/./n".formatted(filePath));
     }
-    FileReader fileReader = new FileReader(filePath);
-    this.parser = new Parser<>(fileReader, new ListStringCreaterFromRow(), hasHeader);
-    this.parsedResult = parser.parse();
-    this.searcher = new Searcher<>(this.parsedResult);
+    Path path = Paths.get(filePath);
+    if (!Files.isRegularFile(path)) {
+      throw new FileNotFoundException(filePath + " (No such file or directory)");
+    }
+    return path;
+  }
+
+  private static ColumnarParsedResult parse(
+      Path path, boolean hasHeader, boolean parallel, LoadProgress progress) throws Exception {
+    if (parallel) {
+      ParsedResult<List<String>> rows =
+          new ParallelParser<>(path, new ListStringCreaterFromRow(), hasHeader).parse();
+      progress.setBytes(Files.size(path));
+      return ColumnarParsedResult.fromRows(
+          rows.getHeaderMap(), counting(rows.getData().iterator(), progress));
+    }
+    Reader reader =
+        new InputStreamReader(new ProgressInputStream(path, progress), StandardCharsets.UTF_8);
+    Parser<List<String>> parser = new Parser<>(reader, new ListStringCreaterFromRow(), hasHeader);
+    // rows are streamed straight into the column dictionaries
+    try (Stream<List<String>> rows = parser.stream()) {
+      return ColumnarParsedResult.fromRows(
+          parser.getHeaderMap(), counting(rows.iterator(), progress));
+    }
+  }
+
+  private static Iterator<List<String>> counting(
+      Iterator<List<String>> rows, LoadProgress progress) {
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return rows.hasNext();
+      }
+
+      @Override
+      public List<String> next() {
+        List<String> row = rows.next();
+        progress.addRow();
+        return row;
+      }
+    };
+  }
+
+  /** Reports the bytes read from a file to a LoadProgress. */
+  private static class ProgressInputStream extends FilterInputStream {
+    private final LoadProgress progress;
+
+    ProgressInputStream(Path path, LoadProgress progress) throws IOException {
+      super(Files.newInputStream(path));
+      this.progress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        progress.addBytes(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int n = super.read(buffer, offset, length);
+      if (n > 0) {
+        progress.addBytes(n);
+      }
+      return n;
+    }
+  }
+  /**
+   * Gets the names of the loaded datasets.
+   *
+   * @return The names of the loaded datasets, sorted.
+   */
+  public List<String> getDatasetNames() {
+    return datasets.get().keySet().stream().sorted().toList();
+  }
+  /**
+   * Gets a loaded dataset.
+   *
+   * @param dataset The name of the dataset.
+   * @return The dataset, or null if no file is loaded under this name.
+   */
+  public Dataset getDataset(String dataset) {
+    return dataset == null ? null : datasets.get().get(dataset);
   }
   /**
-   * Returns the contents of the currently loaded CSV file as a list of rows, where each row is a
-   * list of strings.
+   * Returns the contents of the default dataset as a list of rows, where each row is a list of
+   * strings.
    *
    * @return A list of rows with each row represented as a list of strings.
    * @throws CsvNotLoadedException if no CSV file has been loaded.
    */
   public List<List<String>> ViewCSV() throws CsvNotLoadedException {
-    if (parser == null) {
-      throw new CsvNotLoadedException("Cannot view csv. ");
+    return ViewCSV(DEFAULT_DATASET);
+  }
+  /**
+   * Returns the contents of a dataset as a list of rows, where each row is a list of strings.
+   *
+   * @param dataset The name of the dataset.
+   * @return A list of rows with each row represented as a list of strings.
+   * @throws CsvNotLoadedException if no CSV file has been loaded under this name.
+   */
+  public List<List<String>> ViewCSV(String dataset) throws CsvNotLoadedException {
+    return require(dataset, "Cannot view csv. ").data().getData();
+  }
+  /**
+   * Returns one page of the contents of the default dataset.
+   *
+   * @param page The rows and columns to return.
+   * @return The page, with a cursor to the next page if there are more rows.
+   * @throws Exception If no CSV file has been loaded, or the page request is invalid.
+   */
+  public CsvPage ViewCSV(PageRequest page) throws Exception {
+    return ViewCSV(DEFAULT_DATASET, page);
+  }
+  /**
+   * Returns one page of the contents of a dataset. Only the rows of the page are rebuilt, and only
+   * the requested columns of them.
+   *
+   * @param dataset The name of the dataset.
+   * @param page The rows and columns to return.
+   * @return The page, with a cursor to the next page if there are more rows.
+   * @throws Exception If no CSV file has been loaded under this name, or the page request is
+   *     invalid.
+   */
+  public CsvPage ViewCSV(String dataset, PageRequest page) throws Exception {
+    Dataset snapshot = require(dataset, "Cannot view csv. ");
+    ColumnarParsedResult data = snapshot.data();
+    int[] columns = resolveColumns(data, page.columns());
+    long start = page.cursor() == null ? page.offset() : decodeCursor(snapshot, page.cursor());
+    int from = (int) Math.min(start, data.getRowCount());
+    int to = (int) Math.min((long) from + page.limit(), data.getRowCount());
+    int[] rowIds = new int[to - from];
+    for (int i = 0; i < rowIds.length; i++) {
+      rowIds[i] = from + i;
     }
-    return parsedResult.getData();
+    String nextCursor = to < data.getRowCount() ? encodeCursor(snapshot, to) : null;
+    return new CsvPage(new RowsView(data, rowIds, columns), nextCursor);
   }
   /**
-   * Performs a query search using the specified query string and searcher.
+   * Performs a query search on the default dataset using the specified query string. Queries joined
+   * by "&&" must all match; a negated query removes its matches from the result. The query string
+   * is compiled into a {@link QueryPlan} once per loaded file and cached; matching rows are tracked
+   * as {@link RowSet} bitmaps and returned in row order, as a view that rebuilds each row when it
+   * is read.
    *
    * @param queryString The query string.
    * @throws Exception If an error occurs during the query search.
    */
   public List<List<String>> searchCSV(String queryString) throws Exception {
-    if (parser == null) {
-      throw new CsvNotLoadedException("Cannot search csv. ");
-    }
-    String[] queries = queryString.split("&&");
-    Map<Integer, List<String>> searchResults = new HashMap<>();
-    List<String> containQueries = new ArrayList<>();
-    List<String> excludeQueries = new ArrayList<>();
-
-    // put queries in categories
-    for (String query : queries) {
-      if (query.contains("^")) {
-        excludeQueries.add(query);
-      } else {
-        containQueries.add(query);
-      }
+    return searchCSV(DEFAULT_DATASET, queryString, PageRequest.ALL).rows();
+  }
+  /**
+   * Performs a query search on a dataset using the specified query string.
+   *
+   * @param dataset The name of the dataset.
+   * @param queryString The query string.
+   * @throws Exception If an error occurs during the query search.
+   */
+  public List<List<String>> searchCSV(String dataset, String queryString) throws Exception {
+    return searchCSV(dataset, queryString, PageRequest.ALL).rows();
+  }
+  /**
+   * Performs a query search on the default dataset and returns one page of the matching rows.
+   *
+   * @param queryString The query string.
+   * @param page The matching rows and the columns to return.
+   * @return The page, with a cursor to the next page if there may be more matching rows.
+   * @throws Exception If an error occurs during the query search, or the page request is invalid.
+   */
+  public CsvPage searchCSV(String queryString, PageRequest page) throws Exception {
+    return searchCSV(DEFAULT_DATASET, queryString, page);
+  }
+  /**
+   * Performs a query search on a dataset and returns one page of the matching rows. A search that
+   * has to scan the rows stops as soon as the page is full. Cursors resume after the last row of
+   * their page, so paging with cursors does not rescan the rows already returned.
+   *
+   * @param dataset The name of the dataset.
+   * @param queryString The query string.
+   * @param page The matching rows and the columns to return.
+   * @return The page, with a cursor to the next page if there may be more matching rows.
+   * @throws Exception If an error occurs during the query search, or the page request is invalid.
+   */
+  public CsvPage searchCSV(String dataset, String queryString, PageRequest page) throws Exception {
+    Dataset snapshot = require(dataset, "Cannot search csv. ");
+    ColumnarParsedResult data = snapshot.data();
+    QueryPlan plan = planCache.getPlan(queryString, snapshot.version(), data);
+    int[] columns = resolveColumns(data, page.columns());
+    long start = page.cursor() == null ? 0 : decodeCursor(snapshot, page.cursor());
+    if (start >= data.getRowCount()) {
+      return new CsvPage(List.of(), null);
+    }
+    // one row more than the page tells whether there is a next page
+    int wanted = (int) Math.min((long) page.limit() + 1, Integer.MAX_VALUE);
+    int[] rowIds = plan.select(data, (int) start, page.offset(), wanted);
+    String nextCursor = null;
+    if (rowIds.length > page.limit()) {
+      // an empty page (limit=0) resumes at the first matching row rather than after the last one
+      int next = page.limit() == 0 ? rowIds[0] : rowIds[page.limit() - 1] + 1;
+      rowIds = Arrays.copyOf(rowIds, page.limit());
+      nextCursor = encodeCursor(snapshot, next);
     }
+    // rows are rebuilt only when the caller reads them, in row order
+    return new CsvPage(new RowsView(data, rowIds, columns), nextCursor);
+  }
 
-    for (String query : containQueries) {
-      String[] qElements = regexSplitCSVRow.split(query);
-      String[] orConditions = qElements[1].split("\\|");
-      for (String condition : orConditions) {
-        Map<Integer, List<String>> result = searcher.search(condition, qElements[0]);
-        searcher.combineSearchResults(searchResults, result);
+  /** Reads the registry once; the caller works on the returned dataset only. */
+  private Dataset require(String dataset, String action) throws CsvNotLoadedException {
+    Dataset snapshot = dataset == null ? null : datasets.get().get(dataset);
+    if (snapshot == null) {
+      throw new CsvNotLoadedException(
+          DEFAULT_DATASET.equals(dataset)
+              ? action
+              : action + "Unknown dataset: %s. ".formatted(dataset));
+    }
+    return snapshot;
+  }
+
+  /**
+   * Resolves the columns of a projection.
+   *
+   * @return The column IDs, or null to keep every column.
+   */
+  private static int[] resolveColumns(ColumnarParsedResult data, List<String> columns)
+      throws Exception {
+    if (columns.isEmpty()) {
+      return null;
+    }
+    int[] colIDs = new int[columns.size()];
+    for (int i = 0; i < colIDs.length; i++) {
+      String column = columns.get(i);
+      try {
+        colIDs[i] = Integer.parseInt(column);
+      } catch (NumberFormatException e) {
+        colIDs[i] = data.getColIDFromColName(column);
+        continue;
+      }
+      if (colIDs[i] < 0 || colIDs[i] >= data.getColumnCount()) {
+        throw new InValidColumnIndexException(colIDs[i], data.getColumnCount() - 1);
       }
     }
+    return colIDs;
+  }
 
-    Map<Integer, List<String>> toBeExclude = new HashMap<>();
+  /**
+   * Cursors name the version of the dataset and the row to resume at, and are opaque to clients.
+   * Versions are unique across datasets, so a cursor of one dataset is rejected by every other.
+   */
+  private static String encodeCursor(Dataset dataset, int rowId) {
+    String cursor = dataset.version() + ":" + rowId;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+  }
 
-    for (String query : excludeQueries) {
-      String removeNegate = query.replace("^", "");
-      String[] qElements = regexSplitCSVRow.split(removeNegate);
-      String[] andConditions = qElements[1].split("&");
-      for (String condition : andConditions) {
-        Map<Integer, List<String>> result = searcher.search(condition, qElements[0]);
-        searcher.combineSearchResults(toBeExclude, result);
+  private static int decodeCursor(Dataset dataset, String cursor) throws PaginationException {
+    String[] parts;
+    try {
+      parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+    } catch (IllegalArgumentException e) {
+      throw new PaginationException("malformed cursor.");
+    }
+    try {
+      if (parts.length == 2 && Long.parseLong(parts[0]) != dataset.version()) {
+        throw new PaginationException(
+            "the cursor belongs to another dataset or a previously loaded file.");
+      }
+      int rowId = parts.length == 2 ? Integer.parseInt(parts[1]) : -1;
+      if (rowId < 0) {
+        throw new PaginationException("malformed cursor.");
       }
+      return rowId;
+    } catch (NumberFormatException e) {
+      throw new PaginationException("malformed cursor.");
     }
+  }
 
-    if (!excludeQueries.isEmpty()) {
-      for (Map.Entry<Integer, List<String>> rowId : searchResults.entrySet()) {
-        if (toBeExclude.containsKey(rowId)) {
-          searchResults.remove(rowId);
-        }
+  /**
+   * A read-only view of some rows of the data, rebuilt on access. A projected row holds null for a
+   * column that the row is too short to have.
+   */
+  private static class RowsView extends AbstractList<List<String>> implements RandomAccess {
+    private final ColumnarParsedResult data;
+    private final int[] rowIds;
+    private final int[] columns; // null for every column
+
+    RowsView(ColumnarParsedResult data, int[] rowIds, int[] columns) {
+      this.data = data;
+      this.rowIds = rowIds;
+      this.columns = columns;
+    }
+
+    @Override
+    public List<String> get(int index) {
+      int rowId = rowIds[index];
+      if (columns == null) {
+        return data.getData().get(rowId);
       }
+      String[] cells = new String[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        cells[i] = data.getCell(rowId, columns[i]);
+      }
+      return Arrays.asList(cells);
+    }
+
+    @Override
+    public int size() {
+      return rowIds.length;
     }
-    List<List<String>> searchResultList = new ArrayList<>();
-    searchResultList.addAll(searchResults.values());
-    return searchResultList;
   }
 
   private static boolean isUnderDataDirectory(String filePath) {
@@ -0,0 +1,174 @@
+package edu.brown.cs.student.main.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits CSV text into records by walking the input one character at a time.
+ *
+ * <p>The tokenizer is a small state machine, so every character is looked at exactly once. It
+ * understands quoted fields, doubled quotes ("") inside quoted fields, and line breaks embedded in
+ * quoted fields. Surrounding quotes are removed from quoted fields. Malformed input is handled
+ * leniently: a stray quote inside an unquoted field is kept as a literal character.
+ */
+public class CSVTokenizer {
+  private static final int BUFFER_SIZE = 8192;
+
+  private enum State {
+    FIELD_START,
+    UNQUOTED,
+    QUOTED,
+    QUOTE_IN_QUOTED
+  }
+
+  private final Reader reader;
+  private final char[] buffer;
+  private final StringBuilder field;
+  private int position;
+  private int limit;
+  private boolean skipLineFeed;
+  private int lastRecordWidth;
+
+  /**
+   * Constructs a CSVTokenizer that reads records from the given Reader. The Reader is buffered
+   * internally, so it does not need to be wrapped in a BufferedReader.
+   *
+   * @param reader The Reader to read CSV text from.
+   */
+  public CSVTokenizer(Reader reader) {
+    this.reader = reader;
+    this.buffer = new char[BUFFER_SIZE];
+    this.field = new StringBuilder();
+    this.position = 0;
+    this.limit = 0;
+    this.skipLineFeed = false;
+    this.lastRecordWidth = 8;
+  }
+
+  /**
+   * Splits a single line of CSV text into its fields.
+   *
+   * @param line The line to split.
+   * @return The fields of the line, with surrounding quotes removed.
+   */
+  public static List<String> splitRow(String line) {
+    try {
+      List<String> record = new CSVTokenizer(new StringReader(line)).nextRecord();
+      return record == null ? List.of("") : record;
+    } catch (IOException e) {
+      // a StringReader never throws
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the next record from the input.
+   *
+   * @return The fields of the next record, or null if the end of the input has been reached.
+   * @throws IOException If the underlying Reader fails.
+   */
+  public List<String> nextRecord() throws IOException {
+    if (!fill()) {
+      return null;
+    }
+    List<String> record = new ArrayList<>(lastRecordWidth);
+    State state = State.FIELD_START;
+    while (fill()) {
+      char c = buffer[position++];
+      switch (state) {
+        case FIELD_START:
+          if (c == '"') {
+            state = State.QUOTED;
+          } else if (c == ',') {
+            record.add("");
+          } else if (c == '\n' || c == '\r') {
+            skipLineFeed = c == '\r';
+            return endRecord(record);
+          } else {
+            field.append(c);
+            state = State.UNQUOTED;
+          }
+          break;
+        case UNQUOTED:
+          if (c == ',') {
+            endField(record);
+            state = State.FIELD_START;
+          } else if (c == '\n' || c == '\r') {
+            skipLineFeed = c == '\r';
+            return endRecord(record);
+          } else {
+            field.append(c);
+          }
+          break;
+        case QUOTED:
+          if (c == '"') {
+            state = State.QUOTE_IN_QUOTED;
+          } else {
+            field.append(c);
+          }
+          break;
+        case QUOTE_IN_QUOTED:
+          if (c == '"') {
+            // an escaped quote
+            field.append('"');
+            state = State.QUOTED;
+          } else if (c == ',') {
+            endField(record);
+            state = State.FIELD_START;
+          } else if (c == '\n' || c == '\r') {
+            skipLineFeed = c == '\r';
+            return endRecord(record);
+          } else {
+            // text after a closing quote is kept as-is
+            field.append(c);
+            state = State.UNQUOTED;
+          }
+          break;
+      }
+    }
+    return endRecord(record);
+  }
+
+  private void endField(List<String> record) {
+    record.add(field.toString());
+    field.setLength(0);
+  }
+
+  private List<String> endRecord(List<String> record) {
+    endField(record);
+    lastRecordWidth = record.size();
+    return record;
+  }
+
+  /**
+   * Makes sure there is at least one unread character in the buffer, skipping the line feed of a
+   * "\r\n" line ending.
+   *
+   * @return false if the end of the input has been reached.
+   * @throws IOException If the underlying Reader fails.
+   */
+  private boolean fill() throws IOException {
+    while (true) {
+      if (position >= limit) {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read == -1) {
+          return false;
+        }
+        position = 0;
+        limit = read;
+      }
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (buffer[position] == '\n') {
+          position++;
+          continue;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package edu.brown.cs.student.main.csv;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hash index over one column of a parsed CSV file, mapping each value to the IDs of the rows that
+ * hold it. Row IDs are stored in increasing order.
+ *
+ * <p>Indexes are built by {@link ParsedResult#getColumnIndex(int)} the first time a column is
+ * searched and kept alongside the ParsedResult, so later equality lookups cost O(matches) instead
+ * of a scan over every row.
+ */
+public class ColumnIndex {
+  private static final int[] NO_ROWS = new int[0];
+
+  private final Map<Object, int[]> rowIdsByValue;
+
+  private ColumnIndex(Map<Object, int[]> rowIdsByValue) {
+    this.rowIdsByValue = rowIdsByValue;
+  }
+
+  /**
+   * Builds an index over a column of row-major data. Rows that are too short to have the column are
+   * left out of the index.
+   *
+   * @param data The rows; each row must be a List.
+   * @param colID The column index.
+   * @return The index of the column.
+   */
+  static ColumnIndex fromRows(List<?> data, int colID) {
+    Map<Object, List<Integer>> rowIdLists = new HashMap<>();
+    for (int rowID = 0; rowID < data.size(); rowID++) {
+      List<?> row = (List<?>) data.get(rowID);
+      if (colID < row.size()) {
+        rowIdLists.computeIfAbsent(row.get(colID), value -> new ArrayList<>()).add(rowID);
+      }
+    }
+    Map<Object, int[]> rowIdsByValue = new HashMap<>();
+    for (Map.Entry<Object, List<Integer>> entry : rowIdLists.entrySet()) {
+      rowIdsByValue.put(
+          entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+    return new ColumnIndex(rowIdsByValue);
+  }
+
+  /**
+   * Builds an index over a dictionary-encoded column with a counting sort over the codes, without
+   * rebuilding any rows.
+   *
+   * @param columnar The dictionary-encoded data.
+   * @param colID The column index.
+   * @return The index of the column.
+   */
+  static ColumnIndex fromColumnar(ColumnarParsedResult columnar, int colID) {
+    int[] codes = columnar.getColumnCodes(colID);
+    int dictionarySize = columnar.getDictionarySize(colID);
+    int[] counts = new int[dictionarySize];
+    for (int code : codes) {
+      if (code != ColumnarParsedResult.MISSING) {
+        counts[code]++;
+      }
+    }
+    int[][] rowIds = new int[dictionarySize][];
+    for (int code = 0; code < dictionarySize; code++) {
+      rowIds[code] = new int[counts[code]];
+      counts[code] = 0;
+    }
+    for (int rowID = 0; rowID < codes.length; rowID++) {
+      int code = codes[rowID];
+      if (code != ColumnarParsedResult.MISSING) {
+        rowIds[code][counts[code]++] = rowID;
+      }
+    }
+    Map<Object, int[]> rowIdsByValue = new HashMap<>(dictionarySize * 2);
+    for (int code = 0; code < dictionarySize; code++) {
+      rowIdsByValue.put(columnar.getValue(colID, code), rowIds[code]);
+    }
+    return new ColumnIndex(rowIdsByValue);
+  }
+
+  /**
+   * Looks up the rows holding a value. The returned array is shared and must not be modified.
+   *
+   * @param value The value to look up.
+   * @return The IDs of the rows holding the value, in increasing order; empty if there are none.
+   */
+  public int[] lookup(Object value) {
+    return rowIdsByValue.getOrDefault(value, NO_ROWS);
+  }
+
+  /**
+   * Gets the number of distinct values in the column.
+   *
+   * @return The number of distinct values.
+   */
+  public int distinctValues() {
+    return rowIdsByValue.size();
+  }
+}
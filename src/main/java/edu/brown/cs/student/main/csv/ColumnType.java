@@ -0,0 +1,179 @@
+package edu.brown.cs.student.main.csv;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+
+/**
+ * The type of a CSV column, inferred when the file is loaded from the values the column holds.
+ *
+ * <p>A column is LONG if every non-blank cell is an integer, DOUBLE if every non-blank cell is a
+ * number, DATE if every non-blank cell is an ISO date (yyyy-MM-dd), and STRING otherwise. Numbers
+ * may use "," as a thousands separator, as in "74,489.00". Blank cells have no value and do not
+ * take part in inference or in range searches.
+ *
+ * <p>Every value of a typed column maps to a long sort key, and keys compare the way the values do.
+ * This lets all typed columns share one primitive storage and one sorted index.
+ */
+public enum ColumnType {
+  LONG,
+  DOUBLE,
+  DATE,
+  STRING;
+
+  private static final Pattern INTEGER = Pattern.compile("[-+]?(?:\\d{1,3}(?:,\\d{3})+|\\d+)");
+  private static final Pattern NUMBER =
+      Pattern.compile(
+          "[-+]?(?:(?:\\d{1,3}(?:,\\d{3})+|\\d+)(?:\\.\\d*)?|\\.\\d+)(?:[eE][-+]?\\d+)?");
+
+  /**
+   * Infers the type of a column.
+   *
+   * @param cells The cells of the column; their order does not matter.
+   * @return The narrowest type that holds every non-blank cell.
+   */
+  public static ColumnType infer(Iterable<String> cells) {
+    boolean isLong = true;
+    boolean isDouble = true;
+    boolean isDate = true;
+    boolean hasValue = false;
+    for (String cell : cells) {
+      if (isBlank(cell)) {
+        continue;
+      }
+      hasValue = true;
+      isLong = isLong && LONG.holds(cell);
+      isDouble = isDouble && DOUBLE.holds(cell);
+      isDate = isDate && DATE.holds(cell);
+      if (!isLong && !isDouble && !isDate) {
+        return STRING;
+      }
+    }
+    if (!hasValue) {
+      return STRING;
+    }
+    return isLong ? LONG : isDouble ? DOUBLE : isDate ? DATE : STRING;
+  }
+
+  /**
+   * Checks whether a cell is blank, i.e. has no value.
+   *
+   * @param cell The cell.
+   * @return True if the cell is empty or only holds whitespace.
+   */
+  public static boolean isBlank(String cell) {
+    return cell.isBlank();
+  }
+
+  /**
+   * Gets the sort key of a cell of this type.
+   *
+   * @param cell A non-blank cell.
+   * @return The sort key of the cell's value.
+   * @throws IllegalArgumentException If the cell is not a value of this type.
+   */
+  public long sortKey(String cell) {
+    String value = cell.strip();
+    switch (this) {
+      case LONG:
+        if (!INTEGER.matcher(value).matches()) {
+          throw new IllegalArgumentException("\"%s\" is not an integer".formatted(cell));
+        }
+        return Long.parseLong(value.replace(",", ""));
+      case DOUBLE:
+        return doubleKey(parseNumber(value).doubleValue());
+      case DATE:
+        try {
+          return LocalDate.parse(value).toEpochDay();
+        } catch (DateTimeParseException e) {
+          throw new IllegalArgumentException("\"%s\" is not a yyyy-MM-dd date".formatted(cell));
+        }
+      default:
+        throw new IllegalArgumentException("A STRING column has no sort keys");
+    }
+  }
+
+  /**
+   * Gets the smallest sort key whose value is above a lower bound.
+   *
+   * @param bound The lower bound, written as a value of this type.
+   * @param inclusive Whether the bound itself is above the bound.
+   * @return The smallest matching key; Long.MAX_VALUE or more if none matches.
+   * @throws IllegalArgumentException If the bound is not a value of this type.
+   */
+  public long lowerBound(String bound, boolean inclusive) {
+    if (this == LONG) {
+      BigDecimal value = parseNumber(bound.strip());
+      BigDecimal key =
+          inclusive
+              ? value.setScale(0, RoundingMode.CEILING)
+              : value.setScale(0, RoundingMode.FLOOR).add(BigDecimal.ONE);
+      return clamp(key);
+    }
+    long key = boundKey(bound);
+    return inclusive || key == Long.MAX_VALUE ? key : key + 1;
+  }
+
+  /**
+   * Gets the largest sort key whose value is below an upper bound.
+   *
+   * @param bound The upper bound, written as a value of this type.
+   * @param inclusive Whether the bound itself is below the bound.
+   * @return The largest matching key; Long.MIN_VALUE or less if none matches.
+   * @throws IllegalArgumentException If the bound is not a value of this type.
+   */
+  public long upperBound(String bound, boolean inclusive) {
+    if (this == LONG) {
+      BigDecimal value = parseNumber(bound.strip());
+      BigDecimal key =
+          inclusive
+              ? value.setScale(0, RoundingMode.FLOOR)
+              : value.setScale(0, RoundingMode.CEILING).subtract(BigDecimal.ONE);
+      return clamp(key);
+    }
+    long key = boundKey(bound);
+    return inclusive || key == Long.MIN_VALUE ? key : key - 1;
+  }
+
+  private boolean holds(String cell) {
+    try {
+      sortKey(cell);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private long boundKey(String bound) {
+    if (this == STRING) {
+      throw new IllegalArgumentException("The column is not numeric or a date");
+    }
+    // a DOUBLE bound may be an integer and vice versa, so parse numbers as numbers
+    return this == DOUBLE ? doubleKey(parseNumber(bound.strip()).doubleValue()) : sortKey(bound);
+  }
+
+  private static BigDecimal parseNumber(String value) {
+    if (!NUMBER.matcher(value).matches()) {
+      throw new IllegalArgumentException("\"%s\" is not a number".formatted(value));
+    }
+    return new BigDecimal(value.replace(",", ""));
+  }
+
+  private static long clamp(BigDecimal key) {
+    if (key.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+      return Long.MAX_VALUE;
+    }
+    if (key.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0) {
+      return Long.MIN_VALUE;
+    }
+    return key.longValueExact();
+  }
+
+  /** Maps a double to a long that orders the same way; -0.0 and 0.0 share a key. */
+  private static long doubleKey(double value) {
+    long bits = Double.doubleToLongBits(value + 0.0);
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+}
@@ -0,0 +1,355 @@
+package edu.brown.cs.student.main.csv;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A ParsedResult that stores a CSV file column by column, with dictionary encoding.
+ *
+ * <p>Every column keeps a dictionary of its distinct values and an int[] holding, for each row, the
+ * code of that row's value in the dictionary. Values that repeat across rows (counties, years,
+ * races...) are therefore stored once per column, and comparing a cell with a search key is an
+ * integer comparison. Rows are rebuilt from the codes only when {@link #getData()} is read.
+ *
+ * <p>Each column also has a {@link ColumnType}, inferred from its dictionary when the data is
+ * built. The values of a LONG, DOUBLE or DATE column are stored as a long[] of sort keys, one per
+ * dictionary code, which back range searches.
+ *
+ * <p>Rows may have different widths. A row that is shorter than the widest row gets the code {@link
+ * #MISSING} for the columns it does not have.
+ */
+public class ColumnarParsedResult extends ParsedResult<List<String>> {
+  /** Code of a cell that does not exist because its row is shorter than the widest row. */
+  public static final int MISSING = -1;
+
+  private final int rowCount;
+  private final int[][] codes; // codes[colID][rowID]
+  private final String[][] dictionaries; // dictionaries[colID][code]
+  private final List<Map<String, Integer>> codeLookups; // per column, value to code
+  private final ColumnType[] types;
+  private final long[][] sortKeys; // sortKeys[colID][code]; null for STRING columns
+  private final List<List<String>> rows;
+
+  private ColumnarParsedResult(
+      Map<String, Integer> headerMap,
+      int rowCount,
+      int[][] codes,
+      String[][] dictionaries,
+      List<Map<String, Integer>> codeLookups,
+      ColumnType[] types,
+      long[][] sortKeys) {
+    super(headerMap, List.of());
+    this.rowCount = rowCount;
+    this.codes = codes;
+    this.dictionaries = dictionaries;
+    this.codeLookups = codeLookups;
+    this.types = types;
+    this.sortKeys = sortKeys;
+    this.rows = new RowView();
+  }
+
+  /**
+   * Builds a ColumnarParsedResult from a sequence of rows, consuming them one at a time.
+   *
+   * @param headerMap A Map<String, Integer> representing the header map.
+   * @param rows The rows to store, in order.
+   * @return A ColumnarParsedResult holding the rows.
+   */
+  public static ColumnarParsedResult fromRows(
+      Map<String, Integer> headerMap, Iterator<List<String>> rows) {
+    Builder builder = new Builder(headerMap);
+    while (rows.hasNext()) {
+      builder.addRow(rows.next());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Rebuilds a ColumnarParsedResult from its stored columns, e.g. when reading a {@link
+   * CsvSnapshot}. The value-to-code lookups are recomputed from the dictionaries.
+   *
+   * @param headerMap A Map<String, Integer> representing the header map.
+   * @param rowCount The number of rows.
+   * @param codes The dictionary codes, indexed by column and then row.
+   * @param dictionaries The dictionaries, indexed by column and then code.
+   * @param types The type of every column.
+   * @param sortKeys The sort keys, indexed by column and then code; null for STRING columns.
+   * @return A ColumnarParsedResult holding the columns.
+   */
+  static ColumnarParsedResult of(
+      Map<String, Integer> headerMap,
+      int rowCount,
+      int[][] codes,
+      String[][] dictionaries,
+      ColumnType[] types,
+      long[][] sortKeys) {
+    List<Map<String, Integer>> codeLookups = new ArrayList<>(dictionaries.length);
+    for (String[] dictionary : dictionaries) {
+      Map<String, Integer> codeLookup = new HashMap<>(dictionary.length * 2);
+      for (int code = 0; code < dictionary.length; code++) {
+        codeLookup.put(dictionary[code], code);
+      }
+      codeLookups.add(codeLookup);
+    }
+    return new ColumnarParsedResult(
+        headerMap, rowCount, codes, dictionaries, List.copyOf(codeLookups), types, sortKeys);
+  }
+
+  /**
+   * Gets the parsed data as a read-only list. Each row is rebuilt from the column dictionaries when
+   * it is accessed.
+   *
+   * @return A List<List<String>> representing the parsed data.
+   */
+  @Override
+  public List<List<String>> getData() {
+    return this.rows;
+  }
+
+  /**
+   * Builds the hash index of a column from its dictionary codes.
+   *
+   * @param colID The column index.
+   * @return The index of the column.
+   */
+  @Override
+  protected ColumnIndex buildColumnIndex(int colID) {
+    return ColumnIndex.fromColumnar(this, colID);
+  }
+
+  /**
+   * Gets the type of a column, which was inferred from its dictionary when the data was built.
+   *
+   * @param colID The column index.
+   * @return The type of the column.
+   */
+  @Override
+  public ColumnType getColumnType(int colID) {
+    return this.types[colID];
+  }
+
+  /**
+   * Builds the sorted index of a column from its dictionary codes.
+   *
+   * @param colID The column index.
+   * @return The sorted index of the column.
+   */
+  @Override
+  protected SortedColumnIndex buildSortedIndex(int colID) {
+    return SortedColumnIndex.fromColumnar(this, colID);
+  }
+
+  /**
+   * Gets the sort key of a dictionary code of a typed column.
+   *
+   * @param colID The index of a LONG, DOUBLE or DATE column.
+   * @param code The code of a non-blank value.
+   * @return The sort key of the value.
+   */
+  public long getSortKey(int colID, int code) {
+    return this.sortKeys[colID][code];
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return The number of rows.
+   */
+  public int getRowCount() {
+    return this.rowCount;
+  }
+
+  /**
+   * Gets the number of columns, which is the width of the widest row.
+   *
+   * @return The number of columns.
+   */
+  @Override
+  public int getColumnCount() {
+    return this.codes.length;
+  }
+
+  /**
+   * Gets the dictionary codes of a column, one per row. The returned array is shared and must not
+   * be modified.
+   *
+   * @param colID The column index.
+   * @return The codes of the column, indexed by row ID.
+   */
+  public int[] getColumnCodes(int colID) {
+    return this.codes[colID];
+  }
+
+  /**
+   * Gets the number of distinct values in a column.
+   *
+   * @param colID The column index.
+   * @return The size of the column's dictionary.
+   */
+  public int getDictionarySize(int colID) {
+    return this.dictionaries[colID].length;
+  }
+
+  /**
+   * Looks up the dictionary code of a value in a column.
+   *
+   * @param colID The column index.
+   * @param value The value to look up.
+   * @return The code of the value, or {@link #MISSING} if no row has this value in the column.
+   */
+  public int lookupCode(int colID, Object value) {
+    Integer code = this.codeLookups.get(colID).get(value);
+    return code == null ? MISSING : code;
+  }
+
+  /**
+   * Gets the value that a dictionary code stands for.
+   *
+   * @param colID The column index.
+   * @param code The dictionary code.
+   * @return The value of the code.
+   */
+  public String getValue(int colID, int code) {
+    return this.dictionaries[colID][code];
+  }
+
+  /**
+   * Gets one cell without rebuilding its row.
+   *
+   * @param rowID The row index.
+   * @param colID The column index.
+   * @return The value of the cell, or null if the row does not have the column.
+   */
+  public String getCell(int rowID, int colID) {
+    int code = this.codes[colID][rowID];
+    return code == MISSING ? null : this.dictionaries[colID][code];
+  }
+
+  private List<String> rebuildRow(int rowID) {
+    int width = codes.length;
+    while (width > 0 && codes[width - 1][rowID] == MISSING) {
+      width--;
+    }
+    String[] row = new String[width];
+    for (int colID = 0; colID < width; colID++) {
+      row[colID] = dictionaries[colID][codes[colID][rowID]];
+    }
+    return List.of(row);
+  }
+
+  /** A read-only list view that rebuilds rows on access. */
+  private class RowView extends AbstractList<List<String>> implements RandomAccess {
+    @Override
+    public List<String> get(int index) {
+      if (index < 0 || index >= rowCount) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      return rebuildRow(index);
+    }
+
+    @Override
+    public int size() {
+      return rowCount;
+    }
+  }
+
+  /** Accumulates rows into growable column arrays and dictionaries. */
+  public static class Builder {
+    private final Map<String, Integer> headerMap;
+    private final List<int[]> codes;
+    private final List<List<String>> dictionaries;
+    private final List<Map<String, Integer>> codeLookups;
+    private int rowCount;
+    private int capacity;
+
+    /**
+     * Constructs a Builder for a file with the given header.
+     *
+     * @param headerMap A Map<String, Integer> representing the header map.
+     */
+    public Builder(Map<String, Integer> headerMap) {
+      this.headerMap = headerMap;
+      this.codes = new ArrayList<>();
+      this.dictionaries = new ArrayList<>();
+      this.codeLookups = new ArrayList<>();
+      this.rowCount = 0;
+      this.capacity = 16;
+    }
+
+    /**
+     * Appends a row.
+     *
+     * @param row The row to append.
+     */
+    public void addRow(List<String> row) {
+      if (rowCount == capacity) {
+        capacity *= 2;
+        for (int colID = 0; colID < codes.size(); colID++) {
+          codes.set(colID, Arrays.copyOf(codes.get(colID), capacity));
+        }
+      }
+      while (codes.size() < row.size()) {
+        // a new column: earlier rows do not have it
+        int[] column = new int[capacity];
+        Arrays.fill(column, 0, rowCount, MISSING);
+        codes.add(column);
+        dictionaries.add(new ArrayList<>());
+        codeLookups.add(new HashMap<>());
+      }
+      for (int colID = 0; colID < codes.size(); colID++) {
+        int code = MISSING;
+        if (colID < row.size()) {
+          String value = row.get(colID);
+          List<String> dictionary = dictionaries.get(colID);
+          code = codeLookups.get(colID).computeIfAbsent(value, v -> dictionary.size());
+          if (code == dictionary.size()) {
+            dictionary.add(value);
+          }
+        }
+        codes.get(colID)[rowCount] = code;
+      }
+      rowCount++;
+    }
+
+    /**
+     * Builds the ColumnarParsedResult. Column arrays are trimmed to the number of rows, and the
+     * type of every column is inferred from its dictionary, so each distinct value is parsed once.
+     *
+     * @return A ColumnarParsedResult holding every appended row.
+     */
+    public ColumnarParsedResult build() {
+      int[][] trimmedCodes = new int[codes.size()][];
+      String[][] dictionaryArrays = new String[codes.size()][];
+      ColumnType[] types = new ColumnType[codes.size()];
+      long[][] sortKeys = new long[codes.size()][];
+      for (int colID = 0; colID < codes.size(); colID++) {
+        trimmedCodes[colID] = Arrays.copyOf(codes.get(colID), rowCount);
+        dictionaryArrays[colID] = dictionaries.get(colID).toArray(new String[0]);
+        types[colID] = ColumnType.infer(dictionaries.get(colID));
+        if (types[colID] != ColumnType.STRING) {
+          sortKeys[colID] = new long[dictionaryArrays[colID].length];
+          for (int code = 0; code < sortKeys[colID].length; code++) {
+            String value = dictionaryArrays[colID][code];
+            if (!ColumnType.isBlank(value)) {
+              sortKeys[colID][code] = types[colID].sortKey(value);
+            }
+          }
+        }
+      }
+      return new ColumnarParsedResult(
+          headerMap,
+          rowCount,
+          trimmedCodes,
+          dictionaryArrays,
+          List.copyOf(codeLookups),
+          types,
+          sortKeys);
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package edu.brown.cs.student.main.csv;
+
+import java.util.List;
+
+/**
+ * One page of rows returned by {@link AccessCSV}.
+ *
+ * @param rows The rows of the page, possibly projected onto some columns. Rows are rebuilt when
+ *     they are read.
+ * @param nextCursor The cursor to pass to get the next page, or null if this is the last page.
+ */
+public record CsvPage(List<List<String>> rows, String nextCursor) {}
@@ -0,0 +1,266 @@
+package edu.brown.cs.student.main.csv;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshots of parsed CSV files, so that a file that has not changed since it was last
+ * loaded is not tokenized again.
+ *
+ * <p>A snapshot is written next to the CSV file, as {@code <file>.snap}, and holds the columns of a
+ * {@link ColumnarParsedResult}: header, dictionaries, dictionary codes, column types and sort keys.
+ * It is keyed by a fingerprint of the CSV file (absolute path, size, modification time, CRC32C of
+ * the content, and whether the file has a header); a snapshot whose fingerprint does not match the
+ * file is ignored. The snapshot ends with a CRC32C of everything before it, and its column types
+ * and codes are range-checked when it is read, so a damaged snapshot is ignored too rather than
+ * loaded. Snapshots are read back by memory-mapping them and bulk-copying the code and key arrays.
+ * Hash and sorted indexes are not stored: they are rebuilt from the codes on first use.
+ */
+public class CsvSnapshot {
+  private static final int MAGIC = 0x43535653; // "CSVS"
+  private static final int FORMAT_VERSION = 2;
+  private static final String SUFFIX = ".snap";
+
+  private CsvSnapshot() {}
+
+  /**
+   * Fingerprints a CSV file. Taking the fingerprint before the file is parsed guarantees that a
+   * snapshot never claims to be newer than the data it holds.
+   *
+   * @param csvPath The CSV file.
+   * @param hasHeader Whether the file is parsed with a header row.
+   * @return The fingerprint of the file.
+   * @throws IOException If the file cannot be read.
+   */
+  public static Fingerprint fingerprint(Path csvPath, boolean hasHeader) throws IOException {
+    Path path = csvPath.toAbsolutePath().normalize();
+    CRC32C crc = new CRC32C();
+    long size;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      size = channel.size();
+      for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+        long length = Math.min(Integer.MAX_VALUE, size - position);
+        crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+      }
+    }
+    return new Fingerprint(
+        path.toString(),
+        size,
+        Files.getLastModifiedTime(path).toMillis(),
+        crc.getValue(),
+        hasHeader);
+  }
+
+  /**
+   * Reads the snapshot of a CSV file.
+   *
+   * @param csvPath The CSV file.
+   * @param fingerprint The current fingerprint of the file.
+   * @return The parsed file, or null if there is no snapshot, or it is stale or unreadable.
+   */
+  public static ColumnarParsedResult read(Path csvPath, Fingerprint fingerprint) {
+    Path snapshotPath = snapshotPath(csvPath);
+    if (!Files.isRegularFile(snapshotPath)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE || channel.size() < Long.BYTES) {
+        return null;
+      }
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      int bodySize = mapped.capacity() - Long.BYTES;
+      CRC32C crc = new CRC32C();
+      crc.update(mapped.slice(0, bodySize));
+      if (crc.getValue() != mapped.getLong(bodySize)) {
+        return null;
+      }
+      ByteBuffer buffer = mapped.slice(0, bodySize);
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+      Fingerprint stored =
+          new Fingerprint(
+              readString(buffer),
+              buffer.getLong(),
+              buffer.getLong(),
+              buffer.getLong(),
+              buffer.get() != 0);
+      if (!stored.equals(fingerprint)) {
+        return null;
+      }
+
+      Map<String, Integer> headerMap = new HashMap<>();
+      int headerSize = buffer.getInt();
+      for (int i = 0; i < headerSize; i++) {
+        String name = readString(buffer);
+        headerMap.put(name, buffer.getInt());
+      }
+      int rowCount = buffer.getInt();
+      int columnCount = buffer.getInt();
+      for (int colID : headerMap.values()) {
+        if (colID < 0 || colID >= columnCount) {
+          return null;
+        }
+      }
+      int[][] codes = new int[columnCount][];
+      String[][] dictionaries = new String[columnCount][];
+      ColumnType[] types = new ColumnType[columnCount];
+      long[][] sortKeys = new long[columnCount][];
+      for (int colID = 0; colID < columnCount; colID++) {
+        int ordinal = buffer.get();
+        if (ordinal < 0 || ordinal >= ColumnType.values().length) {
+          return null;
+        }
+        types[colID] = ColumnType.values()[ordinal];
+        dictionaries[colID] = new String[buffer.getInt()];
+        for (int code = 0; code < dictionaries[colID].length; code++) {
+          dictionaries[colID][code] = readString(buffer);
+        }
+        codes[colID] = new int[rowCount];
+        IntBuffer codeBuffer = buffer.asIntBuffer();
+        codeBuffer.get(codes[colID]);
+        buffer.position(buffer.position() + rowCount * Integer.BYTES);
+        for (int code : codes[colID]) {
+          if (code < ColumnarParsedResult.MISSING || code >= dictionaries[colID].length) {
+            return null;
+          }
+        }
+        if (types[colID] != ColumnType.STRING) {
+          sortKeys[colID] = new long[dictionaries[colID].length];
+          LongBuffer keyBuffer = buffer.asLongBuffer();
+          keyBuffer.get(sortKeys[colID]);
+          buffer.position(buffer.position() + sortKeys[colID].length * Long.BYTES);
+        }
+      }
+      return ColumnarParsedResult.of(headerMap, rowCount, codes, dictionaries, types, sortKeys);
+    } catch (IOException
+        | BufferUnderflowException
+        | IndexOutOfBoundsException
+        | NegativeArraySizeException e) {
+      // a truncated snapshot is treated as missing
+      return null;
+    }
+  }
+
+  /**
+   * Writes the snapshot of a CSV file. The snapshot is written to a temporary file of its own first
+   * and then moved into place, so readers never see a partial snapshot, and concurrent writers of
+   * the same snapshot do not write over each other's data.
+   *
+   * @param csvPath The CSV file.
+   * @param fingerprint The fingerprint the file had when it was parsed.
+   * @param data The parsed file.
+   * @throws IOException If the snapshot cannot be written.
+   */
+  public static void write(Path csvPath, Fingerprint fingerprint, ColumnarParsedResult data)
+      throws IOException {
+    Path snapshotPath = snapshotPath(csvPath);
+    Path tempPath =
+        Files.createTempFile(
+            snapshotPath.toAbsolutePath().getParent(),
+            snapshotPath.getFileName().toString(),
+            ".tmp");
+    try {
+      writeBody(tempPath, fingerprint, data);
+      Files.move(
+          tempPath,
+          snapshotPath,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tempPath);
+      throw e;
+    }
+  }
+
+  private static void writeBody(Path tempPath, Fingerprint fingerprint, ColumnarParsedResult data)
+      throws IOException {
+    CRC32C crc = new CRC32C();
+    OutputStream file = new CheckedOutputStream(Files.newOutputStream(tempPath), crc);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeString(out, fingerprint.path());
+      out.writeLong(fingerprint.size());
+      out.writeLong(fingerprint.modified());
+      out.writeLong(fingerprint.crc());
+      out.writeByte(fingerprint.hasHeader() ? 1 : 0);
+
+      out.writeInt(data.getHeaderMap().size());
+      for (Map.Entry<String, Integer> entry : data.getHeaderMap().entrySet()) {
+        writeString(out, entry.getKey());
+        out.writeInt(entry.getValue());
+      }
+      out.writeInt(data.getRowCount());
+      out.writeInt(data.getColumnCount());
+      for (int colID = 0; colID < data.getColumnCount(); colID++) {
+        ColumnType type = data.getColumnType(colID);
+        out.writeByte(type.ordinal());
+        out.writeInt(data.getDictionarySize(colID));
+        for (int code = 0; code < data.getDictionarySize(colID); code++) {
+          writeString(out, data.getValue(colID, code));
+        }
+        for (int code : data.getColumnCodes(colID)) {
+          out.writeInt(code);
+        }
+        if (type != ColumnType.STRING) {
+          for (int code = 0; code < data.getDictionarySize(colID); code++) {
+            out.writeLong(data.getSortKey(colID, code));
+          }
+        }
+      }
+      out.flush();
+      out.writeLong(crc.getValue());
+    }
+  }
+
+  /**
+   * Gets the path of the snapshot of a CSV file.
+   *
+   * @param csvPath The CSV file.
+   * @return The path of its snapshot.
+   */
+  public static Path snapshotPath(Path csvPath) {
+    return csvPath.resolveSibling(csvPath.getFileName() + SUFFIX);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Identifies the content of a CSV file and how it was parsed.
+   *
+   * @param path The absolute path of the file.
+   * @param size The size of the file in bytes.
+   * @param modified The last modification time of the file, in milliseconds.
+   * @param crc The CRC32C of the file's content.
+   * @param hasHeader Whether the file is parsed with a header row.
+   */
+  public record Fingerprint(String path, long size, long modified, long crc, boolean hasHeader) {}
+}
@@ -0,0 +1,36 @@
+package edu.brown.cs.student.main.csv;
+
+/**
+ * A loaded CSV file, registered under a name in {@link AccessCSV}. Datasets are immutable: loading
+ * a file again publishes a new Dataset rather than changing the old one, so a request that has read
+ * a Dataset sees the same rows until it is done with them.
+ *
+ * @param name The name the dataset is registered under.
+ * @param path The path of the CSV file.
+ * @param data The parsed file.
+ * @param version Identifies this load among every load of the registry; cached query plans and page
+ *     cursors are keyed by it.
+ * @param bytes The size of the CSV file in bytes.
+ * @param loadNanos How long the file took to load, parsing or reading its snapshot.
+ */
+public record Dataset(
+    String name, String path, ColumnarParsedResult data, long version, long bytes, long loadNanos) {
+
+  /**
+   * Gets how fast the file was loaded.
+   *
+   * @return The rows loaded per second.
+   */
+  public double rowsPerSecond() {
+    return loadNanos == 0 ? 0 : data.getRowCount() * 1e9 / loadNanos;
+  }
+
+  /**
+   * Gets how fast the file was loaded.
+   *
+   * @return The bytes loaded per second.
+   */
+  public double bytesPerSecond() {
+    return loadNanos == 0 ? 0 : bytes * 1e9 / loadNanos;
+  }
+}
@@ -0,0 +1,98 @@
+package edu.brown.cs.student.main.csv;
+
+/**
+ * A load of a CSV file submitted to a {@link LoadJobManager}. The job moves from QUEUED to RUNNING
+ * and then to SUCCEEDED or FAILED; its {@link LoadProgress} is updated while the file is parsed.
+ */
+public class LoadJob {
+  /** The states of a load. */
+  public enum State {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+  }
+
+  private final String id;
+  private final String dataset;
+  private final String path;
+  private final LoadProgress progress;
+  private volatile State state;
+  private volatile String error;
+
+  LoadJob(String id, String dataset, String path) {
+    this.id = id;
+    this.dataset = dataset;
+    this.path = path;
+    this.progress = new LoadProgress();
+    this.state = State.QUEUED;
+  }
+
+  void running() {
+    this.state = State.RUNNING;
+  }
+
+  void succeeded() {
+    this.state = State.SUCCEEDED;
+  }
+
+  void failed(Throwable e) {
+    this.error = e.toString();
+    progress.finish();
+    this.state = State.FAILED;
+  }
+
+  /**
+   * Gets the ID of the job.
+   *
+   * @return The ID of the job.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Gets the name the file is loaded as.
+   *
+   * @return The dataset name.
+   */
+  public String getDataset() {
+    return dataset;
+  }
+
+  /**
+   * Gets the path of the file.
+   *
+   * @return The path of the CSV file.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Gets the state of the job.
+   *
+   * @return The state of the job.
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Gets the progress of the load.
+   *
+   * @return The progress of the load.
+   */
+  public LoadProgress getProgress() {
+    return progress;
+  }
+
+  /**
+   * Gets why the load failed.
+   *
+   * @return The error of a FAILED job, or null.
+   */
+  public String getError() {
+    return error;
+  }
+}
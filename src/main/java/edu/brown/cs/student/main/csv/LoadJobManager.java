@@ -0,0 +1,116 @@
+package edu.brown.cs.student.main.csv;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.FileNotFoundException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs CSV loads in the background, so the thread that asks for a load does not wait for the file
+ * to be parsed. Loads run on a fixed number of threads with a bounded queue; a load submitted while
+ * the queue is full is rejected rather than queued without limit.
+ *
+ * <p>Every load gets a {@link LoadJob} with an ID that its status can be looked up by. A load
+ * publishes its dataset to the {@link AccessCSV} only once the whole file is parsed. The most
+ * recent jobs are remembered, finished or not; older ones are forgotten.
+ */
+public class LoadJobManager {
+  private static final int DEFAULT_THREADS = 2;
+  private static final int DEFAULT_QUEUE_SIZE = 16;
+  private static final int REMEMBERED_JOBS = 1024;
+
+  private final AccessCSV accessCSV;
+  private final ThreadPoolExecutor executor;
+  private final Cache<String, LoadJob> jobs;
+  private final AtomicLong nextId;
+
+  /**
+   * Constructs a LoadJobManager that runs two loads at a time and queues up to 16 more.
+   *
+   * @param accessCSV The AccessCSV to load the files into.
+   */
+  public LoadJobManager(AccessCSV accessCSV) {
+    this(accessCSV, DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+  }
+
+  /**
+   * Constructs a LoadJobManager.
+   *
+   * @param accessCSV The AccessCSV to load the files into.
+   * @param threads The number of loads that run at a time.
+   * @param queueSize The number of loads that may wait for a thread.
+   */
+  public LoadJobManager(AccessCSV accessCSV, int threads, int queueSize) {
+    this.accessCSV = accessCSV;
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            new ThreadFactoryBuilder().setNameFormat("csv-load-%d").setDaemon(true).build());
+    this.jobs = CacheBuilder.newBuilder().maximumSize(REMEMBERED_JOBS).build();
+    this.nextId = new AtomicLong();
+  }
+
+  /**
+   * Submits a load. The dataset name and file path are checked before the load is queued, so a load
+   * of a missing file fails here instead of in the background.
+   *
+   * @param dataset The name to load the file as.
+   * @param filePath The path to the CSV file to be loaded.
+   * @param hasHeader Indicates whether the first row of the CSV file is a header row.
+   * @param parallel Indicates whether the file should be parsed in parallel.
+   * @return The job of the load.
+   * @throws FileNotFoundException if the file is not found under the designated data directory.
+   * @throws RejectedExecutionException if too many loads are waiting already.
+   */
+  public LoadJob submit(String dataset, String filePath, boolean hasHeader, boolean parallel)
+      throws FileNotFoundException {
+    AccessCSV.checkLoadable(dataset, filePath);
+    LoadJob job = new LoadJob("load-" + nextId.incrementAndGet(), dataset, filePath);
+    jobs.put(job.getId(), job);
+    try {
+      executor.execute(
+          () -> {
+            job.running();
+            try {
+              accessCSV.LoadCSV(dataset, filePath, hasHeader, parallel, job.getProgress());
+              job.succeeded();
+            } catch (Exception e) {
+              job.failed(e);
+            } catch (Throwable e) {
+              /* The job must not be left running, but an error is still the pool's to see */
+              job.failed(e);
+              throw e;
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      jobs.invalidate(job.getId());
+      throw new RejectedExecutionException(
+          "Too many loads are waiting. Try loading %s again later.".formatted(filePath), e);
+    }
+    return job;
+  }
+
+  /**
+   * Gets a job by its ID.
+   *
+   * @param id The ID of the job.
+   * @return The job, or null if there is no job with this ID or it has been forgotten.
+   */
+  public LoadJob getJob(String id) {
+    return id == null ? null : jobs.getIfPresent(id);
+  }
+
+  /** Stops accepting loads. Loads that are running or waiting still complete. */
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,133 @@
+package edu.brown.cs.student.main.csv;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes read and rows parsed by one load of a CSV file. The loading thread updates the
+ * counters as it goes and any other thread may read them; the derived throughput and ETA are
+ * computed from the counters when they are read.
+ *
+ * <p>A streaming load reads its bytes and rows in step. A parallel load tokenizes the whole file
+ * before it counts any row, so its bytes jump to the total once tokenizing is done. A load read
+ * from a {@link CsvSnapshot} reports the whole file at once.
+ */
+public class LoadProgress {
+  private final AtomicLong bytesRead;
+  private final AtomicLong rowsParsed;
+  private volatile long totalBytes;
+  private volatile long startNanos;
+  private volatile long endNanos;
+
+  /** Constructs a LoadProgress for a load that has not started. */
+  public LoadProgress() {
+    this.bytesRead = new AtomicLong();
+    this.rowsParsed = new AtomicLong();
+    this.totalBytes = -1;
+    this.startNanos = -1;
+    this.endNanos = -1;
+  }
+
+  void start(long totalBytes) {
+    this.totalBytes = totalBytes;
+    this.startNanos = System.nanoTime();
+  }
+
+  void addBytes(long bytes) {
+    bytesRead.addAndGet(bytes);
+  }
+
+  void setBytes(long bytes) {
+    bytesRead.set(bytes);
+  }
+
+  void setRows(long rows) {
+    rowsParsed.set(rows);
+  }
+
+  void addRow() {
+    rowsParsed.incrementAndGet();
+  }
+
+  void finish() {
+    this.endNanos = System.nanoTime();
+  }
+
+  /**
+   * Gets the number of bytes of the file read so far.
+   *
+   * @return The number of bytes read.
+   */
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  /**
+   * Gets the size of the file.
+   *
+   * @return The size of the file in bytes, or -1 if the load has not started.
+   */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Gets the number of rows parsed so far.
+   *
+   * @return The number of rows parsed.
+   */
+  public long getRowsParsed() {
+    return rowsParsed.get();
+  }
+
+  /**
+   * Gets the time spent on the load so far, or in total once it is done.
+   *
+   * @return The elapsed time in milliseconds; 0 if the load has not started.
+   */
+  public long getElapsedMillis() {
+    long start = startNanos;
+    if (start < 0) {
+      return 0;
+    }
+    long end = endNanos < 0 ? System.nanoTime() : endNanos;
+    return TimeUnit.NANOSECONDS.toMillis(end - start);
+  }
+
+  /**
+   * Gets the average number of bytes read per second.
+   *
+   * @return The throughput in bytes per second; 0 until some time has passed.
+   */
+  public double getBytesPerSecond() {
+    long elapsed = getElapsedMillis();
+    return elapsed == 0 ? 0 : getBytesRead() * 1000.0 / elapsed;
+  }
+
+  /**
+   * Gets the average number of rows parsed per second.
+   *
+   * @return The throughput in rows per second; 0 until some time has passed.
+   */
+  public double getRowsPerSecond() {
+    long elapsed = getElapsedMillis();
+    return elapsed == 0 ? 0 : getRowsParsed() * 1000.0 / elapsed;
+  }
+
+  /**
+   * Estimates the time left to read the rest of the file at the throughput so far.
+   *
+   * @return The estimated time left in milliseconds, 0 once the load is done, or -1 if it cannot be
+   *     estimated yet.
+   */
+  public long getEtaMillis() {
+    if (endNanos >= 0) {
+      return 0;
+    }
+    double bytesPerSecond = getBytesPerSecond();
+    if (totalBytes < 0 || bytesPerSecond == 0) {
+      return -1;
+    }
+    return (long) (Math.max(0, totalBytes - getBytesRead()) * 1000 / bytesPerSecond);
+  }
+}
@@ -0,0 +1,61 @@
+package edu.brown.cs.student.main.csv;
+
+import edu.brown.cs.student.main.csv.exceptions.PaginationException;
+import java.util.List;
+
+/**
+ * Which part of a result to return: a window of rows, and optionally a subset of the columns.
+ *
+ * <p>The window starts either after skipping offset rows or where the page that returned cursor
+ * ended, and holds at most limit rows.
+ *
+ * @param offset The number of rows to skip.
+ * @param limit The maximum number of rows to return.
+ * @param cursor The nextCursor of a previous page, or null.
+ * @param columns The names or indexes of the columns to return, in order; empty for every column.
+ */
+public record PageRequest(int offset, int limit, String cursor, List<String> columns) {
+  /** Every row and every column. */
+  public static final PageRequest ALL = new PageRequest(0, Integer.MAX_VALUE, null, List.of());
+
+  /**
+   * Builds a PageRequest from request parameters, any of which may be absent (null).
+   *
+   * @param offset The number of rows to skip; defaults to 0.
+   * @param limit The maximum number of rows to return; defaults to no limit.
+   * @param cursor The nextCursor of a previous page. It cannot be combined with an offset.
+   * @param columns A comma-separated list of column names or indexes; defaults to every column.
+   * @return The PageRequest.
+   * @throws PaginationException If a parameter is malformed.
+   */
+  public static PageRequest parse(String offset, String limit, String cursor, String columns)
+      throws PaginationException {
+    if (offset != null && cursor != null) {
+      throw new PaginationException("offset and cursor cannot be used together.");
+    }
+    List<String> columnList =
+        columns == null || columns.isEmpty() ? List.of() : CSVTokenizer.splitRow(columns);
+    return new PageRequest(
+        parseCount("offset", offset, 0),
+        parseCount("limit", limit, Integer.MAX_VALUE),
+        cursor,
+        columnList);
+  }
+
+  private static int parseCount(String name, String value, int defaultValue)
+      throws PaginationException {
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      int count = Integer.parseInt(value);
+      if (count >= 0) {
+        return count;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new PaginationException(
+        "%s should be a non-negative integer, got \"%s\".".formatted(name, value));
+  }
+}
@@ -0,0 +1,212 @@
+package edu.brown.cs.student.main.csv;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a CSV file in parallel by memory-mapping it and tokenizing chunks on a fork-join pool.
+ *
+ * <p>Parsing happens in three steps. First, fixed-size blocks of the file are scanned in parallel
+ * for quote characters and line breaks. Second, a quick sequential pass over the per-block
+ * summaries tracks whether each block starts inside a quoted field, and moves every chunk start to
+ * the first line break that is outside quotes. Third, each chunk is decoded and tokenized with a
+ * {@link CSVTokenizer} in parallel, and the rows are stitched back together in file order.
+ *
+ * <p>Chunk boundaries assume that quotes in the file are balanced. A stray quote inside an unquoted
+ * field may make a chunk start in the middle of a record.
+ *
+ * @param <T> The type of objects to be created from each row of the CSV file.
+ */
+public class ParallelParser<T> {
+  /** Default number of bytes per chunk. */
+  public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+  private final Path path;
+  private final CreatorFromRow<T> creater;
+  private final boolean hasHeader;
+  private final int chunkSize;
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs a ParallelParser that uses the default chunk size and the common fork-join pool.
+   *
+   * @param path The path of the CSV file.
+   * @param creater The CreatorFromRow for creating objects of type T.
+   * @param hasHeader A boolean flag indicating whether the CSV file has a header.
+   */
+  public ParallelParser(Path path, CreatorFromRow<T> creater, boolean hasHeader) {
+    this(path, creater, hasHeader, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a ParallelParser with an explicit chunk size and pool.
+   *
+   * @param path The path of the CSV file.
+   * @param creater The CreatorFromRow for creating objects of type T.
+   * @param hasHeader A boolean flag indicating whether the CSV file has a header.
+   * @param chunkSize The target number of bytes per chunk.
+   * @param pool The fork-join pool the chunks are tokenized on.
+   */
+  public ParallelParser(
+      Path path, CreatorFromRow<T> creater, boolean hasHeader, int chunkSize, ForkJoinPool pool) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+    }
+    this.path = path;
+    this.creater = creater;
+    this.hasHeader = hasHeader;
+    this.chunkSize = chunkSize;
+    this.pool = pool;
+  }
+
+  /**
+   * Parses the CSV file and returns a ParsedResult containing the header map and parsed data, with
+   * rows in the same order as in the file.
+   *
+   * @return A ParsedResult containing the header map and parsed data.
+   * @throws Exception If there is an error during the parsing process.
+   */
+  public ParsedResult<T> parse() throws Exception {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      int blockCount = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+
+      // step 1: summarize every block in parallel
+      List<ForkJoinTask<BlockSummary>> scans = new ArrayList<>(blockCount);
+      for (int block = 0; block < blockCount; block++) {
+        long start = (long) block * chunkSize;
+        long end = Math.min(size, start + chunkSize);
+        scans.add(pool.submit(() -> summarize(channel, start, end)));
+      }
+
+      // step 2: move each chunk start past the first line break outside quotes
+      List<Long> chunkStarts = new ArrayList<>(blockCount + 1);
+      chunkStarts.add(0L);
+      boolean insideQuotes = false;
+      for (int block = 0; block < blockCount; block++) {
+        BlockSummary summary = join(scans.get(block));
+        if (block > 0) {
+          long lineBreak = insideQuotes ? summary.firstOddNewline() : summary.firstEvenNewline();
+          if (lineBreak >= 0) {
+            chunkStarts.add(lineBreak + 1);
+          }
+        }
+        insideQuotes ^= summary.oddQuotes();
+      }
+      chunkStarts.add(size);
+
+      // step 3: tokenize the chunks in parallel
+      List<ForkJoinTask<List<List<String>>>> tokenizers = new ArrayList<>(chunkStarts.size());
+      for (int chunk = 0; chunk + 1 < chunkStarts.size(); chunk++) {
+        long start = chunkStarts.get(chunk);
+        long end = chunkStarts.get(chunk + 1);
+        tokenizers.add(pool.submit(() -> tokenize(channel, start, end)));
+      }
+
+      List<List<List<String>>> chunks = new ArrayList<>(tokenizers.size());
+      int rowCount = 0;
+      for (ForkJoinTask<List<List<String>>> tokenizer : tokenizers) {
+        List<List<String>> rows = join(tokenizer);
+        chunks.add(rows);
+        rowCount += rows.size();
+      }
+
+      Map<String, Integer> headerMap = new HashMap<>();
+      List<T> completeCSV = new ArrayList<>(rowCount);
+      boolean headerPending = hasHeader;
+      for (List<List<String>> rows : chunks) {
+        for (List<String> row : rows) {
+          if (headerPending) {
+            for (int colID = 0; colID < row.size(); colID++) {
+              headerMap.put(row.get(colID), colID);
+            }
+            headerPending = false;
+          } else {
+            completeCSV.add(creater.create(row));
+          }
+        }
+      }
+      return new ParsedResult<>(headerMap, completeCSV);
+    }
+  }
+
+  private static BlockSummary summarize(FileChannel channel, long start, long end)
+      throws IOException {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    boolean odd = false;
+    long firstEvenNewline = -1;
+    long firstOddNewline = -1;
+    int length = buffer.limit();
+    for (int i = 0; i < length; i++) {
+      byte b = buffer.get(i);
+      if (b == '"') {
+        odd = !odd;
+      } else if (b == '\n') {
+        if (odd && firstOddNewline < 0) {
+          firstOddNewline = start + i;
+        } else if (!odd && firstEvenNewline < 0) {
+          firstEvenNewline = start + i;
+        }
+      }
+    }
+    return new BlockSummary(odd, firstEvenNewline, firstOddNewline);
+  }
+
+  private static List<List<String>> tokenize(FileChannel channel, long start, long end)
+      throws IOException {
+    List<List<String>> rows = new ArrayList<>();
+    if (end <= start) {
+      return rows;
+    }
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    CharBuffer chars = StandardCharsets.UTF_8.decode(buffer);
+    CSVTokenizer tokenizer =
+        new CSVTokenizer(
+            new CharArrayReader(chars.array(), chars.arrayOffset(), chars.remaining()));
+    List<String> row;
+    while ((row = tokenizer.nextRecord()) != null) {
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /** Joins a task, rethrowing the checked exception it failed with, if any. */
+  private static <R> R join(ForkJoinTask<R> task) throws Exception {
+    try {
+      return task.join();
+    } catch (RuntimeException e) {
+      // fork-join wraps checked exceptions, possibly more than once
+      Throwable cause = e;
+      while (cause instanceof RuntimeException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof Exception && !(cause instanceof RuntimeException)) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Quote parity and line break positions of one block.
+   *
+   * @param oddQuotes Whether the block contains an odd number of quote characters.
+   * @param firstEvenNewline File offset of the first line break preceded by an even number of
+   *     quotes within the block, or -1.
+   * @param firstOddNewline File offset of the first line break preceded by an odd number of quotes
+   *     within the block, or -1.
+   */
+  private record BlockSummary(boolean oddQuotes, long firstEvenNewline, long firstOddNewline) {}
+}
@@ -1,10 +1,12 @@
 package edu.brown.cs.student.main.csv;
 
 import edu.brown.cs.student.main.csv.exceptions.HeaderFailureException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents the result of parsing a CSV file, containing a header map and parsed data.
@@ -17,6 +19,9 @@ import java.util.NoSuchElementException;
 public class ParsedResult<T> implements Iterable<T> {
   private Map<String, Integer> headerMap; // map column name to colID
   private List<T> data;
+  private final Map<Integer, ColumnIndex> columnIndexes; // built on first use
+  private final Map<Integer, ColumnType> columnTypes; // inferred on first use
+  private final Map<Integer, SortedColumnIndex> sortedIndexes; // built on first use
 
   /**
    * Constructs a ParsedResult object with the specified header map and parsed data.
@@ -27,6 +32,9 @@ public class ParsedResult<T> implements Iterable<T> {
   public ParsedResult(Map<String, Integer> headerMap, List<T> data) {
     this.headerMap = headerMap;
     this.data = data;
+    this.columnIndexes = new ConcurrentHashMap<>();
+    this.columnTypes = new ConcurrentHashMap<>();
+    this.sortedIndexes = new ConcurrentHashMap<>();
   }
 
   /**
@@ -37,10 +45,23 @@ public class ParsedResult<T> implements Iterable<T> {
    * @throws HeaderFailureException If the header does not exist or the column name is not found.
    */
   public int getColIDFromColName(String colName) throws HeaderFailureException {
-    if (this.headerMap.isEmpty()) {
+    return getColIDFromColName(this.headerMap, colName);
+  }
+
+  /**
+   * Gets the column ID corresponding to the given column name in a header map.
+   *
+   * @param headerMap The header map to look the column name up in.
+   * @param colName The column name for which to retrieve the column ID.
+   * @return The column ID corresponding to the given column name.
+   * @throws HeaderFailureException If the header does not exist or the column name is not found.
+   */
+  static int getColIDFromColName(Map<String, Integer> headerMap, String colName)
+      throws HeaderFailureException {
+    if (headerMap.isEmpty()) {
       throw new HeaderFailureException("Header does not exist. Please index using column index");
     }
-    if (!this.headerMap.containsKey(colName)) {
+    if (!headerMap.containsKey(colName)) {
       throw new HeaderFailureException(String.format("Column \"%s\" does not exist.", colName));
     }
     return headerMap.get(colName);
@@ -62,6 +83,85 @@ public class ParsedResult<T> implements Iterable<T> {
     return this.headerMap;
   }
 
+  /**
+   * Gets the number of columns, taken from the width of the first row. Rows must be Lists.
+   *
+   * @return The number of columns; 0 if there are no rows.
+   */
+  public int getColumnCount() {
+    return this.data.isEmpty() ? 0 : ((List<?>) this.data.get(0)).size();
+  }
+
+  /**
+   * Gets the hash index of a column, building it on first use. Indexes are kept for the lifetime of
+   * this ParsedResult, so repeated searches of a column do not rescan the data. Rows must be Lists.
+   *
+   * @param colID The column index.
+   * @return The index of the column.
+   */
+  public ColumnIndex getColumnIndex(int colID) {
+    return columnIndexes.computeIfAbsent(colID, this::buildColumnIndex);
+  }
+
+  /**
+   * Builds the hash index of a column.
+   *
+   * @param colID The column index.
+   * @return The index of the column.
+   */
+  protected ColumnIndex buildColumnIndex(int colID) {
+    return ColumnIndex.fromRows(this.data, colID);
+  }
+
+  /**
+   * Gets the type of a column, inferring it from the column's cells on first use. Rows must be
+   * Lists.
+   *
+   * @param colID The column index.
+   * @return The type of the column.
+   */
+  public ColumnType getColumnType(int colID) {
+    return columnTypes.computeIfAbsent(colID, this::inferColumnType);
+  }
+
+  /**
+   * Infers the type of a column.
+   *
+   * @param colID The column index.
+   * @return The type of the column.
+   */
+  protected ColumnType inferColumnType(int colID) {
+    List<String> cells = new ArrayList<>();
+    for (T row : this.data) {
+      List<?> cellsOfRow = (List<?>) row;
+      if (colID < cellsOfRow.size()) {
+        cells.add(String.valueOf(cellsOfRow.get(colID)));
+      }
+    }
+    return ColumnType.infer(cells);
+  }
+
+  /**
+   * Gets the sorted index of a column, building it on first use. Like hash indexes, sorted indexes
+   * are kept for the lifetime of this ParsedResult. Rows must be Lists.
+   *
+   * @param colID The column index.
+   * @return The sorted index of the column; empty if the column is a STRING column.
+   */
+  public SortedColumnIndex getSortedIndex(int colID) {
+    return sortedIndexes.computeIfAbsent(colID, this::buildSortedIndex);
+  }
+
+  /**
+   * Builds the sorted index of a column.
+   *
+   * @param colID The column index.
+   * @return The sorted index of the column.
+   */
+  protected SortedColumnIndex buildSortedIndex(int colID) {
+    return SortedColumnIndex.fromRows(this.data, colID, getColumnType(colID));
+  }
+
   @Override
   public Iterator<T> iterator() {
     return new ParsedResultIterator();
@@ -72,7 +172,7 @@ public class ParsedResult<T> implements Iterable<T> {
     private Iterator<T> iterator;
 
     public ParsedResultIterator() {
-      iterator = data.iterator();
+      iterator = getData().iterator();
       nextRow = iterator.next();
     }
 
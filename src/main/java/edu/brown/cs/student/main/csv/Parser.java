@@ -1,12 +1,19 @@
 package edu.brown.cs.student.main.csv;
 
-import java.io.BufferedReader;
+import edu.brown.cs.student.main.csv.exceptions.StreamParseException;
+import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Parses a CSV file using a provided CreatorFromRow to generate objects of type T for each row.
@@ -21,9 +28,7 @@ public class Parser<T> {
   private final Reader reader;
   private final CreatorFromRow<T> creater;
   private final boolean hasHeader;
-
-  static final Pattern regexSplitCSVRow =
-      Pattern.compile(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*(?![^\\\"]*\\\"))");
+  private Map<String, Integer> headerMap;
 
   /**
    * Constructs a Parser with the specified Reader, CreatorFromRow, and a flag indicating whether
@@ -37,40 +42,126 @@ public class Parser<T> {
     this.reader = reader;
     this.creater = creater;
     this.hasHeader = hasHeader;
+    this.headerMap = new HashMap<>();
   }
   /**
    * Parses the CSV file and returns a ParsedResult containing the header map and parsed data.
    *
    * <p>If the CSV file has a header, it reads the header line, creates a header map, and uses it to
    * identify the columns. It then reads and processes the data, creating objects of type T using
-   * the specified CreatorFromRow.
+   * the specified CreatorFromRow. Rows are split by a {@link CSVTokenizer}, so quoted fields may
+   * contain commas, escaped quotes and line breaks.
    *
    * @return A ParsedResult containing the header map and parsed data.
    * @throws Exception If there is an error during the parsing process.
    */
   public ParsedResult<T> parse() throws Exception {
 
-    try (BufferedReader bufferedReader = new BufferedReader(this.reader)) {
+    try (Reader csvReader = this.reader) {
+      CSVTokenizer tokenizer = new CSVTokenizer(csvReader);
       List<T> completeCSV = new ArrayList<T>();
-      Map<String, Integer> headerMap = new HashMap<>();
-      if (hasHeader) {
-        String headerLine = bufferedReader.readLine();
-        String[] header = regexSplitCSVRow.split(headerLine);
-        int colID = 0;
-        for (String colName : header) {
-          headerMap.put(colName, colID);
-          colID++;
-        }
-      }
+      readHeader(tokenizer);
 
       // Read and process the data
-      String dataLine;
-      while ((dataLine = bufferedReader.readLine()) != null) {
-        List<String> row = List.of(regexSplitCSVRow.split(dataLine));
+      List<String> row;
+      while ((row = tokenizer.nextRecord()) != null) {
         completeCSV.add(creater.create(row));
       }
 
       return new ParsedResult<>(headerMap, completeCSV);
     }
   }
+
+  /**
+   * Returns a lazily evaluated stream over the rows of the CSV file. Rows are read from the Reader
+   * only as the stream is consumed, so memory use does not grow with the size of the file.
+   *
+   * <p>The header row, if any, is read before this method returns and is available through {@link
+   * #getHeaderMap()}. The stream should be closed after use, which closes the Reader. Errors while
+   * reading or creating rows are thrown as {@link UncheckedIOException} or {@link
+   * StreamParseException}.
+   *
+   * @return A sequential, ordered stream of objects of type T.
+   * @throws IOException If the header row cannot be read.
+   */
+  public Stream<T> stream() throws IOException {
+    Iterator<T> rows = iterator();
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(
+            () -> {
+              try {
+                reader.close();
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  /**
+   * Returns an iterator that reads one row of the CSV file per call to next(). The header row, if
+   * any, is read before this method returns and is available through {@link #getHeaderMap()}.
+   *
+   * @return An iterator over objects of type T.
+   * @throws IOException If the header row cannot be read.
+   */
+  public Iterator<T> iterator() throws IOException {
+    CSVTokenizer tokenizer = new CSVTokenizer(this.reader);
+    readHeader(tokenizer);
+    return new Iterator<>() {
+      private List<String> nextRow = readRow();
+
+      @Override
+      public boolean hasNext() {
+        return nextRow != null;
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        List<String> row = nextRow;
+        nextRow = readRow();
+        try {
+          return creater.create(row);
+        } catch (FactoryFailureException e) {
+          throw new StreamParseException(e);
+        }
+      }
+
+      private List<String> readRow() {
+        try {
+          return tokenizer.nextRecord();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Gets the header map read by the last call to parse(), stream() or iterator().
+   *
+   * @return A Map<String, Integer> mapping column names to column indices; empty if the CSV file
+   *     has no header.
+   */
+  public Map<String, Integer> getHeaderMap() {
+    return this.headerMap;
+  }
+
+  private void readHeader(CSVTokenizer tokenizer) throws IOException {
+    this.headerMap = new HashMap<>();
+    if (hasHeader) {
+      List<String> header = tokenizer.nextRecord();
+      if (header != null) {
+        int colID = 0;
+        for (String colName : header) {
+          headerMap.put(colName, colID);
+          colID++;
+        }
+      }
+    }
+  }
 }
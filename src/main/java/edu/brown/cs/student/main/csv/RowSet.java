@@ -0,0 +1,502 @@
+package edu.brown.cs.student.main.csv;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable, compressed set of row IDs with fast union, intersection and difference.
+ *
+ * <p>The layout follows roaring bitmaps. Row IDs are grouped by their upper 16 bits, and each group
+ * is stored in a container that holds the lower 16 bits. A sparse container (at most {@value
+ * #ARRAY_LIMIT} rows) is a sorted char[]; a dense container is a 65536-bit bitmap. Set operations
+ * work container by container, so their cost follows the size of the sets rather than the number of
+ * rows in the file. Row IDs are always visited in increasing order.
+ */
+public final class RowSet {
+  private static final int ARRAY_LIMIT = 4096;
+  private static final int BITMAP_WORDS = 1024; // 65536 bits
+  private static final RowSet EMPTY = new RowSet(new char[0], new Container[0], 0);
+
+  private final char[] keys; // upper 16 bits of the row IDs in each container, increasing
+  private final Container[] containers;
+  private final int size; // number of containers in use
+
+  private RowSet(char[] keys, Container[] containers, int size) {
+    this.keys = keys;
+    this.containers = containers;
+    this.size = size;
+  }
+
+  /**
+   * Returns the empty set.
+   *
+   * @return A RowSet without rows.
+   */
+  public static RowSet empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates a set from row IDs given in increasing order.
+   *
+   * @param sortedRowIds Row IDs in strictly increasing order.
+   * @return A RowSet holding the row IDs.
+   */
+  public static RowSet of(int... sortedRowIds) {
+    Builder builder = new Builder();
+    for (int rowId : sortedRowIds) {
+      builder.add(rowId);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates the set of all row IDs in [from, to).
+   *
+   * @param from The first row ID, inclusive.
+   * @param to The last row ID, exclusive.
+   * @return A RowSet holding the range.
+   */
+  public static RowSet range(int from, int to) {
+    Builder builder = new Builder();
+    for (int rowId = from; rowId < to; rowId++) {
+      builder.add(rowId);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Gets the number of rows in the set.
+   *
+   * @return The cardinality of the set.
+   */
+  public int cardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < size; i++) {
+      cardinality += containers[i].cardinality;
+    }
+    return cardinality;
+  }
+
+  /**
+   * Checks whether the set is empty.
+   *
+   * @return true if the set holds no rows.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Checks whether the set holds a row ID.
+   *
+   * @param rowId The row ID.
+   * @return true if the row ID is in the set.
+   */
+  public boolean contains(int rowId) {
+    int i = Arrays.binarySearch(keys, 0, size, (char) (rowId >>> 16));
+    return i >= 0 && containers[i].contains((char) rowId);
+  }
+
+  /**
+   * Visits every row ID in increasing order.
+   *
+   * @param action The action to run on each row ID.
+   */
+  public void forEach(IntConsumer action) {
+    for (int i = 0; i < size; i++) {
+      containers[i].forEach(keys[i] << 16, action);
+    }
+  }
+
+  /**
+   * Copies the row IDs into an array.
+   *
+   * @return The row IDs in increasing order.
+   */
+  public int[] toArray() {
+    int[] rowIds = new int[cardinality()];
+    int[] next = {0};
+    forEach(rowId -> rowIds[next[0]++] = rowId);
+    return rowIds;
+  }
+
+  /**
+   * Copies a window of the row IDs into an array: the first maxRows row IDs that are at least
+   * fromRowId, after skipping the first skip of them. Containers that are skipped whole are not
+   * visited.
+   *
+   * @param fromRowId The smallest row ID to consider.
+   * @param skip The number of row IDs to skip.
+   * @param maxRows The maximum number of row IDs to return.
+   * @return The selected row IDs in increasing order.
+   */
+  public int[] select(int fromRowId, int skip, int maxRows) {
+    int[] selected = new int[Math.min(maxRows, Math.max(0, cardinality() - skip))];
+    int[] counts = {skip, 0}; // row IDs still to skip, row IDs selected
+    for (int i = 0; i < size && counts[1] < selected.length; i++) {
+      int high = keys[i] << 16;
+      if (high + 0xFFFF < fromRowId) {
+        continue;
+      }
+      if (high >= fromRowId && counts[0] >= containers[i].cardinality) {
+        counts[0] -= containers[i].cardinality;
+        continue;
+      }
+      containers[i].forEach(
+          high,
+          rowId -> {
+            if (rowId < fromRowId || counts[1] == selected.length) {
+              return;
+            }
+            if (counts[0] > 0) {
+              counts[0]--;
+            } else {
+              selected[counts[1]++] = rowId;
+            }
+          });
+    }
+    return counts[1] == selected.length ? selected : Arrays.copyOf(selected, counts[1]);
+  }
+
+  /**
+   * Computes the union of this set and another.
+   *
+   * @param other The other set.
+   * @return The rows in either set.
+   */
+  public RowSet or(RowSet other) {
+    char[] resultKeys = new char[size + other.size];
+    Container[] result = new Container[size + other.size];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < size || j < other.size) {
+      int key = i < size ? keys[i] : Integer.MAX_VALUE;
+      int otherKey = j < other.size ? other.keys[j] : Integer.MAX_VALUE;
+      if (key < otherKey) {
+        resultKeys[n] = keys[i];
+        result[n++] = containers[i++];
+      } else if (otherKey < key) {
+        resultKeys[n] = other.keys[j];
+        result[n++] = other.containers[j++];
+      } else {
+        resultKeys[n] = keys[i];
+        result[n++] = containers[i++].or(other.containers[j++]);
+      }
+    }
+    return new RowSet(resultKeys, result, n);
+  }
+
+  /**
+   * Computes the intersection of this set and another.
+   *
+   * @param other The other set.
+   * @return The rows in both sets.
+   */
+  public RowSet and(RowSet other) {
+    int capacity = Math.min(size, other.size);
+    char[] resultKeys = new char[capacity];
+    Container[] result = new Container[capacity];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (other.keys[j] < keys[i]) {
+        j++;
+      } else {
+        Container container = containers[i++].and(other.containers[j++]);
+        if (container.cardinality > 0) {
+          resultKeys[n] = keys[i - 1];
+          result[n++] = container;
+        }
+      }
+    }
+    return new RowSet(resultKeys, result, n);
+  }
+
+  /**
+   * Computes the difference of this set and another.
+   *
+   * @param other The set of rows to remove.
+   * @return The rows in this set that are not in the other set.
+   */
+  public RowSet andNot(RowSet other) {
+    char[] resultKeys = new char[size];
+    Container[] result = new Container[size];
+    int j = 0;
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      while (j < other.size && other.keys[j] < keys[i]) {
+        j++;
+      }
+      Container container = containers[i];
+      if (j < other.size && other.keys[j] == keys[i]) {
+        container = container.andNot(other.containers[j]);
+      }
+      if (container.cardinality > 0) {
+        resultKeys[n] = keys[i];
+        result[n++] = container;
+      }
+    }
+    return new RowSet(resultKeys, result, n);
+  }
+
+  /** Builds a RowSet from row IDs added in increasing order. */
+  public static final class Builder {
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+    private int currentKey;
+    private char[] values; // lower bits of the current container while it is sparse
+    private long[] bits; // the current container once it is dense
+    private int cardinality;
+    private int lastRowId;
+
+    /** Constructs an empty Builder. */
+    public Builder() {
+      this.keys = new char[4];
+      this.containers = new Container[4];
+      this.size = 0;
+      this.currentKey = -1;
+      this.values = new char[16];
+      this.bits = null;
+      this.cardinality = 0;
+      this.lastRowId = -1;
+    }
+
+    /**
+     * Adds a row ID, which must be greater than every row ID added before.
+     *
+     * @param rowId The row ID to add.
+     */
+    public void add(int rowId) {
+      if (rowId <= lastRowId) {
+        throw new IllegalArgumentException(
+            "row IDs must be added in increasing order: %d after %d".formatted(rowId, lastRowId));
+      }
+      lastRowId = rowId;
+      int key = rowId >>> 16;
+      char low = (char) rowId;
+      if (key != currentKey) {
+        flush();
+        currentKey = key;
+      }
+      if (bits != null) {
+        bits[low >>> 6] |= 1L << low;
+      } else if (cardinality < ARRAY_LIMIT) {
+        if (cardinality == values.length) {
+          values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+        }
+        values[cardinality] = low;
+      } else {
+        bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+          bits[values[i] >>> 6] |= 1L << values[i];
+        }
+        bits[low >>> 6] |= 1L << low;
+      }
+      cardinality++;
+    }
+
+    /**
+     * Builds the RowSet.
+     *
+     * @return A RowSet holding every added row ID.
+     */
+    public RowSet build() {
+      flush();
+      return size == 0 ? EMPTY : new RowSet(keys, containers, size);
+    }
+
+    private void flush() {
+      if (cardinality == 0) {
+        return;
+      }
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        containers = Arrays.copyOf(containers, size * 2);
+      }
+      keys[size] = (char) currentKey;
+      containers[size++] =
+          bits != null
+              ? Container.bitmap(bits, cardinality)
+              : Container.array(Arrays.copyOf(values, cardinality));
+      bits = null;
+      cardinality = 0;
+    }
+  }
+
+  /**
+   * The lower 16 bits of the row IDs sharing one upper half, as a sorted array when sparse or a
+   * bitmap when dense. Exactly one of values and bits is non-null.
+   */
+  private static final class Container {
+    private final char[] values;
+    private final long[] bits;
+    private final int cardinality;
+
+    private Container(char[] values, long[] bits, int cardinality) {
+      this.values = values;
+      this.bits = bits;
+      this.cardinality = cardinality;
+    }
+
+    static Container array(char[] values) {
+      return new Container(values, null, values.length);
+    }
+
+    static Container bitmap(long[] bits, int cardinality) {
+      return new Container(null, bits, cardinality);
+    }
+
+    /** Picks the smaller representation for a bitmap of the given cardinality. */
+    static Container fromBits(long[] bits, int cardinality) {
+      if (cardinality > ARRAY_LIMIT) {
+        return bitmap(bits, cardinality);
+      }
+      char[] values = new char[cardinality];
+      int n = 0;
+      for (int word = 0; word < BITMAP_WORDS; word++) {
+        long w = bits[word];
+        while (w != 0) {
+          values[n++] = (char) ((word << 6) + Long.numberOfTrailingZeros(w));
+          w &= w - 1;
+        }
+      }
+      return array(values);
+    }
+
+    boolean contains(char low) {
+      if (bits != null) {
+        return (bits[low >>> 6] & (1L << low)) != 0;
+      }
+      return Arrays.binarySearch(values, low) >= 0;
+    }
+
+    void forEach(int high, IntConsumer action) {
+      if (bits == null) {
+        for (char value : values) {
+          action.accept(high | value);
+        }
+        return;
+      }
+      for (int word = 0; word < BITMAP_WORDS; word++) {
+        long w = bits[word];
+        while (w != 0) {
+          action.accept(high | ((word << 6) + Long.numberOfTrailingZeros(w)));
+          w &= w - 1;
+        }
+      }
+    }
+
+    long[] toBits() {
+      if (bits != null) {
+        return bits.clone();
+      }
+      long[] result = new long[BITMAP_WORDS];
+      for (char value : values) {
+        result[value >>> 6] |= 1L << value;
+      }
+      return result;
+    }
+
+    Container or(Container other) {
+      if (bits == null && other.bits == null) {
+        char[] merged = new char[cardinality + other.cardinality];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < cardinality && j < other.cardinality) {
+          char a = values[i];
+          char b = other.values[j];
+          if (a < b) {
+            merged[n++] = a;
+            i++;
+          } else if (b < a) {
+            merged[n++] = b;
+            j++;
+          } else {
+            merged[n++] = a;
+            i++;
+            j++;
+          }
+        }
+        while (i < cardinality) {
+          merged[n++] = values[i++];
+        }
+        while (j < other.cardinality) {
+          merged[n++] = other.values[j++];
+        }
+        Container union = array(Arrays.copyOf(merged, n));
+        return n > ARRAY_LIMIT ? bitmap(union.toBits(), n) : union;
+      }
+      long[] result = toBits();
+      if (other.bits != null) {
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+          result[word] |= other.bits[word];
+        }
+      } else {
+        for (char value : other.values) {
+          result[value >>> 6] |= 1L << value;
+        }
+      }
+      return fromBits(result, bitCount(result));
+    }
+
+    Container and(Container other) {
+      if (bits == null || other.bits == null) {
+        // filter the sparse side through the other container
+        Container sparse = bits == null ? this : other;
+        Container probe = sparse == this ? other : this;
+        char[] result = new char[sparse.cardinality];
+        int n = 0;
+        for (char value : sparse.values) {
+          if (probe.contains(value)) {
+            result[n++] = value;
+          }
+        }
+        return array(Arrays.copyOf(result, n));
+      }
+      long[] result = new long[BITMAP_WORDS];
+      for (int word = 0; word < BITMAP_WORDS; word++) {
+        result[word] = bits[word] & other.bits[word];
+      }
+      return fromBits(result, bitCount(result));
+    }
+
+    Container andNot(Container other) {
+      if (bits == null) {
+        char[] result = new char[cardinality];
+        int n = 0;
+        for (char value : values) {
+          if (!other.contains(value)) {
+            result[n++] = value;
+          }
+        }
+        return array(Arrays.copyOf(result, n));
+      }
+      long[] result = bits.clone();
+      if (other.bits != null) {
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+          result[word] &= ~other.bits[word];
+        }
+      } else {
+        for (char value : other.values) {
+          result[value >>> 6] &= ~(1L << value);
+        }
+      }
+      return fromBits(result, bitCount(result));
+    }
+
+    private static int bitCount(long[] bits) {
+      int count = 0;
+      for (long word : bits) {
+        count += Long.bitCount(word);
+      }
+      return count;
+    }
+  }
+}
@@ -2,8 +2,10 @@ package edu.brown.cs.student.main.csv;
 
 import edu.brown.cs.student.main.csv.exceptions.InValidColumnIndexException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Searches for a specified element within a CSV dataset and returns matching rows.
@@ -28,7 +30,8 @@ public class Searcher<T> { // T is the single object element within a row
   }
 
   /**
-   * Searches for the specified element in all columns of the dataset and returns matching rows.
+   * Searches for the specified element in all columns of the dataset and returns matching rows. The
+   * data is walked once, row by row, and each row stops being checked at its first matching cell.
    *
    * @param searchKey The element to search for.
    * @return A Map where the key is the row index and the value is the matching row.
@@ -36,17 +39,19 @@ public class Searcher<T> { // T is the single object element within a row
    */
   public Map<Integer, List<T>> search(T searchKey) throws InValidColumnIndexException {
     Map<Integer, List<T>> searchResults = new HashMap<>();
-    if (data.isEmpty()) return searchResults;
-    for (int colIndex = 0; colIndex < data.get(0).size(); colIndex++) {
-      Map<Integer, List<T>> result = search(searchKey, colIndex);
-      combineSearchResults(searchResults, result);
+    for (int rowId = 0; rowId < data.size(); rowId++) {
+      List<T> row = data.get(rowId);
+      if (row.contains(searchKey)) {
+        searchResults.put(rowId, row);
+      }
     }
     return searchResults;
   }
 
   /**
    * Searches for the specified element in a specific column of the dataset and returns matching
-   * rows.
+   * rows. The lookup goes through the column's hash index, which is built on the first search of
+   * the column and reused afterwards.
    *
    * @param searchKey The element to search for.
    * @param colIndex The index of the column to search within.
@@ -57,15 +62,12 @@ public class Searcher<T> { // T is the single object element within a row
       throws InValidColumnIndexException {
     Map<Integer, List<T>> searchResults = new HashMap<>();
     if (data.isEmpty()) return searchResults; // csv is empty
-    if (colIndex < 0 | colIndex >= data.get(0).size()) {
-      throw new InValidColumnIndexException(colIndex, data.get(0).size() - 1);
+    if (colIndex < 0 | colIndex >= columnCount()) {
+      throw new InValidColumnIndexException(colIndex, columnCount() - 1);
     }
 
-    for (int rowId = 0; rowId < data.size(); rowId++) {
-      List<T> row = data.get(rowId);
-      if (row.get(colIndex).equals(searchKey)) {
-        searchResults.put(rowId, row);
-      }
+    for (int rowId : parsedResult.getColumnIndex(colIndex).lookup(searchKey)) {
+      searchResults.put(rowId, data.get(rowId));
     }
     return searchResults;
   }
@@ -88,6 +90,76 @@ public class Searcher<T> { // T is the single object element within a row
     return search(searchKey, colID);
   }
 
+  /**
+   * Searches for the specified element in a column with the given name and returns the IDs of the
+   * matching rows, without materializing the rows.
+   *
+   * @param searchKey The element to search for.
+   * @param colName The name or index of the column to search within, or "*" for all columns.
+   * @return The IDs of the matching rows.
+   * @throws Exception If an error occurs during the search process.
+   */
+  public RowSet searchRows(T searchKey, String colName) throws Exception {
+    if (data.isEmpty()) return RowSet.empty();
+    if (colName.equals("*")) {
+      RowSet.Builder rows = new RowSet.Builder();
+      for (int rowId = 0; rowId < data.size(); rowId++) {
+        if (data.get(rowId).contains(searchKey)) {
+          rows.add(rowId);
+        }
+      }
+      return rows.build();
+    }
+    int colIndex =
+        isInteger(colName) ? Integer.parseInt(colName) : parsedResult.getColIDFromColName(colName);
+    if (colIndex < 0 | colIndex >= columnCount()) {
+      throw new InValidColumnIndexException(colIndex, columnCount() - 1);
+    }
+    return RowSet.of(parsedResult.getColumnIndex(colIndex).lookup(searchKey));
+  }
+
+  /**
+   * Searches the rows produced by a streaming Parser in a single pass, without loading the whole
+   * file first. Only matching rows are kept in memory.
+   *
+   * @param parser The Parser to stream rows from. Its Reader is closed when the search ends.
+   * @param searchKey The element to search for.
+   * @param colName The name or index of the column to search within, or "*" for all columns.
+   * @param <T> The type of objects of each row element.
+   * @return A Map where the key is the row index and the value is the matching row.
+   * @throws Exception If an error occurs during the search process.
+   */
+  public static <T> Map<Integer, List<T>> searchStream(
+      Parser<List<T>> parser, T searchKey, String colName) throws Exception {
+    Map<Integer, List<T>> searchResults = new HashMap<>();
+    try (Stream<List<T>> rows = parser.stream()) {
+      int colIndex = -1; // -1 means all columns
+      if (!colName.equals("*")) {
+        colIndex =
+            isInteger(colName)
+                ? Integer.parseInt(colName)
+                : ParsedResult.getColIDFromColName(parser.getHeaderMap(), colName);
+      }
+      Iterator<List<T>> iterator = rows.iterator();
+      for (int rowId = 0; iterator.hasNext(); rowId++) {
+        List<T> row = iterator.next();
+        if (colIndex == -1) {
+          if (row.contains(searchKey)) {
+            searchResults.put(rowId, row);
+          }
+          continue;
+        }
+        if (colIndex < 0 | colIndex >= row.size()) {
+          throw new InValidColumnIndexException(colIndex, row.size() - 1);
+        }
+        if (row.get(colIndex).equals(searchKey)) {
+          searchResults.put(rowId, row);
+        }
+      }
+    }
+    return searchResults;
+  }
+
   /**
    * Combine two result hashmap such that there is no duplicate in selected rows. The combination
    * changes result1 in place.
@@ -102,13 +174,22 @@ public class Searcher<T> { // T is the single object element within a row
       result1.put(rowID, row);
     }
   }
+  /**
+   * Gets the number of searchable columns.
+   *
+   * @return The number of columns of the parsed data.
+   */
+  private int columnCount() {
+    return parsedResult.getColumnCount();
+  }
+
   /**
    * Checks if the given string is an integer.
    *
    * @param str The string to check.
    * @return True if the string is an integer, false otherwise.
    */
-  private boolean isInteger(String str) {
+  private static boolean isInteger(String str) {
     try {
       Integer.parseInt(str);
       return true;
@@ -0,0 +1,163 @@
+package edu.brown.cs.student.main.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A sorted index over one typed column of a parsed CSV file: the IDs of the rows with a value in
+ * the column, ordered by the sort key of that value (see {@link ColumnType}).
+ *
+ * <p>Indexes are built by {@link ParsedResult#getSortedIndex(int)} the first time a column is range
+ * searched. A range lookup binary-searches the keys and copies out the matching rows, so it costs
+ * O(log n + k) for k matches instead of a scan over every row.
+ */
+public class SortedColumnIndex {
+  private static final int[] NO_ROWS = new int[0];
+
+  private final long[] keys; // ascending
+  private final int[] rowIds; // rowIds[i] holds keys[i]; equal keys are in row order
+
+  private SortedColumnIndex(long[] keys, int[] rowIds) {
+    this.keys = keys;
+    this.rowIds = rowIds;
+  }
+
+  /**
+   * Builds a sorted index over a column of row-major data. Rows that are too short to have the
+   * column, and blank cells, are left out of the index.
+   *
+   * @param data The rows; each row must be a List.
+   * @param colID The column index.
+   * @param type The type of the column.
+   * @return The index of the column; empty for a STRING column.
+   */
+  static SortedColumnIndex fromRows(List<?> data, int colID, ColumnType type) {
+    if (type == ColumnType.STRING) {
+      return new SortedColumnIndex(new long[0], NO_ROWS);
+    }
+    List<long[]> entries = new ArrayList<>(); // {key, rowID}
+    for (int rowID = 0; rowID < data.size(); rowID++) {
+      List<?> row = (List<?>) data.get(rowID);
+      if (colID < row.size()) {
+        String cell = String.valueOf(row.get(colID));
+        if (!ColumnType.isBlank(cell)) {
+          entries.add(new long[] {type.sortKey(cell), rowID});
+        }
+      }
+    }
+    entries.sort(Comparator.comparingLong(entry -> entry[0])); // stable: ties stay in row order
+    long[] keys = new long[entries.size()];
+    int[] rowIds = new int[entries.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = entries.get(i)[0];
+      rowIds[i] = (int) entries.get(i)[1];
+    }
+    return new SortedColumnIndex(keys, rowIds);
+  }
+
+  /**
+   * Builds a sorted index over a typed dictionary-encoded column. Only the dictionary is sorted;
+   * the rows are then placed with a counting sort over their codes, without rebuilding any rows.
+   *
+   * @param columnar The dictionary-encoded data.
+   * @param colID The column index.
+   * @return The index of the column; empty for a STRING column.
+   */
+  static SortedColumnIndex fromColumnar(ColumnarParsedResult columnar, int colID) {
+    if (columnar.getColumnType(colID) == ColumnType.STRING) {
+      return new SortedColumnIndex(new long[0], NO_ROWS);
+    }
+    int[] codes = columnar.getColumnCodes(colID);
+    int dictionarySize = columnar.getDictionarySize(colID);
+    List<Integer> valueCodes = new ArrayList<>();
+    for (int code = 0; code < dictionarySize; code++) {
+      if (!ColumnType.isBlank(columnar.getValue(colID, code))) {
+        valueCodes.add(code);
+      }
+    }
+    valueCodes.sort(Comparator.comparingLong(code -> columnar.getSortKey(colID, code)));
+
+    // rank[code] is the position of the code in key order; -1 for blank values
+    int[] rank = new int[dictionarySize];
+    Arrays.fill(rank, -1);
+    for (int i = 0; i < valueCodes.size(); i++) {
+      rank[valueCodes.get(i)] = i;
+    }
+    int[] starts = new int[valueCodes.size() + 1];
+    for (int code : codes) {
+      if (code != ColumnarParsedResult.MISSING && rank[code] >= 0) {
+        starts[rank[code] + 1]++;
+      }
+    }
+    for (int i = 1; i < starts.length; i++) {
+      starts[i] += starts[i - 1];
+    }
+    long[] keys = new long[starts[starts.length - 1]];
+    int[] rowIds = new int[keys.length];
+    for (int rowID = 0; rowID < codes.length; rowID++) {
+      int code = codes[rowID];
+      if (code != ColumnarParsedResult.MISSING && rank[code] >= 0) {
+        int position = starts[rank[code]]++;
+        keys[position] = columnar.getSortKey(colID, code);
+        rowIds[position] = rowID;
+      }
+    }
+    return new SortedColumnIndex(keys, rowIds);
+  }
+
+  /**
+   * Finds the rows whose sort key lies in a range.
+   *
+   * @param low The smallest matching key.
+   * @param high The largest matching key.
+   * @return The IDs of the matching rows, in increasing order; a new array.
+   */
+  public int[] range(long low, long high) {
+    int from = firstAtLeast(low);
+    int to = high == Long.MAX_VALUE ? keys.length : firstAtLeast(high + 1);
+    if (from >= to) {
+      return NO_ROWS;
+    }
+    int[] rows = Arrays.copyOfRange(rowIds, from, to);
+    Arrays.sort(rows);
+    return rows;
+  }
+
+  /**
+   * Counts the rows whose sort key lies in a range, without copying them.
+   *
+   * @param low The smallest matching key.
+   * @param high The largest matching key.
+   * @return The number of matching rows.
+   */
+  public int count(long low, long high) {
+    int from = firstAtLeast(low);
+    int to = high == Long.MAX_VALUE ? keys.length : firstAtLeast(high + 1);
+    return Math.max(0, to - from);
+  }
+
+  /**
+   * Gets the number of rows in the index.
+   *
+   * @return The number of rows with a value in the column.
+   */
+  public int size() {
+    return keys.length;
+  }
+
+  private int firstAtLeast(long key) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys[middle] < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
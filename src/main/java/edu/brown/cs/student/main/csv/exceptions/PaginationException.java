@@ -0,0 +1,7 @@
+package edu.brown.cs.student.main.csv.exceptions;
+
+public class PaginationException extends Exception {
+  public PaginationException(String message) {
+    super("Invalid page request: " + message);
+  }
+}
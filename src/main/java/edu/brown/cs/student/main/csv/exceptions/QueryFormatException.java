@@ -0,0 +1,7 @@
+package edu.brown.cs.student.main.csv.exceptions;
+
+public class QueryFormatException extends Exception {
+  public QueryFormatException(String query, String message) {
+    super("Malformed query \"%s\": %s".formatted(query, message));
+  }
+}
@@ -0,0 +1,7 @@
+package edu.brown.cs.student.main.csv.exceptions;
+
+public class StreamParseException extends RuntimeException {
+  public StreamParseException(Exception cause) {
+    super("Failed to parse streamed row: " + cause.getMessage(), cause);
+  }
+}
@@ -0,0 +1,15 @@
+package edu.brown.cs.student.main.csv.query;
+
+import java.util.List;
+
+/**
+ * One query of a searchcsv query string, e.g. {@code Race,White|Black} or {@code 2,^5&^7}.
+ *
+ * <p>A plain clause matches rows whose column matches any of its terms. A negated clause matches
+ * rows whose column matches none of its terms.
+ *
+ * @param column The column identifier: a column name, a column index, or "*" for any column.
+ * @param terms The search keys of the clause.
+ * @param negated Whether the clause excludes the rows matching its terms.
+ */
+public record Clause(String column, List<Term> terms, boolean negated) {}
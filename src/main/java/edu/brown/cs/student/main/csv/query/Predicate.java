@@ -0,0 +1,96 @@
+package edu.brown.cs.student.main.csv.query;
+
+import edu.brown.cs.student.main.csv.ColumnIndex;
+import edu.brown.cs.student.main.csv.ColumnType;
+import edu.brown.cs.student.main.csv.ParsedResult;
+import edu.brown.cs.student.main.csv.RowSet;
+import edu.brown.cs.student.main.csv.SortedColumnIndex;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rows whose column holds one of a set of values, or a value in one of a set of ranges. Predicates
+ * are built by {@link QueryPlan} and evaluated either through the column indexes or by the {@link
+ * ScanEngine}.
+ *
+ * @param colID The column ID, or {@link QueryPlan#ANY_COLUMN}.
+ * @param values The values to match.
+ * @param ranges The ranges of sort keys to match; empty when colID is ANY_COLUMN.
+ * @param type The type of the column the ranges were resolved against.
+ * @param estimatedRows The estimated number of matching rows.
+ */
+record Predicate(
+    int colID, Set<String> values, List<KeyRange> ranges, ColumnType type, long estimatedRows) {
+
+  /**
+   * An inclusive range of sort keys.
+   *
+   * @param low The smallest matching key.
+   * @param high The largest matching key.
+   */
+  record KeyRange(long low, long high) {
+    boolean contains(long key) {
+      return low <= key && key <= high;
+    }
+  }
+
+  /**
+   * Evaluates the predicate through the column indexes: the hash indexes for values, and the sorted
+   * index for ranges.
+   *
+   * @param data The dataset to evaluate on.
+   * @return The IDs of the matching rows.
+   */
+  RowSet evaluate(ParsedResult<List<String>> data) {
+    RowSet rows = RowSet.empty();
+    int from = colID == QueryPlan.ANY_COLUMN ? 0 : colID;
+    int to = colID == QueryPlan.ANY_COLUMN ? data.getColumnCount() : colID + 1;
+    for (int column = from; column < to; column++) {
+      ColumnIndex index = data.getColumnIndex(column);
+      for (String value : values) {
+        rows = rows.or(RowSet.of(index.lookup(value)));
+      }
+    }
+    if (!ranges.isEmpty()) {
+      SortedColumnIndex sortedIndex = data.getSortedIndex(colID);
+      for (KeyRange range : ranges) {
+        rows = rows.or(RowSet.of(sortedIndex.range(range.low(), range.high())));
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Tests the predicate against one row.
+   *
+   * @param row The row.
+   * @return True if the row matches.
+   */
+  boolean matches(List<String> row) {
+    if (colID != QueryPlan.ANY_COLUMN) {
+      return colID < row.size() && matches(row.get(colID));
+    }
+    for (String cell : row) {
+      if (values.contains(cell)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean matches(String cell) {
+    if (values.contains(cell)) {
+      return true;
+    }
+    if (ranges.isEmpty() || ColumnType.isBlank(cell)) {
+      return false;
+    }
+    long key = type.sortKey(cell);
+    for (KeyRange range : ranges) {
+      if (range.contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
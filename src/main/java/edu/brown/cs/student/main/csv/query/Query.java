@@ -0,0 +1,10 @@
+package edu.brown.cs.student.main.csv.query;
+
+import java.util.List;
+
+/**
+ * A parsed searchcsv query string: clauses joined by "&&", all of which must hold.
+ *
+ * @param clauses The clauses of the query.
+ */
+public record Query(List<Clause> clauses) {}
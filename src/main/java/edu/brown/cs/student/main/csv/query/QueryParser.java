@@ -0,0 +1,82 @@
+package edu.brown.cs.student.main.csv.query;
+
+import edu.brown.cs.student.main.csv.CSVTokenizer;
+import edu.brown.cs.student.main.csv.exceptions.QueryFormatException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses searchcsv query strings into a {@link Query}.
+ *
+ * <p>The grammar is the one documented in the README: clauses are joined by "&&"; each clause is
+ * {@code <colIdentifier>,<searchKeys>}; search keys are either joined by "|" (any of them matches)
+ * or are all negated with "^" and joined by "&" (none of them matches). The column identifier and
+ * the search keys are split like a CSV row, so a quoted search key may contain commas.
+ *
+ * <p>A search key may also be a range: {@code >x}, {@code >=x}, {@code <x}, {@code <=x} or {@code
+ * between x and y} (both ends included). Whether it is one depends on the column it is used on, so
+ * the parser only records its bounds as written; a {@link QueryPlan} searches for it as a plain
+ * value when its bounds are not values of the column's type.
+ */
+public class QueryParser {
+  private static final Pattern BETWEEN =
+      Pattern.compile("between\\s+(\\S.*?)\\s+and\\s+(\\S.*)", Pattern.CASE_INSENSITIVE);
+
+  private QueryParser() {}
+
+  /**
+   * Parses a query string.
+   *
+   * @param queryString The query string.
+   * @return The parsed query.
+   * @throws QueryFormatException If the query string does not follow the query grammar.
+   */
+  public static Query parse(String queryString) throws QueryFormatException {
+    List<Clause> clauses = new ArrayList<>();
+    for (String clauseString : queryString.split("&&")) {
+      clauses.add(parseClause(queryString, clauseString));
+    }
+    return new Query(List.copyOf(clauses));
+  }
+
+  private static Clause parseClause(String queryString, String clauseString)
+      throws QueryFormatException {
+    boolean negated = clauseString.contains("^");
+    List<String> elements =
+        CSVTokenizer.splitRow(negated ? clauseString.replace("^", "") : clauseString);
+    if (elements.size() < 2 || elements.get(0).isEmpty()) {
+      throw new QueryFormatException(
+          queryString, "\"%s\" should be <colIdentifier>,<searchKey(s)>".formatted(clauseString));
+    }
+    String[] keys = elements.get(1).split(negated ? "&" : "\\|");
+    List<Term> terms = new ArrayList<>(keys.length);
+    for (String key : keys) {
+      terms.add(parseTerm(queryString, key));
+    }
+    return new Clause(elements.get(0), List.copyOf(terms), negated);
+  }
+
+  private static Term parseTerm(String queryString, String key) throws QueryFormatException {
+    Matcher between = BETWEEN.matcher(key.strip());
+    if (between.matches()) {
+      return new RangeTerm(between.group(1), true, between.group(2), true);
+    }
+    for (String operator : new String[] {">=", "<=", ">", "<"}) {
+      if (key.startsWith(operator)) {
+        // kept as written, so that the key can still be searched for as a value
+        String bound = key.substring(operator.length());
+        if (bound.isBlank()) {
+          throw new QueryFormatException(
+              queryString, "\"%s\" is missing a bound".formatted(operator));
+        }
+        boolean inclusive = operator.length() == 2;
+        return operator.startsWith(">")
+            ? new RangeTerm(bound, inclusive, null, false)
+            : new RangeTerm(null, false, bound, inclusive);
+      }
+    }
+    return new ValueTerm(key);
+  }
+}
@@ -0,0 +1,266 @@
+package edu.brown.cs.student.main.csv.query;
+
+import edu.brown.cs.student.main.csv.ColumnIndex;
+import edu.brown.cs.student.main.csv.ColumnType;
+import edu.brown.cs.student.main.csv.ParsedResult;
+import edu.brown.cs.student.main.csv.RowSet;
+import edu.brown.cs.student.main.csv.exceptions.HeaderFailureException;
+import edu.brown.cs.student.main.csv.exceptions.InValidColumnIndexException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link Query} compiled against one loaded dataset.
+ *
+ * <p>Compiling resolves column identifiers once and rewrites the query:
+ *
+ * <ul>
+ *   <li>plain clauses on the same column are merged into one predicate whose values are the
+ *       intersection of theirs, and negated clauses on the same column into one whose values are
+ *       the union of theirs;
+ *   <li>negated clauses are pushed into a plain predicate on the same column by removing their
+ *       values from it, so they no longer need a pass of their own;
+ *   <li>range search keys are resolved into ranges of sort keys of the column's type, answered by
+ *       the column's sorted index; a range key on "*", on a text column, or whose bounds are not
+ *       values of the column's type is searched for as a plain value instead, so that cells such as
+ *       "<1%" can still be found;
+ *   <li>plain predicates are ordered by the number of rows they are estimated to match, so the most
+ *       selective one runs first and evaluation stops as soon as the result is empty.
+ * </ul>
+ *
+ * <p>When every predicate names a column and at least one of them is plain, the plan runs on the
+ * column indexes. Otherwise (a "*" predicate, or only negated clauses) every row has to be looked
+ * at anyway, and the whole plan runs as one pass of the {@link ScanEngine}.
+ *
+ * <p>A plan is only valid for the dataset it was compiled against.
+ */
+public class QueryPlan {
+  /** Column ID standing for "any column" ("*"). */
+  static final int ANY_COLUMN = -1;
+
+  private static final ScanEngine SCAN_ENGINE = new ScanEngine();
+
+  private final List<Predicate> positives; // most selective first
+  private final List<Predicate> negatives;
+  private final boolean alwaysEmpty;
+  private final boolean scan;
+
+  private QueryPlan(List<Predicate> positives, List<Predicate> negatives, boolean alwaysEmpty) {
+    this.positives = positives;
+    this.negatives = negatives;
+    this.alwaysEmpty = alwaysEmpty;
+    this.scan =
+        positives.isEmpty()
+            || positives.stream().anyMatch(predicate -> predicate.colID() == ANY_COLUMN)
+            || negatives.stream().anyMatch(predicate -> predicate.colID() == ANY_COLUMN);
+  }
+
+  /**
+   * Compiles a query against a dataset.
+   *
+   * @param query The parsed query.
+   * @param data The dataset the query will run on.
+   * @return The compiled plan.
+   * @throws HeaderFailureException If a column name does not exist.
+   * @throws InValidColumnIndexException If a column index is out of range.
+   */
+  public static QueryPlan compile(Query query, ParsedResult<List<String>> data)
+      throws HeaderFailureException, InValidColumnIndexException {
+    if (data.getData().isEmpty()) {
+      return new QueryPlan(List.of(), List.of(), true);
+    }
+    Map<Integer, Set<String>> positiveValues = new LinkedHashMap<>();
+    List<Set<String>> anyColumnPositives = new ArrayList<>();
+    Map<Integer, Set<String>> negativeValues = new LinkedHashMap<>();
+    List<Predicate> positives = new ArrayList<>();
+    List<Predicate> negatives = new ArrayList<>();
+    for (Clause clause : query.clauses()) {
+      int colID = resolveColumn(clause.column(), data);
+      Set<String> values = new LinkedHashSet<>();
+      List<Predicate.KeyRange> ranges = new ArrayList<>();
+      for (Term term : clause.terms()) {
+        Predicate.KeyRange keyRange =
+            term instanceof RangeTerm range ? resolveRange(colID, range, data) : null;
+        if (keyRange != null) {
+          ranges.add(keyRange);
+        } else {
+          values.add(term instanceof ValueTerm value ? value.value() : term.toString());
+        }
+      }
+      if (!ranges.isEmpty()) {
+        // clauses with ranges are neither merged nor pushed down
+        ColumnType type = data.getColumnType(colID);
+        long estimatedRows = clause.negated() ? 0 : estimateRows(colID, values, ranges, data);
+        (clause.negated() ? negatives : positives)
+            .add(new Predicate(colID, values, List.copyOf(ranges), type, estimatedRows));
+      } else if (clause.negated()) {
+        negativeValues.computeIfAbsent(colID, id -> new LinkedHashSet<>()).addAll(values);
+      } else if (colID == ANY_COLUMN) {
+        // a value may match a different column in each clause, so these cannot be merged
+        anyColumnPositives.add(values);
+      } else if (positiveValues.containsKey(colID)) {
+        positiveValues.get(colID).retainAll(values);
+      } else {
+        positiveValues.put(colID, values);
+      }
+    }
+
+    // push negations into the plain predicate on the same column
+    negativeValues
+        .entrySet()
+        .removeIf(
+            entry -> {
+              Set<String> positive = positiveValues.get(entry.getKey());
+              if (positive == null) {
+                return false;
+              }
+              positive.removeAll(entry.getValue());
+              return true;
+            });
+
+    for (Map.Entry<Integer, Set<String>> entry : positiveValues.entrySet()) {
+      if (entry.getValue().isEmpty()) {
+        // no row can match every clause on this column
+        return new QueryPlan(List.of(), List.of(), true);
+      }
+      positives.add(
+          new Predicate(
+              entry.getKey(),
+              entry.getValue(),
+              List.of(),
+              ColumnType.STRING,
+              estimateRows(entry.getKey(), entry.getValue(), List.of(), data)));
+    }
+    for (Set<String> values : anyColumnPositives) {
+      // estimating "*" would index every column; assume it is the least selective
+      positives.add(
+          new Predicate(ANY_COLUMN, values, List.of(), ColumnType.STRING, data.getData().size()));
+    }
+    positives.sort(Comparator.comparingLong(Predicate::estimatedRows));
+
+    for (Map.Entry<Integer, Set<String>> entry : negativeValues.entrySet()) {
+      negatives.add(
+          new Predicate(entry.getKey(), entry.getValue(), List.of(), ColumnType.STRING, 0));
+    }
+    return new QueryPlan(List.copyOf(positives), List.copyOf(negatives), false);
+  }
+
+  /**
+   * Runs the plan.
+   *
+   * @param data The dataset the plan was compiled against.
+   * @return The IDs of the matching rows.
+   */
+  public RowSet execute(ParsedResult<List<String>> data) {
+    if (alwaysEmpty) {
+      return RowSet.empty();
+    }
+    if (scan) {
+      return SCAN_ENGINE.scan(data, positives, negatives);
+    }
+    RowSet result = null;
+    for (Predicate predicate : positives) {
+      RowSet rows = predicate.evaluate(data);
+      result = result == null ? rows : result.and(rows);
+      if (result.isEmpty()) {
+        return result;
+      }
+    }
+    for (Predicate predicate : negatives) {
+      result = result.andNot(predicate.evaluate(data));
+    }
+    return result;
+  }
+
+  /**
+   * Runs the plan for one page of results: the first maxRows matching rows from a row ID on, after
+   * skipping some of them. A plan that has to scan stops scanning once the page is full.
+   *
+   * @param data The dataset the plan was compiled against.
+   * @param fromRowId The smallest row ID to consider.
+   * @param skip The number of matching rows to skip.
+   * @param maxRows The maximum number of matching rows to return.
+   * @return The IDs of the selected rows, in increasing order.
+   */
+  public int[] select(ParsedResult<List<String>> data, int fromRowId, int skip, int maxRows) {
+    if (alwaysEmpty) {
+      return new int[0];
+    }
+    if (!scan) {
+      // the index path works on whole bitmaps, which are cheap to build and to window
+      return execute(data).select(fromRowId, skip, maxRows);
+    }
+    int wanted = (int) Math.min((long) skip + maxRows, Integer.MAX_VALUE);
+    int[] rows = SCAN_ENGINE.scanFirst(data, positives, negatives, fromRowId, wanted);
+    return Arrays.copyOfRange(rows, Math.min(skip, rows.length), rows.length);
+  }
+
+  @Override
+  public String toString() {
+    return alwaysEmpty
+        ? "QueryPlan[empty]"
+        : (scan ? "QueryPlan[scan " : "QueryPlan[") + positives + " minus " + negatives + "]";
+  }
+
+  private static int resolveColumn(String column, ParsedResult<List<String>> data)
+      throws HeaderFailureException, InValidColumnIndexException {
+    if (column.equals("*")) {
+      return ANY_COLUMN;
+    }
+    int colID;
+    try {
+      colID = Integer.parseInt(column);
+    } catch (NumberFormatException e) {
+      return data.getColIDFromColName(column);
+    }
+    if (colID < 0 || colID >= data.getColumnCount()) {
+      throw new InValidColumnIndexException(colID, data.getColumnCount() - 1);
+    }
+    return colID;
+  }
+
+  /* Resolves a range against the type of its column, or returns null if it is not a range of
+   * values of that type */
+  private static Predicate.KeyRange resolveRange(
+      int colID, RangeTerm range, ParsedResult<List<String>> data) {
+    if (colID == ANY_COLUMN || data.getColumnType(colID) == ColumnType.STRING) {
+      return null;
+    }
+    ColumnType type = data.getColumnType(colID);
+    try {
+      long low =
+          range.lower() == null
+              ? Long.MIN_VALUE
+              : type.lowerBound(range.lower(), range.lowerInclusive());
+      long high =
+          range.upper() == null
+              ? Long.MAX_VALUE
+              : type.upperBound(range.upper(), range.upperInclusive());
+      return new Predicate.KeyRange(low, high);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static long estimateRows(
+      int colID,
+      Set<String> values,
+      List<Predicate.KeyRange> ranges,
+      ParsedResult<List<String>> data) {
+    ColumnIndex index = data.getColumnIndex(colID);
+    long rows = 0;
+    for (String value : values) {
+      rows += index.lookup(value).length;
+    }
+    for (Predicate.KeyRange range : ranges) {
+      rows += data.getSortedIndex(colID).count(range.low(), range.high());
+    }
+    return rows;
+  }
+}
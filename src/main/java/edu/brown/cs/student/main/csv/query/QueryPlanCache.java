@@ -0,0 +1,68 @@
+package edu.brown.cs.student.main.csv.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import edu.brown.cs.student.main.csv.ParsedResult;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A bounded cache of compiled query plans, keyed by query string and dataset version, so repeated
+ * queries skip parsing and planning. The least recently used plans are evicted first.
+ */
+public class QueryPlanCache {
+  private final Cache<PlanKey, QueryPlan> plans;
+
+  /**
+   * Constructs a QueryPlanCache holding at most maximumSize plans.
+   *
+   * @param maximumSize The maximum number of cached plans.
+   */
+  public QueryPlanCache(long maximumSize) {
+    this.plans = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  /**
+   * Gets the plan of a query for a dataset, parsing and compiling it on a cache miss.
+   *
+   * @param queryString The query string.
+   * @param datasetVersion The version of the dataset; a new version is needed whenever the data
+   *     changes.
+   * @param data The dataset the plan will run on.
+   * @return The compiled plan.
+   * @throws Exception If the query is malformed or refers to columns that do not exist.
+   */
+  public QueryPlan getPlan(String queryString, long datasetVersion, ParsedResult<List<String>> data)
+      throws Exception {
+    try {
+      return plans.get(
+          new PlanKey(queryString, datasetVersion),
+          () -> QueryPlan.compile(QueryParser.parse(queryString), data));
+    } catch (ExecutionException e) {
+      throw (Exception) e.getCause();
+    } catch (UncheckedExecutionException e) {
+      throw (RuntimeException) e.getCause();
+    }
+  }
+
+  /**
+   * Retrieves the plan cache hit count.
+   *
+   * @return The plan cache hit count.
+   */
+  public long getHitCount() {
+    return plans.stats().hitCount();
+  }
+
+  /**
+   * Retrieves the plan cache miss count.
+   *
+   * @return The plan cache miss count.
+   */
+  public long getMissCount() {
+    return plans.stats().missCount();
+  }
+
+  private record PlanKey(String queryString, long datasetVersion) {}
+}
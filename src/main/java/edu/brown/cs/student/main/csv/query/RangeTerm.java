@@ -0,0 +1,34 @@
+package edu.brown.cs.student.main.csv.query;
+
+/**
+ * A search key that matches cells whose value lies in a range, e.g. {@code >80000} or {@code
+ * between 2018 and 2020}. Bounds are compared as values of the column's {@link
+ * edu.brown.cs.student.main.csv.ColumnType}; on a column whose values they are not, the term is
+ * searched for as the value {@link #toString()} writes.
+ *
+ * @param lower The lower bound, or null if there is none.
+ * @param lowerInclusive Whether a cell equal to the lower bound matches.
+ * @param upper The upper bound, or null if there is none.
+ * @param upperInclusive Whether a cell equal to the upper bound matches.
+ */
+public record RangeTerm(String lower, boolean lowerInclusive, String upper, boolean upperInclusive)
+    implements Term {
+
+  /**
+   * Writes the range the way it is written in a query.
+   *
+   * @return The range in query syntax.
+   */
+  @Override
+  public String toString() {
+    if (lower != null && upper != null && lowerInclusive && upperInclusive) {
+      return "between " + lower + " and " + upper;
+    }
+    if (lower != null && upper != null) {
+      return (lowerInclusive ? ">=" : ">") + lower + "&" + (upperInclusive ? "<=" : "<") + upper;
+    }
+    return lower != null
+        ? (lowerInclusive ? ">=" : ">") + lower
+        : (upperInclusive ? "<=" : "<") + upper;
+  }
+}
@@ -0,0 +1,276 @@
+package edu.brown.cs.student.main.csv.query;
+
+import edu.brown.cs.student.main.csv.ColumnType;
+import edu.brown.cs.student.main.csv.ColumnarParsedResult;
+import edu.brown.cs.student.main.csv.ParsedResult;
+import edu.brown.cs.student.main.csv.RowSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluates every predicate of a query in a single row-major pass over the data.
+ *
+ * <p>Each row is tested against the plain predicates (most selective first) and then the negated
+ * ones, and testing stops at the first predicate that rules the row out. On dictionary-encoded data
+ * a predicate (values and ranges alike) is turned into one boolean mask per column over the
+ * dictionary codes, so testing a cell is an array lookup. Large datasets are split into row ranges
+ * that are scanned in parallel on a fork-join pool; each range produces its own {@link RowSet} and
+ * the sets are merged in row order.
+ */
+public class ScanEngine {
+  /** Ranges of at most this many rows are scanned on a single thread. */
+  static final int SPLIT_THRESHOLD = 1 << 16;
+
+  private final ForkJoinPool pool;
+
+  /** Constructs a ScanEngine that runs on the common fork-join pool. */
+  public ScanEngine() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a ScanEngine that runs on the given pool.
+   *
+   * @param pool The pool scanning row ranges in parallel.
+   */
+  public ScanEngine(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Finds the rows that match every plain predicate and none of the negated predicates.
+   *
+   * @param data The dataset to scan.
+   * @param positives The plain predicates, most selective first.
+   * @param negatives The negated predicates.
+   * @return The IDs of the matching rows.
+   */
+  RowSet scan(
+      ParsedResult<List<String>> data, List<Predicate> positives, List<Predicate> negatives) {
+    IntPredicate rowFilter = rowFilter(data, positives, negatives);
+    if (rowFilter == null) {
+      return RowSet.empty();
+    }
+    int rowCount = data.getData().size();
+    if (rowCount <= SPLIT_THRESHOLD) {
+      return scanRange(rowFilter, 0, rowCount);
+    }
+    return pool.invoke(new ScanTask(rowFilter, 0, rowCount));
+  }
+
+  /**
+   * Finds the first matching rows from a row ID on, and stops scanning as soon as enough are found.
+   * The scan runs on the calling thread, since it usually ends early.
+   *
+   * @param data The dataset to scan.
+   * @param positives The plain predicates, most selective first.
+   * @param negatives The negated predicates.
+   * @param fromRowId The row ID to start scanning at.
+   * @param maxRows The number of matching rows to stop at.
+   * @return The IDs of the first matching rows, in increasing order.
+   */
+  int[] scanFirst(
+      ParsedResult<List<String>> data,
+      List<Predicate> positives,
+      List<Predicate> negatives,
+      int fromRowId,
+      int maxRows) {
+    IntPredicate rowFilter = rowFilter(data, positives, negatives);
+    if (rowFilter == null) {
+      return new int[0];
+    }
+    int rowCount = data.getData().size();
+    int[] found = new int[Math.min(maxRows, 1024)];
+    int n = 0;
+    for (int rowID = Math.max(0, fromRowId); rowID < rowCount && n < maxRows; rowID++) {
+      if (rowFilter.test(rowID)) {
+        if (n == found.length) {
+          found = Arrays.copyOf(found, (int) Math.min((long) n * 2, maxRows));
+        }
+        found[n++] = rowID;
+      }
+    }
+    return Arrays.copyOf(found, n);
+  }
+
+  /**
+   * Builds the test that a row must pass to match.
+   *
+   * @return The test, or null if no row can match.
+   */
+  private static IntPredicate rowFilter(
+      ParsedResult<List<String>> data, List<Predicate> positives, List<Predicate> negatives) {
+    if (data instanceof ColumnarParsedResult columnar) {
+      return columnarFilter(columnar, positives, negatives);
+    }
+    List<List<String>> rows = data.getData();
+    return rowID -> matches(rows.get(rowID), positives, negatives);
+  }
+
+  private static boolean matches(
+      List<String> row, List<Predicate> positives, List<Predicate> negatives) {
+    for (Predicate predicate : positives) {
+      if (!predicate.matches(row)) {
+        return false;
+      }
+    }
+    for (Predicate predicate : negatives) {
+      if (predicate.matches(row)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Builds the row filter of dictionary-encoded data.
+   *
+   * @return The filter, or null if a plain predicate cannot match any row.
+   */
+  private static IntPredicate columnarFilter(
+      ColumnarParsedResult columnar, List<Predicate> positives, List<Predicate> negatives) {
+    List<CodeTest> positiveTests = new ArrayList<>();
+    for (Predicate predicate : positives) {
+      CodeTest test = CodeTest.of(columnar, predicate);
+      if (test == null) {
+        return null;
+      }
+      positiveTests.add(test);
+    }
+    List<CodeTest> negativeTests = new ArrayList<>();
+    for (Predicate predicate : negatives) {
+      CodeTest test = CodeTest.of(columnar, predicate);
+      if (test != null) { // a negation that matches nothing removes nothing
+        negativeTests.add(test);
+      }
+    }
+    CodeTest[] plain = positiveTests.toArray(new CodeTest[0]);
+    CodeTest[] negated = negativeTests.toArray(new CodeTest[0]);
+    return rowID -> {
+      for (CodeTest test : plain) {
+        if (!test.matches(rowID)) {
+          return false;
+        }
+      }
+      for (CodeTest test : negated) {
+        if (test.matches(rowID)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  private static RowSet scanRange(IntPredicate rowFilter, int from, int to) {
+    RowSet.Builder rows = new RowSet.Builder();
+    for (int rowID = from; rowID < to; rowID++) {
+      if (rowFilter.test(rowID)) {
+        rows.add(rowID);
+      }
+    }
+    return rows.build();
+  }
+
+  /** Scans a row range, splitting it in halves until the halves are small enough. */
+  private static class ScanTask extends RecursiveTask<RowSet> {
+    private final IntPredicate rowFilter;
+    private final int from;
+    private final int to;
+
+    ScanTask(IntPredicate rowFilter, int from, int to) {
+      this.rowFilter = rowFilter;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected RowSet compute() {
+      if (to - from <= SPLIT_THRESHOLD) {
+        return scanRange(rowFilter, from, to);
+      }
+      // split on a multiple of SPLIT_THRESHOLD so the halves do not share a RowSet container
+      int middle = from + Math.max(1, (to - from) / 2 / SPLIT_THRESHOLD) * SPLIT_THRESHOLD;
+      ScanTask left = new ScanTask(rowFilter, from, middle);
+      left.fork();
+      RowSet right = new ScanTask(rowFilter, middle, to).compute();
+      return left.join().or(right);
+    }
+  }
+
+  /**
+   * A predicate over dictionary codes: a row matches if, in any of the tested columns, the code of
+   * its cell is set in that column's mask.
+   */
+  private static final class CodeTest {
+    private final int[][] codes;
+    private final boolean[][] masks;
+
+    private CodeTest(int[][] codes, boolean[][] masks) {
+      this.codes = codes;
+      this.masks = masks;
+    }
+
+    /**
+     * Translates a predicate into dictionary codes.
+     *
+     * @return The test, or null if no cell holds any of the predicate's values.
+     */
+    static CodeTest of(ColumnarParsedResult columnar, Predicate predicate) {
+      int from = predicate.colID() == QueryPlan.ANY_COLUMN ? 0 : predicate.colID();
+      int to = predicate.colID() == QueryPlan.ANY_COLUMN ? columnar.getColumnCount() : from + 1;
+      List<int[]> testedCodes = new ArrayList<>();
+      List<boolean[]> testedMasks = new ArrayList<>();
+      for (int colID = from; colID < to; colID++) {
+        boolean[] mask = new boolean[columnar.getDictionarySize(colID)];
+        boolean any = false;
+        for (String value : predicate.values()) {
+          int code = columnar.lookupCode(colID, value);
+          if (code != ColumnarParsedResult.MISSING) {
+            mask[code] = true;
+            any = true;
+          }
+        }
+        if (!predicate.ranges().isEmpty()) {
+          for (int code = 0; code < mask.length; code++) {
+            if (!ColumnType.isBlank(columnar.getValue(colID, code))
+                && inRange(predicate, columnar.getSortKey(colID, code))) {
+              mask[code] = true;
+              any = true;
+            }
+          }
+        }
+        if (any) {
+          testedCodes.add(columnar.getColumnCodes(colID));
+          testedMasks.add(mask);
+        }
+      }
+      if (testedCodes.isEmpty()) {
+        return null;
+      }
+      return new CodeTest(testedCodes.toArray(new int[0][]), testedMasks.toArray(new boolean[0][]));
+    }
+
+    private static boolean inRange(Predicate predicate, long key) {
+      for (Predicate.KeyRange range : predicate.ranges()) {
+        if (range.contains(key)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean matches(int rowID) {
+      for (int i = 0; i < codes.length; i++) {
+        int code = codes[i][rowID];
+        if (code != ColumnarParsedResult.MISSING && masks[i][code]) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,4 @@
+package edu.brown.cs.student.main.csv.query;
+
+/** A single search key of a query clause. */
+public interface Term {}
@@ -0,0 +1,8 @@
+package edu.brown.cs.student.main.csv.query;
+
+/**
+ * A search key that matches cells equal to a value.
+ *
+ * @param value The value to match.
+ */
+public record ValueTerm(String value) implements Term {}
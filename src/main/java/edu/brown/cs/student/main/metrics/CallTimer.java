@@ -0,0 +1,85 @@
+package edu.brown.cs.student.main.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the calls of one operation, such as the requests of a route or the calls to an upstream
+ * API, with their errors and a {@link LatencyHistogram} of their durations. Recording a call
+ * allocates nothing.
+ */
+public class CallTimer {
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99, 0.999};
+  private static final String[] QUANTILE_NAMES = {
+    "p50Micros", "p95Micros", "p99Micros", "p999Micros"
+  };
+
+  private final LatencyHistogram latency;
+  private final LongAdder errors;
+  private final long startNanos;
+
+  /** Constructs a CallTimer with no calls. */
+  public CallTimer() {
+    this.latency = new LatencyHistogram();
+    this.errors = new LongAdder();
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Records a call.
+   *
+   * @param nanos How long the call took, in nanoseconds.
+   * @param failed Whether the call failed.
+   */
+  public void record(long nanos, boolean failed) {
+    latency.record(nanos);
+    if (failed) {
+      errors.increment();
+    }
+  }
+
+  /**
+   * Gets the latency histogram of the calls.
+   *
+   * @return The histogram.
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Gets the number of failed calls.
+   *
+   * @return The number of errors.
+   */
+  public long getErrorCount() {
+    return errors.sum();
+  }
+
+  /**
+   * Describes the calls so far: their count and rate per second since the timer was made, their
+   * errors and error rate (the fraction of calls that failed), and the mean, maximum and
+   * percentiles of their latency in microseconds.
+   *
+   * @return The description, as a JSON-ready map.
+   */
+  public Map<String, Object> describe() {
+    LatencyHistogram.Snapshot snapshot = latency.snapshot();
+    long count = snapshot.getCount();
+    long errorCount = errors.sum();
+    double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("count", count);
+    description.put("ratePerSecond", count / seconds);
+    description.put("errors", errorCount);
+    description.put("errorRate", count == 0 ? 0.0 : (double) errorCount / count);
+    description.put("meanMicros", snapshot.getMeanNanos() / 1000);
+    for (int i = 0; i < QUANTILES.length; i++) {
+      description.put(QUANTILE_NAMES[i], snapshot.getPercentileNanos(QUANTILES[i]) / 1000.0);
+    }
+    description.put("maxMicros", TimeUnit.NANOSECONDS.toMicros(snapshot.getMaxNanos()));
+    return description;
+  }
+}
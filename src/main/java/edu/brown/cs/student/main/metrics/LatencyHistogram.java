@@ -0,0 +1,142 @@
+package edu.brown.cs.student.main.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, for latency percentiles.
+ *
+ * <p>Durations are counted in log-linear buckets: every power of two is split into 32 buckets of
+ * equal width, so a bucket is at most about 3% wide relative to the durations it holds, from 1ns to
+ * centuries, in under 2,000 buckets. Recording a duration is three atomic operations (an increment
+ * of its bucket, an add to the total, and a compare-and-set of the maximum when it is a new one)
+ * and allocates nothing; percentiles are computed from a copy of the buckets when they are read.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets;
+  private final AtomicLong total;
+  private final AtomicLong max;
+
+  /** Constructs an empty LatencyHistogram. */
+  public LatencyHistogram() {
+    this.buckets = new AtomicLongArray(BUCKETS);
+    this.total = new AtomicLong();
+    this.max = new AtomicLong();
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos The duration in nanoseconds; negative durations are recorded as 0.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(bucketOf(value));
+    total.addAndGet(value);
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * Takes a snapshot of the histogram. Durations recorded while the snapshot is taken may or may
+   * not be in it.
+   *
+   * @return The snapshot.
+   */
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      count += counts[i];
+    }
+    return new Snapshot(counts, count, total.get(), max.get());
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  /** The counts of a LatencyHistogram at one point in time. */
+  public static class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+      this.counts = counts;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     *
+     * @return The number of durations.
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Gets the mean of the recorded durations.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMeanNanos() {
+      return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Gets the longest recorded duration.
+     *
+     * @return The maximum in nanoseconds.
+     */
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /**
+     * Gets a percentile of the recorded durations, rounded up to the end of its bucket.
+     *
+     * @param quantile The percentile as a fraction, e.g. 0.99 for p99.
+     * @return The percentile in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentileNanos(double quantile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(upperBoundOf(i), maxNanos);
+        }
+      }
+      return maxNanos;
+    }
+  }
+}
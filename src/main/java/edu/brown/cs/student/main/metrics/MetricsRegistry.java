@@ -0,0 +1,107 @@
+package edu.brown.cs.student.main.metrics;
+
+import com.google.common.cache.CacheStats;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import spark.Route;
+
+/**
+ * The metrics of the server: a {@link CallTimer} per route and per upstream dependency, and gauges
+ * whose values are read when the metrics are described. Timers are made when a route is wrapped,
+ * not when it is called, so the request path only touches counters that already exist.
+ */
+public class MetricsRegistry {
+  private final Map<String, CallTimer> routes;
+  private final Map<String, CallTimer> upstreams;
+  private final Map<String, Supplier<?>> gauges;
+
+  /** Constructs an empty MetricsRegistry. */
+  public MetricsRegistry() {
+    this.routes = new ConcurrentHashMap<>();
+    this.upstreams = new ConcurrentHashMap<>();
+    this.gauges = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Wraps a route so its requests are timed under the given name.
+   *
+   * @param name The name of the route.
+   * @param route The route.
+   * @return The timed route.
+   */
+  public Route timed(String name, Route route) {
+    return new TimedRoute(route, routes.computeIfAbsent(name, n -> new CallTimer()));
+  }
+
+  /**
+   * Registers the timer of an upstream dependency, such as an external API.
+   *
+   * @param name The name of the dependency.
+   * @param timer The timer its calls are recorded in.
+   */
+  public void upstream(String name, CallTimer timer) {
+    upstreams.put(name, timer);
+  }
+
+  /**
+   * Registers a gauge, whose value is read every time the metrics are described.
+   *
+   * @param name The name of the gauge.
+   * @param value Reads the value of the gauge; it should be JSON-ready.
+   */
+  public void gauge(String name, Supplier<?> value) {
+    gauges.put(name, value);
+  }
+
+  /**
+   * Gets the timer of a route.
+   *
+   * @param name The name of the route.
+   * @return The timer, or null if no route was wrapped under this name.
+   */
+  public CallTimer getRouteTimer(String name) {
+    return routes.get(name);
+  }
+
+  /**
+   * Describes every metric.
+   *
+   * @return The metrics, as a JSON-ready map of routes, upstreams and gauges.
+   */
+  public Map<String, Object> describe() {
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("routes", describeTimers(routes));
+    description.put("upstreams", describeTimers(upstreams));
+    Map<String, Object> gaugeValues = new TreeMap<>();
+    gauges.forEach((name, value) -> gaugeValues.put(name, value.get()));
+    description.put("gauges", gaugeValues);
+    return description;
+  }
+
+  /**
+   * Describes the statistics of a Guava cache.
+   *
+   * @param stats The statistics.
+   * @return The statistics, as a JSON-ready map.
+   */
+  public static Map<String, Object> describe(CacheStats stats) {
+    Map<String, Object> description = new LinkedHashMap<>();
+    description.put("hits", stats.hitCount());
+    description.put("misses", stats.missCount());
+    description.put("hitRate", stats.hitRate());
+    description.put("loads", stats.loadCount());
+    description.put("loadFailures", stats.loadExceptionCount());
+    description.put("averageLoadMicros", stats.averageLoadPenalty() / 1000);
+    description.put("evictions", stats.evictionCount());
+    return description;
+  }
+
+  private static Map<String, Object> describeTimers(Map<String, CallTimer> timers) {
+    Map<String, Object> description = new TreeMap<>();
+    timers.forEach((name, timer) -> description.put(name, timer.describe()));
+    return description;
+  }
+}
@@ -0,0 +1,35 @@
+package edu.brown.cs.student.main.metrics;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * A Route that times the requests of another route in a {@link CallTimer}. A request fails if the
+ * route throws, sets an error status, or returns the "result": "Exception" body that the handlers
+ * of this server use for errors. Streamed responses are timed until the last row is written.
+ */
+class TimedRoute implements Route {
+  private static final String ERROR_RESULT = "\"result\":\"Exception\"";
+
+  private final Route route;
+  private final CallTimer timer;
+
+  TimedRoute(Route route, CallTimer timer) {
+    this.route = route;
+    this.timer = timer;
+  }
+
+  @Override
+  public Object handle(Request request, Response response) throws Exception {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      Object body = route.handle(request, response);
+      failed = response.status() >= 400 || (body instanceof String s && s.contains(ERROR_RESULT));
+      return body;
+    } finally {
+      timer.record(System.nanoTime() - start, failed);
+    }
+  }
+}
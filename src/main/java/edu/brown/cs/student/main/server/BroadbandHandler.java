@@ -3,10 +3,14 @@ package edu.brown.cs.student.main.server;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.broadband.ACSCensusDataSource;
 import edu.brown.cs.student.main.broadband.CensusDataSource;
+import edu.brown.cs.student.main.broadband.exceptions.DataNotFoundException;
+import edu.brown.cs.student.main.broadband.exceptions.InputNotFoundException;
 import java.lang.reflect.Type;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import spark.Request;
@@ -35,7 +39,9 @@ public class BroadbandHandler implements Route {
   /**
    * Handles the HTTP request to retrieve broadband data. The request is expected to contain query
    * parameters for the county name, statename, and ACS variable(s) (optional) Responds with a JSON
-   * object indicating the result and the output.
+   * object indicating the result and the output. When several variables are asked for and some of
+   * them cannot be looked up, the values of the others are still in the output, and the result is
+   * "Exception" with the error of the last variable that failed.
    *
    * @param request The HTTP request object.
    * @param response The HTTP response object.
@@ -89,7 +95,7 @@ public class BroadbandHandler implements Route {
 
     /* If there are multiple ACSVariable inputs, create a list of the variables */
     String[] acsvariable_list = variablename.split(",");
-    if (!variablename.equals("S2802_C03_022E")) {
+    if (!variablename.equals(ACSCensusDataSource.BROADBAND_VARIABLE)) {
       if (acsvariable_list.length == 1) {
         try {
           String broadbandpercentage =
@@ -108,21 +114,33 @@ public class BroadbandHandler implements Route {
         String responseMapString = adapter.toJson(responsemap);
         return responseMapString;
       } else {
-        /* Enter loop if there are multiple inputs for variable name */
-        for (String s : acsvariable_list) {
-          try {
-            String broadbandpercentage = state.getBroadbandPercentage(countyname, statename, s);
-            responsemap.put("result", "success");
-            String localdatetime = LocalDateTime.now().toString();
-            responsemap.put("date and time", localdatetime);
-            responsemap.put("county name", countyname);
-            responsemap.put("state name", statename);
-            responsemap.put(s, broadbandpercentage);
-          } catch (Exception e) {
-            responsemap.put("result", "Exception");
-            responsemap.put("error", e.toString());
-            e.printStackTrace();
+        /* Look up multiple inputs for variable name together, in concurrent census calls */
+        responsemap.put("result", "success");
+        String localdatetime = LocalDateTime.now().toString();
+        responsemap.put("date and time", localdatetime);
+        responsemap.put("county name", countyname);
+        responsemap.put("state name", statename);
+        try {
+          responsemap.putAll(
+              state.getBroadbandPercentages(countyname, statename, List.of(acsvariable_list)));
+        } catch (InputNotFoundException | DataNotFoundException batchException) {
+          /* One bad variable fails the whole batch; look the variables up one by one instead, so
+           * the others are still answered and only the bad ones are reported as errors */
+          for (String s : acsvariable_list) {
+            try {
+              responsemap.put(s, state.getBroadbandPercentage(countyname, statename, s));
+            } catch (Exception e) {
+              responsemap.put("result", "Exception");
+              responsemap.put("error", e.toString());
+              e.printStackTrace();
+            }
           }
+        } catch (Exception e) {
+          /* The census API could not be reached, and would not answer the variables one by one
+           * either */
+          responsemap.put("result", "Exception");
+          responsemap.put("error", e.toString());
+          e.printStackTrace();
         }
         String responseMapString = adapter.toJson(responsemap);
         return responseMapString;
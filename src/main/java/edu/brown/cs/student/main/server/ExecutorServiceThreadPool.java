@@ -0,0 +1,103 @@
+package edu.brown.cs.student.main.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * A Jetty ThreadPool that runs every task on an ExecutorService, such as an executor that starts a
+ * virtual thread per task. Unlike Jetty's QueuedThreadPool it keeps no threads of its own, so it
+ * never runs low on threads: a request that blocks on I/O only holds its own thread.
+ *
+ * <p>A new ExecutorService is made every time the pool is started, and shut down when the pool is
+ * stopped, so a Spark server using the pool can be stopped and started again.
+ */
+public class ExecutorServiceThreadPool extends AbstractLifeCycle implements ThreadPool {
+  private final Supplier<ExecutorService> executors;
+  private final AtomicInteger running;
+  private volatile ExecutorService executor;
+
+  /**
+   * Constructs an ExecutorServiceThreadPool.
+   *
+   * @param executors Makes the ExecutorService to run tasks on when the pool starts.
+   */
+  public ExecutorServiceThreadPool(Supplier<ExecutorService> executors) {
+    this.executors = executors;
+    this.running = new AtomicInteger();
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    executor = executors.get();
+    super.doStart();
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    ExecutorService stopped = executor;
+    if (stopped != null) {
+      stopped.shutdown();
+    }
+    super.doStop();
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    ExecutorService current = executor;
+    if (current == null || current.isShutdown()) {
+      throw new RejectedExecutionException("The thread pool is not started.");
+    }
+    current.execute(
+        () -> {
+          running.incrementAndGet();
+          try {
+            task.run();
+          } finally {
+            running.decrementAndGet();
+          }
+        });
+  }
+
+  @Override
+  public void join() throws InterruptedException {
+    ExecutorService current = executor;
+    if (current != null) {
+      current.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Gets the number of tasks that are running.
+   *
+   * @return The number of threads in use.
+   */
+  @Override
+  public int getThreads() {
+    return running.get();
+  }
+
+  /**
+   * Threads are started per task, so none are ever idle.
+   *
+   * @return 0.
+   */
+  @Override
+  public int getIdleThreads() {
+    return 0;
+  }
+
+  /**
+   * Threads are started per task, so the pool is never low on threads.
+   *
+   * @return false.
+   */
+  @Override
+  public boolean isLowOnThreads() {
+    return false;
+  }
+}
@@ -0,0 +1,74 @@
+package edu.brown.cs.student.main.server;
+
+import com.squareup.moshi.JsonWriter;
+import edu.brown.cs.student.main.csv.CsvPage;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import okio.BufferedSink;
+import okio.Okio;
+import spark.Response;
+
+/**
+ * Writes a JSON response holding CSV rows straight to the response's output stream, one row at a
+ * time, instead of building the whole document as a String first. Only one row and the output
+ * buffer are held in memory at any time, and the first bytes go out as soon as the buffer fills.
+ */
+final class JsonRowStreamer {
+
+  private JsonRowStreamer() {}
+
+  /**
+   * Streams a successful response holding one page of rows, and the cursor of the next page if
+   * there is one.
+   *
+   * @param response The Spark response to write to. Headers must be set before this is called.
+   * @param rowsName The name of the rows array.
+   * @param page The page.
+   * @return The empty string, for the Route to return since the body is already written.
+   * @throws IOException If the client cannot be written to.
+   */
+  static String streamPage(Response response, String rowsName, CsvPage page) throws IOException {
+    Map<String, String> fields = new LinkedHashMap<>();
+    fields.put("result", "success");
+    if (page.nextCursor() != null) {
+      fields.put("nextCursor", page.nextCursor());
+    }
+    return stream(response, fields, rowsName, page.rows());
+  }
+
+  /**
+   * Streams a JSON object made of some string fields followed by an array of rows.
+   *
+   * @param response The Spark response to write to. Headers must be set before this is called.
+   * @param fields The string fields of the object.
+   * @param rowsName The name of the rows array.
+   * @param rows The rows.
+   * @return The empty string, for the Route to return since the body is already written.
+   * @throws IOException If the client cannot be written to.
+   */
+  static String stream(
+      Response response, Map<String, String> fields, String rowsName, Iterable<List<String>> rows)
+      throws IOException {
+    response.type("application/json");
+    BufferedSink sink = Okio.buffer(Okio.sink(response.raw().getOutputStream()));
+    try (JsonWriter writer = JsonWriter.of(sink)) {
+      writer.beginObject();
+      for (Map.Entry<String, String> field : fields.entrySet()) {
+        writer.name(field.getKey()).value(field.getValue());
+      }
+      writer.name(rowsName).beginArray();
+      for (List<String> row : rows) {
+        writer.beginArray();
+        for (String cell : row) {
+          writer.value(cell);
+        }
+        writer.endArray();
+      }
+      writer.endArray();
+      writer.endObject();
+    }
+    return "";
+  }
+}
@@ -4,6 +4,8 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.csv.AccessCSV;
+import edu.brown.cs.student.main.csv.LoadJob;
+import edu.brown.cs.student.main.csv.LoadJobManager;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,6 +16,7 @@ import spark.Route;
 public class LoadCSVHandler implements Route {
 
   private final AccessCSV accessCSV;
+  private final LoadJobManager loadJobs;
   private final JsonAdapter<Map<String, Object>> adapter;
   /**
    * Constructs a LoadCSVHandler with a specified AccessCSV instance for handling CSV loading.
@@ -22,7 +25,18 @@ public class LoadCSVHandler implements Route {
    * @param accessCSV The {@link AccessCSV} instance to use for loading CSV files.
    */
   public LoadCSVHandler(AccessCSV accessCSV) {
+    this(accessCSV, new LoadJobManager(accessCSV));
+  }
+  /**
+   * Constructs a LoadCSVHandler that runs asynchronous loads on the given {@link LoadJobManager},
+   * whose jobs can then be looked up by a {@link LoadStatusHandler}.
+   *
+   * @param accessCSV The {@link AccessCSV} instance to use for loading CSV files.
+   * @param loadJobs The manager of asynchronous loads.
+   */
+  public LoadCSVHandler(AccessCSV accessCSV, LoadJobManager loadJobs) {
     this.accessCSV = accessCSV;
+    this.loadJobs = loadJobs;
     /* Create a JSON adapter for the Map type */
     Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
     Moshi moshi = new Moshi.Builder().build();
@@ -30,8 +44,15 @@ public class LoadCSVHandler implements Route {
   }
   /**
    * Handles a request to load a CSV file. The request is expected to contain query parameters for
-   * the file path ('path') and whether the file has a header ('hasHeader'). Responds with a JSON
-   * object indicating the result of the operation, which can include success or error messages.
+   * the file path ('path') and whether the file has a header ('hasHeader'). An optional 'parallel'
+   * parameter (true or false) selects the parallel, memory-mapped parser for large files, and an
+   * optional 'dataset' parameter names the loaded file, so that several files can be viewed and
+   * searched at once.
+   *
+   * <p>With 'async=true' the file is parsed in the background: the response returns at once with a
+   * 'jobId' to poll the loadstatus endpoint with, and the dataset is replaced only once the whole
+   * file is parsed. Responds with a JSON object indicating the result of the operation, which can
+   * include success or error messages.
    *
    * @param request The Spark request object, containing query parameters.
    * @param response The Spark response object, used to modify the response properties.
@@ -69,11 +90,49 @@ public class LoadCSVHandler implements Route {
       String responseMapString = adapter.toJson(responseMap);
       return responseMapString;
     }
+    String parallelString = request.queryParams("parallel");
+    if (parallelString != null
+        && !parallelString.equals("true")
+        && !parallelString.equals("false")) {
+      responseMap.put("result", "Exception");
+      responseMap.put(
+          "error",
+          "Invalid parallel param value: %s.parallel param should be true or false. "
+              .formatted(parallelString));
+      String responseMapString = adapter.toJson(responseMap);
+      return responseMapString;
+    }
+    String asyncString = request.queryParams("async");
+    if (asyncString != null && !asyncString.equals("true") && !asyncString.equals("false")) {
+      responseMap.put("result", "Exception");
+      responseMap.put(
+          "error",
+          "Invalid async param value: %s.async param should be true or false. "
+              .formatted(asyncString));
+      String responseMapString = adapter.toJson(responseMap);
+      return responseMapString;
+    }
     boolean hasHeader = hasHeaderString.equals("true");
+    boolean parallel = "true".equals(parallelString);
+    String dataset = datasetParam(request);
+    if (dataset.isBlank()) {
+      responseMap.put("result", "Exception");
+      responseMap.put("error", "dataset param should not be blank.");
+      String responseMapString = adapter.toJson(responseMap);
+      return responseMapString;
+    }
     try {
-
-      accessCSV.LoadCSV(path, hasHeader);
+      if ("true".equals(asyncString)) {
+        LoadJob job = loadJobs.submit(dataset, path, hasHeader, parallel);
+        responseMap.put("result", "success");
+        responseMap.put("dataset", dataset);
+        responseMap.put("jobId", job.getId());
+        responseMap.put("message", "CSV file %s is being loaded".formatted(path));
+        return adapter.toJson(responseMap);
+      }
+      accessCSV.LoadCSV(dataset, path, hasHeader, parallel);
       responseMap.put("result", "success");
+      responseMap.put("dataset", dataset);
       responseMap.put("message", "CSV file %s has been loaded".formatted(path));
 
     } catch (Exception e) {
@@ -85,4 +144,15 @@ public class LoadCSVHandler implements Route {
     String responseMapString = adapter.toJson(responseMap);
     return responseMapString;
   }
+
+  /**
+   * Gets the dataset a request names in its 'dataset' parameter.
+   *
+   * @param request The Spark request object.
+   * @return The named dataset, or {@link AccessCSV#DEFAULT_DATASET} if the request names none.
+   */
+  static String datasetParam(Request request) {
+    String dataset = request.queryParams("dataset");
+    return dataset == null ? AccessCSV.DEFAULT_DATASET : dataset;
+  }
 }
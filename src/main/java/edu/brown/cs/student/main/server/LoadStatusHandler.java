@@ -0,0 +1,80 @@
+package edu.brown.cs.student.main.server;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.csv.LoadJob;
+import edu.brown.cs.student.main.csv.LoadJobManager;
+import edu.brown.cs.student.main.csv.LoadProgress;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * LoadStatusHandler is a Spark Route implementation that reports the progress of a CSV file loaded
+ * with 'async=true' by the {@link LoadCSVHandler}.
+ */
+public class LoadStatusHandler implements Route {
+  private final LoadJobManager loadJobs;
+  private final JsonAdapter<Map<String, Object>> adapter;
+
+  /**
+   * Constructs a LoadStatusHandler reporting on the jobs of a {@link LoadJobManager}.
+   *
+   * @param loadJobs The manager the loads were submitted to.
+   */
+  public LoadStatusHandler(LoadJobManager loadJobs) {
+    this.loadJobs = loadJobs;
+    Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
+    Moshi moshi = new Moshi.Builder().build();
+    adapter = moshi.adapter(type);
+  }
+
+  /**
+   * Handles a request for the status of a load. The request is expected to contain the 'jobId'
+   * returned by loadcsv. Responds with a JSON object holding the state of the load (QUEUED,
+   * RUNNING, SUCCEEDED or FAILED), the bytes read out of the size of the file, the rows parsed, the
+   * throughput in bytes and rows per second, and the estimated time left in milliseconds (-1 while
+   * it cannot be estimated yet). A failed load also has its 'error'.
+   *
+   * @param request The Spark request object, containing the 'jobId' parameter.
+   * @param response The Spark response object, used to modify the response's properties.
+   * @return A string representing a JSON object with the status of the load.
+   */
+  @Override
+  public String handle(Request request, Response response) {
+    Map<String, Object> responseMap = new HashMap<>();
+    String jobId = request.queryParams("jobId");
+    if (jobId == null) {
+      responseMap.put("result", "Exception");
+      responseMap.put("error", "jobId param is not provided.");
+      return adapter.toJson(responseMap);
+    }
+    LoadJob job = loadJobs.getJob(jobId);
+    if (job == null) {
+      responseMap.put("result", "Exception");
+      responseMap.put("error", "No load job with id: %s.".formatted(jobId));
+      return adapter.toJson(responseMap);
+    }
+    LoadProgress progress = job.getProgress();
+    responseMap.put("result", "success");
+    responseMap.put("jobId", job.getId());
+    responseMap.put("dataset", job.getDataset());
+    responseMap.put("path", job.getPath());
+    responseMap.put("state", job.getState().name());
+    responseMap.put("bytesRead", progress.getBytesRead());
+    responseMap.put("totalBytes", progress.getTotalBytes());
+    responseMap.put("rowsParsed", progress.getRowsParsed());
+    responseMap.put("elapsedMillis", progress.getElapsedMillis());
+    responseMap.put("bytesPerSecond", progress.getBytesPerSecond());
+    responseMap.put("rowsPerSecond", progress.getRowsPerSecond());
+    responseMap.put("etaMillis", progress.getEtaMillis());
+    if (job.getError() != null) {
+      responseMap.put("error", job.getError());
+    }
+    return adapter.toJson(responseMap);
+  }
+}
@@ -0,0 +1,80 @@
+package edu.brown.cs.student.main.server;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.csv.AccessCSV;
+import edu.brown.cs.student.main.csv.Dataset;
+import edu.brown.cs.student.main.metrics.MetricsRegistry;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * MetricsHandler is a Spark Route implementation that reports the metrics of the server: the
+ * request rate, error rate and latency percentiles of every route, the latency of the upstream
+ * APIs, and gauges such as cache statistics and the sizes of the loaded datasets.
+ */
+public class MetricsHandler implements Route {
+  private final MetricsRegistry metrics;
+  private final JsonAdapter<Map<String, Object>> adapter;
+
+  /**
+   * Constructs a MetricsHandler reporting the metrics of a registry.
+   *
+   * @param metrics The registry to report.
+   */
+  public MetricsHandler(MetricsRegistry metrics) {
+    this.metrics = metrics;
+    Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
+    Moshi moshi = new Moshi.Builder().build();
+    adapter = moshi.adapter(type);
+  }
+
+  /**
+   * Describes the datasets loaded in an AccessCSV, for a gauge: the rows, columns and bytes of each
+   * dataset, and how long it took to load and at what throughput.
+   *
+   * @param accessCSV The AccessCSV.
+   * @return The description of every loaded dataset, by name.
+   */
+  public static Map<String, Object> describeDatasets(AccessCSV accessCSV) {
+    Map<String, Object> description = new LinkedHashMap<>();
+    for (String name : accessCSV.getDatasetNames()) {
+      Dataset dataset = accessCSV.getDataset(name);
+      if (dataset == null) {
+        continue; // replaced while being described
+      }
+      Map<String, Object> stats = new LinkedHashMap<>();
+      stats.put("path", dataset.path());
+      stats.put("rows", dataset.data().getRowCount());
+      stats.put("columns", dataset.data().getColumnCount());
+      stats.put("bytes", dataset.bytes());
+      stats.put("loadMillis", dataset.loadNanos() / 1_000_000.0);
+      stats.put("rowsPerSecond", dataset.rowsPerSecond());
+      stats.put("bytesPerSecond", dataset.bytesPerSecond());
+      description.put(name, stats);
+    }
+    return description;
+  }
+
+  /**
+   * Handles a request for the metrics of the server. Responds with a JSON object holding the
+   * 'routes' and 'upstreams' timers, each with its count, ratePerSecond, errors, errorRate and
+   * mean, max and p50/p95/p99/p999 latencies in microseconds, and the 'gauges'.
+   *
+   * @param request The Spark request object.
+   * @param response The Spark response object, used to modify the response's properties.
+   * @return A string representing a JSON object with the metrics.
+   */
+  @Override
+  public String handle(Request request, Response response) {
+    Map<String, Object> responseMap = new LinkedHashMap<>();
+    responseMap.put("result", "success");
+    responseMap.putAll(metrics.describe());
+    return adapter.toJson(responseMap);
+  }
+}
@@ -4,9 +4,11 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.csv.AccessCSV;
+import edu.brown.cs.student.main.csv.CsvPage;
+import edu.brown.cs.student.main.csv.PageRequest;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import spark.Request;
 import spark.Response;
@@ -39,16 +41,24 @@ public class SearchCSVHandler implements Route {
    * Handles a request to search within a loaded CSV file. The request should contain a query
    * parameter named 'query' specifying the search criteria. The method responds with a JSON object
    * indicating the result of the search operation, which can include the search results or an error
-   * message.
+   * message. Search results are streamed to the response row by row.
    *
-   * @param request The Spark request object, containing the 'query' parameter.
+   * <p>An optional 'dataset' parameter names the loaded file to search; without it the file loaded
+   * without a dataset name is searched.
+   *
+   * <p>Optional parameters select a page: 'offset' matching rows to skip or a 'cursor' from the
+   * 'nextCursor' of a previous page, a 'limit' on the number of rows, and 'columns', a
+   * comma-separated list of the column names or indexes to return.
+   *
+   * @param request The Spark request object, containing the 'query' parameter and the optional page
+   *     parameters.
    * @param response The Spark response object, used to modify the response's properties.
-   * @return A string representing a JSON object with the result of the search operation, including
-   *     either the search results or an error message.
+   * @return A string representing a JSON object with the result of the search operation, or empty
+   *     when the search results are streamed to the response instead.
+   * @throws IOException If the search results cannot be written to the client.
    */
   @Override
-  public String handle(Request request, Response response) {
-    // TODO: call accessCSV.searchCSV()
+  public String handle(Request request, Response response) throws IOException {
     String query = request.queryParams("query");
     Map<String, Object> responseMap = new HashMap<>();
     if (query == null) {
@@ -57,23 +67,29 @@ public class SearchCSVHandler implements Route {
       String responseMapString = adapter.toJson(responseMap);
       return responseMapString;
     }
+    PageRequest pageRequest;
+    CsvPage page;
     try {
-      List<List<String>> searchedResult = this.accessCSV.searchCSV(query);
-
-      if (searchedResult.isEmpty()) {
-        responseMap.put("result", "Exception");
-        responseMap.put("searchedResult", "No entries found with query: %s.".formatted(query));
-      } else {
-        responseMap.put("result", "success");
-        responseMap.put("searchedResult", searchedResult);
-      }
-
+      pageRequest =
+          PageRequest.parse(
+              request.queryParams("offset"),
+              request.queryParams("limit"),
+              request.queryParams("cursor"),
+              request.queryParams("columns"));
+      page = this.accessCSV.searchCSV(LoadCSVHandler.datasetParam(request), query, pageRequest);
     } catch (Exception e) {
       responseMap.put("result", "Exception");
       responseMap.put("error", e.toString());
       e.printStackTrace();
+      return adapter.toJson(responseMap);
+    }
+    boolean firstPage = pageRequest.offset() == 0 && pageRequest.cursor() == null;
+    if (!page.rows().isEmpty() || !firstPage || pageRequest.limit() == 0) {
+      // matching rows are rebuilt and written one at a time
+      return JsonRowStreamer.streamPage(response, "searchedResult", page);
     }
-    String responseMapString = adapter.toJson(responseMap);
-    return responseMapString;
+    responseMap.put("result", "Exception");
+    responseMap.put("searchedResult", "No entries found with query: %s.".formatted(query));
+    return adapter.toJson(responseMap);
   }
 }
@@ -1,36 +1,83 @@
 package edu.brown.cs.student.main.server;
 
-import static spark.Spark.after;
+import static spark.Spark.before;
 
 import edu.brown.cs.student.main.broadband.ACSCensusDataSource;
 import edu.brown.cs.student.main.broadband.CachedACSDataSource;
+import edu.brown.cs.student.main.broadband.CensusCacheConfig;
+import edu.brown.cs.student.main.broadband.CensusUpstreamConfig;
+import edu.brown.cs.student.main.broadband.DiskCacheStore;
 import edu.brown.cs.student.main.csv.AccessCSV;
+import edu.brown.cs.student.main.csv.LoadJobManager;
+import edu.brown.cs.student.main.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import spark.Spark;
 
 public class Server {
   public static void main(String[] args) {
     int port = 3232;
+    // virtual threads per request on Java 21+, a bounded pool otherwise (see ServerThreads)
+    ServerThreads.install(ServerThreads.fromProperties(System.getProperties()));
     Spark.port(port);
-    after(
+    // headers are set before the handlers run: streamed responses are committed by then
+    before(
         (request, response) -> {
           response.header("Access-Control-Allow-Origin", "*");
           response.header("Access-Control-Allow-Methods", "*");
         });
 
+    MetricsRegistry metrics = new MetricsRegistry();
     AccessCSV accessCSV = new AccessCSV();
-    Spark.get("loadcsv", new LoadCSVHandler(accessCSV));
-    Spark.get("searchcsv", new SearchCSVHandler(accessCSV));
-    Spark.get("viewcsv", new ViewCSVHandler(accessCSV));
-    ACSCensusDataSource source = new ACSCensusDataSource();
+    // loads with async=true are parsed here, off the request threads
+    LoadJobManager loadJobs = new LoadJobManager(accessCSV);
+    Spark.get("loadcsv", metrics.timed("loadcsv", new LoadCSVHandler(accessCSV, loadJobs)));
+    Spark.get("loadstatus", metrics.timed("loadstatus", new LoadStatusHandler(loadJobs)));
+    Spark.get("searchcsv", metrics.timed("searchcsv", new SearchCSVHandler(accessCSV)));
+    Spark.get("viewcsv", metrics.timed("viewcsv", new ViewCSVHandler(accessCSV)));
+    metrics.gauge("datasets", () -> MetricsHandler.describeDatasets(accessCSV));
+    ACSCensusDataSource source =
+        new ACSCensusDataSource(CensusUpstreamConfig.fromProperties(System.getProperties()));
     try {
       source.getStateCode();
       source.getACSVariables();
+      // with -Dcensus.preloadCounties=true, every state's county codes are fetched up front
+      if (Boolean.getBoolean("census.preloadCounties")) {
+        source.preloadCountyCodes();
+      }
     } catch (Exception e) {
       e.printStackTrace();
     }
-    CachedACSDataSource cached_source = new CachedACSDataSource(source);
+    DiskCacheStore diskStore = null;
+    try {
+      // census answers are kept on disk for a day, across restarts
+      diskStore = new DiskCacheStore(Paths.get("cache", "broadband.kv"), Duration.ofDays(1));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    // the first miss for a state fetches all its counties, unless -Dcensus.prefetchStates=false
+    boolean prefetchStates =
+        Boolean.parseBoolean(System.getProperty("census.prefetchStates", "true"));
+    // sized and refreshed per deployment, e.g. -Dcensus.cacheSize=5000
+    // -Dcensus.cacheRefreshSeconds=60
+    CachedACSDataSource cached_source =
+        new CachedACSDataSource(
+            source,
+            diskStore,
+            prefetchStates,
+            CensusCacheConfig.fromProperties(System.getProperties()));
 
-    Spark.get("broadband", new BroadbandHandler(cached_source));
+    Spark.get("broadband", metrics.timed("broadband", new BroadbandHandler(cached_source)));
+    Spark.get("warmup", metrics.timed("warmup", new WarmupHandler(cached_source)));
+    metrics.upstream("census", source.getUpstreamTimer());
+    metrics.gauge("censusBreaker", () -> source.getUpstream().getBreakerState().name());
+    metrics.gauge("censusRetries", source.getUpstream()::getRetryCount);
+    metrics.gauge("censusHedges", source.getUpstream()::getHedgeCount);
+    metrics.gauge("censusCache", () -> MetricsRegistry.describe(cached_source.getCacheStats()));
+    metrics.gauge("censusDiskHits", cached_source::getDiskHitCount);
+    metrics.gauge("censusNegativeHits", cached_source::getNegativeHitCount);
+    Spark.get("metrics", new MetricsHandler(metrics));
 
     Spark.init();
     Spark.awaitInitialization();
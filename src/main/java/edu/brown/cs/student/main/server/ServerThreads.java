@@ -0,0 +1,160 @@
+package edu.brown.cs.student.main.server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+/**
+ * Chooses the threads Spark handles requests on. By default every request runs on its own virtual
+ * thread, so requests that block on the census API do not use up a fixed pool of threads. Virtual
+ * threads need Java 21; on older runtimes, or when asked to, requests run on a bounded Jetty
+ * QueuedThreadPool instead.
+ *
+ * <p>The choice is read from these properties (e.g. {@code -Dserver.threads=pool}):
+ *
+ * <ul>
+ *   <li>{@code server.threads}: {@code virtual} (the default) or {@code pool}.
+ *   <li>{@code server.maxThreads}: the most threads of the pool; 200 by default.
+ *   <li>{@code server.minThreads}: the threads the pool keeps when idle; 8 by default.
+ *   <li>{@code server.queueSize}: the requests that may wait for a thread of the pool; 1000 by
+ *       default. Connections beyond that are closed.
+ *   <li>{@code server.idleTimeoutMillis}: how long a thread of the pool may stay idle before it is
+ *       stopped; 60000 by default.
+ * </ul>
+ */
+public final class ServerThreads {
+  static final String MODE = "server.threads";
+  static final String MAX_THREADS = "server.maxThreads";
+  static final String MIN_THREADS = "server.minThreads";
+  static final String QUEUE_SIZE = "server.queueSize";
+  static final String IDLE_TIMEOUT_MILLIS = "server.idleTimeoutMillis";
+
+  private static final MethodHandle NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+  private ServerThreads() {}
+
+  /**
+   * Makes Spark run requests on a thread pool. Must be called before the first route is mapped.
+   *
+   * @param threadPool The thread pool.
+   */
+  public static void install(ThreadPool threadPool) {
+    EmbeddedServers.add(
+        EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory().withThreadPool(threadPool));
+  }
+
+  /**
+   * Makes the thread pool that the given properties ask for.
+   *
+   * @param properties The properties, e.g. the system properties.
+   * @return A thread pool starting a virtual thread per task if it is asked for and this runtime
+   *     supports it, and a bounded QueuedThreadPool otherwise.
+   * @throws IllegalArgumentException If a property has an invalid value.
+   */
+  public static ThreadPool fromProperties(Properties properties) {
+    String mode = properties.getProperty(MODE, "virtual");
+    if (!mode.equals("virtual") && !mode.equals("pool")) {
+      throw new IllegalArgumentException(
+          "Invalid %s value: %s. It should be virtual or pool.".formatted(MODE, mode));
+    }
+    if (mode.equals("virtual") && virtualThreadsSupported()) {
+      return virtualThreads();
+    }
+    return boundedPool(
+        intProperty(properties, MAX_THREADS, 200),
+        intProperty(properties, MIN_THREADS, 8),
+        intProperty(properties, QUEUE_SIZE, 1000),
+        intProperty(properties, IDLE_TIMEOUT_MILLIS, 60_000));
+  }
+
+  /**
+   * Tells whether this runtime has virtual threads.
+   *
+   * @return True on Java 21 and later.
+   */
+  public static boolean virtualThreadsSupported() {
+    return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+  }
+
+  /**
+   * Makes a thread pool that starts a virtual thread per task.
+   *
+   * @return The thread pool.
+   * @throws UnsupportedOperationException If this runtime has no virtual threads.
+   */
+  public static ThreadPool virtualThreads() {
+    if (!virtualThreadsSupported()) {
+      throw new UnsupportedOperationException("Virtual threads need Java 21 or later.");
+    }
+    return new ExecutorServiceThreadPool(ServerThreads::newVirtualThreadExecutor);
+  }
+
+  /**
+   * Makes a bounded Jetty thread pool.
+   *
+   * @param maxThreads The most threads of the pool.
+   * @param minThreads The threads the pool keeps when idle.
+   * @param queueSize The tasks that may wait for a thread; more are rejected.
+   * @param idleTimeoutMillis How long a thread may stay idle before it is stopped.
+   * @return The thread pool.
+   * @throws IllegalArgumentException If the sizes are not positive or minThreads > maxThreads.
+   */
+  public static QueuedThreadPool boundedPool(
+      int maxThreads, int minThreads, int queueSize, int idleTimeoutMillis) {
+    if (minThreads <= 0 || maxThreads < minThreads || queueSize <= 0 || idleTimeoutMillis <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid thread pool: maxThreads=%d, minThreads=%d, queueSize=%d, idleTimeoutMillis=%d."
+              .formatted(maxThreads, minThreads, queueSize, idleTimeoutMillis));
+    }
+    QueuedThreadPool pool =
+        new QueuedThreadPool(
+            maxThreads,
+            minThreads,
+            idleTimeoutMillis,
+            new BlockingArrayQueue<>(Math.min(queueSize, 1024), 1024, queueSize));
+    pool.setName("spark-request");
+    return pool;
+  }
+
+  private static int intProperty(Properties properties, String name, int defaultValue) {
+    String value = properties.getProperty(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.strip());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "Invalid %s value: %s. It should be an integer.".formatted(name, value));
+    }
+  }
+
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invokeExact();
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot start virtual threads.", e);
+    }
+  }
+
+  /** Executors.newVirtualThreadPerTaskExecutor is looked up so the build still targets Java 17. */
+  private static MethodHandle findVirtualThreadExecutor() {
+    try {
+      return MethodHandles.publicLookup()
+          .findStatic(
+              Executors.class,
+              "newVirtualThreadPerTaskExecutor",
+              MethodType.methodType(ExecutorService.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+}
@@ -4,10 +4,11 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.csv.AccessCSV;
-import edu.brown.cs.student.main.csv.exceptions.CsvNotLoadedException;
+import edu.brown.cs.student.main.csv.CsvPage;
+import edu.brown.cs.student.main.csv.PageRequest;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import spark.Request;
 import spark.Response;
@@ -38,28 +39,41 @@ public class ViewCSVHandler implements Route {
   /**
    * Handles a request to view the contents of the currently loaded CSV file. Responds with a JSON
    * object that includes either the contents of the CSV file or an error message if no CSV file is
-   * loaded.
+   * loaded. The contents are streamed to the response row by row.
    *
-   * @param request The Spark request object. This handler does not use request parameters as
-   *     viewing the CSV does not require input from the request.
+   * <p>An optional 'dataset' parameter names the loaded file to view; without it the file loaded
+   * without a dataset name is viewed.
+   *
+   * <p>Optional parameters select a page: 'offset' rows to skip or a 'cursor' from the 'nextCursor'
+   * of a previous page, a 'limit' on the number of rows, and 'columns', a comma-separated list of
+   * the column names or indexes to return.
+   *
+   * @param request The Spark request object, containing the optional page parameters.
    * @param response The Spark response object, used to modify the response's properties.
-   * @return A string representing a JSON object with the result of the operation, including the
-   *     loaded CSV content or an error message.
+   * @return A string representing a JSON object with an error message; empty when the CSV content
+   *     is streamed to the response instead.
+   * @throws IOException If the CSV content cannot be written to the client.
    */
   @Override
-  public String handle(Request request, Response response) {
-    // TODO: call accessCSV.viewCSV()
+  public String handle(Request request, Response response) throws IOException {
     Map<String, Object> responseMap = new HashMap<>();
+    CsvPage page;
     try {
-      List<List<String>> csv = this.accessCSV.ViewCSV();
-      responseMap.put("result", "success");
-      responseMap.put("loadedCSV", csv);
-    } catch (CsvNotLoadedException e) {
+      page =
+          this.accessCSV.ViewCSV(
+              LoadCSVHandler.datasetParam(request),
+              PageRequest.parse(
+                  request.queryParams("offset"),
+                  request.queryParams("limit"),
+                  request.queryParams("cursor"),
+                  request.queryParams("columns")));
+    } catch (Exception e) {
       responseMap.put("result", "Exception");
       responseMap.put("error", e.toString());
       e.printStackTrace();
+      return adapter.toJson(responseMap);
     }
-    String responseMapString = adapter.toJson(responseMap);
-    return responseMapString;
+    // rows are written as they are read, so the response is never built in memory
+    return JsonRowStreamer.streamPage(response, "loadedCSV", page);
   }
 }
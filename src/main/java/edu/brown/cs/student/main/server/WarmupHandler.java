@@ -0,0 +1,70 @@
+package edu.brown.cs.student.main.server;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.broadband.ACSCensusDataSource;
+import edu.brown.cs.student.main.broadband.CachedACSDataSource;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * WarmupHandler is a Spark Route implementation that prefetches the broadband data of every county
+ * of a state into a {@link CachedACSDataSource}, so that later broadband requests for the state are
+ * answered from the cache.
+ */
+public class WarmupHandler implements Route {
+  private final CachedACSDataSource source;
+  private final JsonAdapter<Map<String, Object>> adapter;
+
+  /**
+   * Constructs a WarmupHandler prefetching into a cached data source.
+   *
+   * @param source The cached data source to prefetch into.
+   */
+  public WarmupHandler(CachedACSDataSource source) {
+    this.source = source;
+    Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
+    Moshi moshi = new Moshi.Builder().build();
+    adapter = moshi.adapter(type);
+  }
+
+  /**
+   * Handles a request to warm up a state. The request is expected to contain the 'State' name, and
+   * optionally the 'ACSVariable' to prefetch (the broadband percentage by default). Responds with a
+   * JSON object holding the number of 'counties' prefetched.
+   *
+   * @param request The Spark request object, containing the 'State' and 'ACSVariable' parameters.
+   * @param response The Spark response object, used to modify the response's properties.
+   * @return A string representing a JSON object with the result of the prefetch.
+   */
+  @Override
+  public String handle(Request request, Response response) {
+    Map<String, Object> responseMap = new HashMap<>();
+    String statename = request.queryParams("State");
+    String variable = request.queryParams("ACSVariable");
+    if (statename == null) {
+      responseMap.put("result", "Exception");
+      responseMap.put("error", "state name not provided");
+      return adapter.toJson(responseMap);
+    }
+    if (variable == null) {
+      variable = ACSCensusDataSource.BROADBAND_VARIABLE;
+    }
+    try {
+      int counties = source.prefetchState(statename, variable);
+      responseMap.put("result", "success");
+      responseMap.put("state name", statename);
+      responseMap.put("ACSVariable", variable);
+      responseMap.put("counties", counties);
+    } catch (Exception e) {
+      responseMap.put("result", "Exception");
+      responseMap.put("error", e.toString());
+    }
+    return adapter.toJson(responseMap);
+  }
+}
@@ -0,0 +1,161 @@
+package edu.brown.cs.student.broadband;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.broadband.ACSCensusDataSource;
+import edu.brown.cs.student.main.broadband.VariableCatalog;
+import edu.brown.cs.student.main.broadband.exceptions.DataSourceException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import okio.Buffer;
+
+/**
+ * An ACSCensusDataSource that answers census requests from canned data for two states, recording
+ * every endpoint it is asked for. The value of a variable is its dataset and name, such as
+ * "subject:S2802_C03_022E", and the same for every county; the variable DP_MISSING has no data. The
+ * variable lists of the two datasets name only a few variables, and are read as a census response
+ * would be; GEO_ID is only in the subject variables.
+ */
+public class FakeCensusDataSource extends ACSCensusDataSource {
+  private static final JsonAdapter<List<List<String>>> ROWS_ADAPTER =
+      new Moshi.Builder()
+          .build()
+          .adapter(
+              Types.newParameterizedType(
+                  List.class, Types.newParameterizedType(List.class, String.class)));
+  private static final Pattern DATA_REQUEST =
+      Pattern.compile(
+          "/data/2021/acs/acs1/(\\w+)/variables\\?get=NAME,([^&]+)&for=county:([^&]+)&in=state:(\\w+)");
+  private static final List<List<String>> COUNTIES =
+      List.of(
+          List.of("NAME", "state", "county"),
+          List.of("Napa County, California", "06", "055"),
+          List.of("Kern County, California", "06", "029"),
+          List.of("Kent County, Rhode Island", "44", "003"));
+  private static final List<List<String>> SUBJECT_VARIABLES =
+      List.of(
+          List.of("name", "label"),
+          List.of("S2802_C03_022E", "Broadband"),
+          List.of("S2704_C01_022E", "Coverage"),
+          List.of("GEO_ID", "Geography"));
+  private static final List<List<String>> PROFILE_VARIABLES =
+      List.of(
+          List.of("name", "label"),
+          List.of("DP02_0001E", "Households"),
+          List.of("DP03_0009PE", "Unemployment"),
+          List.of("DP_MISSING", "No data"));
+
+  final List<String> endpoints = new CopyOnWriteArrayList<>();
+  /* How long each request takes, and how many were in flight at once */
+  volatile long latencyMillis;
+  /* Appended to values as "@revision" when not 0, as if the census data had changed */
+  volatile int revision;
+  /* The next this many data requests fail as if the census API were unavailable */
+  final AtomicInteger unavailable = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  final AtomicInteger maxInFlight = new AtomicInteger();
+
+  @Override
+  protected CompletableFuture<List<List<String>>> fetchRowsAsync(String endpoint) {
+    endpoints.add(endpoint);
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    Executor executor = CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS);
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return rows(endpoint);
+          } catch (DataSourceException e) {
+            throw new CompletionException(e);
+          } finally {
+            inFlight.decrementAndGet();
+          }
+        },
+        executor);
+  }
+
+  private List<List<String>> rows(String endpoint) throws DataSourceException {
+    if (endpoint.endsWith("for=state:*")) {
+      return List.of(
+          List.of("NAME", "state"), List.of("California", "06"), List.of("Rhode Island", "44"));
+    }
+    if (endpoint.equals("/data/2021/acs/acs1/subject/variables")) {
+      return SUBJECT_VARIABLES;
+    }
+    if (endpoint.equals("/data/2021/acs/acs1/profile/variables")) {
+      return PROFILE_VARIABLES;
+    }
+    if (endpoint.endsWith("for=county:*")) {
+      return COUNTIES;
+    }
+    if (endpoint.startsWith("/data/2010/") && endpoint.contains("for=county:*&in=state:")) {
+      String state = endpoint.substring(endpoint.lastIndexOf(':') + 1);
+      List<List<String>> rows = new ArrayList<>(List.of(COUNTIES.get(0)));
+      for (List<String> county : COUNTIES.subList(1, COUNTIES.size())) {
+        if (county.get(1).equals(state)) {
+          rows.add(county);
+        }
+      }
+      return rows;
+    }
+    Matcher matcher = DATA_REQUEST.matcher(endpoint);
+    if (!matcher.matches()) {
+      throw new DataSourceException("unexpected endpoint " + endpoint);
+    }
+    if (unavailable.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+      throw new DataSourceException("unexpected: API connection not success status 503");
+    }
+    List<String> header = new ArrayList<>(List.of("NAME"));
+    List<String> values = new ArrayList<>();
+    for (String variable : matcher.group(2).split(",")) {
+      if (!variable.equals("DP_MISSING")) {
+        header.add(variable);
+        values.add(matcher.group(1) + ":" + variable + (revision == 0 ? "" : "@" + revision));
+      }
+    }
+    header.addAll(List.of("state", "county"));
+    List<List<String>> rows = new ArrayList<>(List.of(header));
+    for (List<String> county : COUNTIES.subList(1, COUNTIES.size())) {
+      if (county.get(1).equals(matcher.group(4))
+          && (matcher.group(3).equals("*") || county.get(2).equals(matcher.group(3)))) {
+        List<String> row = new ArrayList<>(List.of(county.get(0)));
+        row.addAll(values);
+        row.addAll(county.subList(1, 3));
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+
+  @Override
+  protected CompletableFuture<VariableCatalog> fetchCatalogAsync(String endpoint) {
+    return fetchRowsAsync(endpoint)
+        .thenApply(
+            rows -> {
+              try {
+                return VariableCatalog.read(
+                    JsonReader.of(new Buffer().writeUtf8(ROWS_ADAPTER.toJson(rows))));
+              } catch (IOException e) {
+                throw new CompletionException(e);
+              }
+            });
+  }
+
+  int requests(String fragment) {
+    return (int) endpoints.stream().filter(e -> e.contains(fragment)).count();
+  }
+
+  int dataRequests() {
+    return requests("/acs1/");
+  }
+}
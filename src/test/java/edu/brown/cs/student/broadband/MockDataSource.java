@@ -3,8 +3,12 @@ package edu.brown.cs.student.broadband;
 import static org.mockito.Mockito.*;
 
 import edu.brown.cs.student.main.broadband.CensusDataSource;
+import edu.brown.cs.student.main.broadband.exceptions.InputNotFoundException;
 
 public class MockDataSource implements CensusDataSource {
+  /** A variable that the mock does not know. */
+  public static final String UNKNOWN_VARIABLE = "S9999_C99_999E";
+
   private String broadbandp;
 
   @Override
@@ -16,6 +20,9 @@ public class MockDataSource implements CensusDataSource {
   @Override
   public String getBroadbandPercentage(String countyname, String statename, String variable)
       throws Exception {
+    if (variable.equals(UNKNOWN_VARIABLE)) {
+      throw new InputNotFoundException("ACS variable (" + variable);
+    }
     broadbandp = "100";
     return broadbandp;
   }
@@ -0,0 +1,144 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import edu.brown.cs.student.main.broadband.ACSCensusDataSource;
+import edu.brown.cs.student.main.broadband.CachedACSDataSource;
+import edu.brown.cs.student.main.broadband.CensusUpstreamConfig;
+import edu.brown.cs.student.main.broadband.exceptions.DataSourceException;
+import edu.brown.cs.student.main.broadband.exceptions.InputNotFoundException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestAsyncCensus {
+
+  private FakeCensusDataSource census;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    census = new FakeCensusDataSource();
+    census.getStateCode();
+    census.endpoints.clear();
+  }
+
+  @Test
+  public void testGroupsAreFetchedConcurrently() throws Exception {
+    census.getCountyCodes("06");
+    census.latencyMillis = 200;
+    census.maxInFlight.set(0);
+    CompletableFuture<Map<String, String>> lookup =
+        census.getBroadbandPercentagesAsync(
+            "Napa County", "California", List.of("S2802_C03_022E", "DP02_0001E"));
+    Map<String, String> values = lookup.join();
+    assertEquals("subject:S2802_C03_022E", values.get("S2802_C03_022E"));
+    assertEquals("profile:DP02_0001E", values.get("DP02_0001E"));
+    // the subject and profile requests were in flight together
+    assertEquals(2, census.maxInFlight.get());
+  }
+
+  @Test
+  public void testFailuresCompleteTheFuture() {
+    CompletionException error =
+        assertThrows(
+            CompletionException.class,
+            () -> census.getBroadbandPercentageAsync("Orange County", "California", "X").join());
+    assertTrue(error.getCause() instanceof InputNotFoundException);
+    // the synchronous lookups rethrow the cause
+    assertThrows(
+        InputNotFoundException.class,
+        () -> census.getBroadbandPercentage("Napa County", "Atlantis"));
+  }
+
+  @Test
+  public void testCachedAsync() throws Exception {
+    CachedACSDataSource cached = new CachedACSDataSource(census);
+    assertEquals(
+        "profile:DP02_0001E",
+        cached.getBroadbandPercentageAsync("Napa County", "California", "DP02_0001E").join());
+    int requests = census.endpoints.size();
+    // a cached value completes at once, without a request
+    CompletableFuture<String> hit =
+        cached.getBroadbandPercentageAsync("Napa County", "California", "DP02_0001E");
+    assertTrue(hit.isDone());
+    assertEquals("profile:DP02_0001E", hit.join());
+    assertEquals(
+        "profile:DP02_0001E",
+        cached.getBroadbandPercentage("Napa County", "California", "DP02_0001E"));
+    assertEquals(requests, census.endpoints.size());
+  }
+
+  @Test
+  public void testHttpClient() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    AtomicBoolean slow = new AtomicBoolean();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/data/2010/dec/sf1",
+        exchange -> {
+          requests.incrementAndGet();
+          if (slow.get()) {
+            try {
+              Thread.sleep(3000);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+          byte[] body =
+              "[[\"NAME\",\"state\"],[\"California\",\"06\"]]".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    ExecutorService executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.start();
+    try {
+      URI base = URI.create("http://localhost:" + server.getAddress().getPort());
+      ACSCensusDataSource source =
+          new ACSCensusDataSource(
+              HttpClient.newHttpClient(),
+              base,
+              Duration.ofSeconds(1),
+              new CensusUpstreamConfig(
+                  1,
+                  Duration.ofMillis(100),
+                  null,
+                  Duration.ofSeconds(15),
+                  5,
+                  Duration.ofSeconds(30)));
+      source.getStateCode();
+      source.getStateCode();
+      assertEquals("06", source.getStatecode_map().get("California"));
+      assertEquals(2, requests.get());
+      assertEquals(2, source.getUpstreamTimer().getLatency().snapshot().getCount());
+
+      // a response slower than the request timeout fails the lookup
+      slow.set(true);
+      long start = System.nanoTime();
+      assertThrows(DataSourceException.class, source::getStateCode);
+      assertTrue(System.nanoTime() - start < 2_500_000_000L);
+      assertEquals(1, source.getUpstreamTimer().getErrorCount());
+    } finally {
+      server.stop(0);
+      executor.shutdownNow();
+    }
+  }
+}
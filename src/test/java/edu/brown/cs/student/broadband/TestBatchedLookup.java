@@ -0,0 +1,87 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.broadband.CachedACSDataSource;
+import edu.brown.cs.student.main.broadband.exceptions.DataNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestBatchedLookup {
+
+  private FakeCensusDataSource census;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    census = new FakeCensusDataSource();
+    census.getStateCode();
+    census.endpoints.clear();
+  }
+
+  @Test
+  public void testOneRequestPerDataset() throws Exception {
+    Map<String, String> values =
+        census.getBroadbandPercentages(
+            "Napa County",
+            "California",
+            List.of("S2802_C03_022E", "DP02_0001E", "S2704_C01_022E", "DP03_0009PE"));
+    assertEquals(
+        List.of("S2802_C03_022E", "DP02_0001E", "S2704_C01_022E", "DP03_0009PE"),
+        new ArrayList<>(values.keySet()));
+    assertEquals("subject:S2802_C03_022E", values.get("S2802_C03_022E"));
+    assertEquals("profile:DP02_0001E", values.get("DP02_0001E"));
+    assertEquals("subject:S2704_C01_022E", values.get("S2704_C01_022E"));
+    // one county list, then one request for subject and one for profile variables
+    assertEquals(3, census.endpoints.size());
+    assertEquals(2, census.dataRequests());
+    assertTrue(census.endpoints.get(1).contains("get=NAME,S2802_C03_022E,S2704_C01_022E&"));
+
+    assertThrows(
+        DataNotFoundException.class,
+        () ->
+            census.getBroadbandPercentages(
+                "Napa County", "California", List.of("DP02_0001E", "DP_MISSING")));
+  }
+
+  @Test
+  public void testLargeBatchesAreSplit() throws Exception {
+    List<String> variables = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      variables.add("S0101_C01_%03dE".formatted(i));
+    }
+    Map<String, String> values =
+        census.getBroadbandPercentages("Napa County", "California", variables);
+    assertEquals(60, values.size());
+    // the census API takes at most 50 variables per request, NAME included
+    assertEquals(2, census.dataRequests());
+  }
+
+  @Test
+  public void testBatchFillsCache() throws Exception {
+    CachedACSDataSource cached = new CachedACSDataSource(census);
+    cached.getBroadbandPercentages(
+        "Napa County", "California", List.of("S2802_C03_022E", "DP02_0001E"));
+    assertEquals(2, census.dataRequests());
+
+    // only the new variable is fetched
+    Map<String, String> values =
+        cached.getBroadbandPercentages(
+            "Napa County", "California", List.of("DP02_0001E", "S2802_C03_022E", "DP03_0009PE"));
+    assertEquals(3, census.dataRequests());
+    assertTrue(census.endpoints.get(census.endpoints.size() - 1).contains("NAME,DP03_0009PE&"));
+    assertEquals("subject:S2802_C03_022E", values.get("S2802_C03_022E"));
+    assertEquals(
+        List.of("DP02_0001E", "S2802_C03_022E", "DP03_0009PE"), new ArrayList<>(values.keySet()));
+
+    // single lookups are served from what the batch cached
+    assertEquals(
+        "profile:DP03_0009PE",
+        cached.getBroadbandPercentage("Napa County", "California", "DP03_0009PE"));
+    assertEquals(3, census.dataRequests());
+  }
+}
@@ -0,0 +1,90 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.broadband.CachedACSDataSource;
+import edu.brown.cs.student.main.broadband.CensusCacheConfig;
+import java.time.Duration;
+import java.util.Properties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestCacheRefresh {
+  private static final String OLD = "subject:S2802_C03_022E";
+  private static final String NEW = "subject:S2802_C03_022E@1";
+
+  private FakeCensusDataSource census;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    census = new FakeCensusDataSource();
+    census.getStateCode();
+  }
+
+  @Test
+  public void testStaleValueServedWhileRefreshing() throws Exception {
+    CachedACSDataSource cached =
+        new CachedACSDataSource(
+            census,
+            null,
+            false,
+            new CensusCacheConfig(100, Duration.ofSeconds(30), Duration.ofMillis(200)));
+    assertEquals(OLD, cached.getBroadbandPercentage("Napa County", "California"));
+    census.revision = 1;
+    census.latencyMillis = 500;
+    Thread.sleep(300);
+
+    // the entry is due for a refresh: the old value is returned without waiting for the census
+    long start = System.nanoTime();
+    assertEquals(OLD, cached.getBroadbandPercentage("Napa County", "California"));
+    assertTrue(System.nanoTime() - start < 250_000_000L);
+
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (!NEW.equals(cached.getBroadbandPercentage("Napa County", "California"))
+        && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertEquals(NEW, cached.getBroadbandPercentage("Napa County", "California"));
+    assertEquals(2, cached.getCacheLoadCount());
+  }
+
+  @Test
+  public void testWithoutRefresh() throws Exception {
+    CachedACSDataSource cached =
+        new CachedACSDataSource(
+            census, null, false, new CensusCacheConfig(100, Duration.ofMillis(200), null));
+    assertEquals(OLD, cached.getBroadbandPercentage("Napa County", "California"));
+    census.revision = 1;
+    Thread.sleep(300);
+    // an expired entry is loaded again before it is returned
+    assertEquals(NEW, cached.getBroadbandPercentage("Napa County", "California"));
+  }
+
+  @Test
+  public void testConfigFromProperties() {
+    Properties properties = new Properties();
+    assertEquals(
+        new CensusCacheConfig(1000, Duration.ofHours(1), Duration.ofMinutes(5)),
+        CensusCacheConfig.fromProperties(properties));
+    properties.setProperty("census.cacheSize", "50");
+    properties.setProperty("census.cacheExpireSeconds", "600");
+    properties.setProperty("census.cacheRefreshSeconds", "0");
+    CensusCacheConfig config = CensusCacheConfig.fromProperties(properties);
+    assertEquals(50, config.maximumSize());
+    assertEquals(Duration.ofMinutes(10), config.expireAfterWrite());
+    assertNull(config.refreshAfterWrite());
+
+    properties.setProperty("census.cacheRefreshSeconds", "600");
+    assertThrows(
+        IllegalArgumentException.class, () -> CensusCacheConfig.fromProperties(properties));
+    properties.setProperty("census.cacheSize", "lots");
+    assertThrows(
+        IllegalArgumentException.class, () -> CensusCacheConfig.fromProperties(properties));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new CensusCacheConfig(0, Duration.ofMinutes(1), null));
+  }
+}
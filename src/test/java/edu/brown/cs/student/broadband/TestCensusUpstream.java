@@ -0,0 +1,312 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import edu.brown.cs.student.main.broadband.ACSCensusDataSource;
+import edu.brown.cs.student.main.broadband.CensusUpstream;
+import edu.brown.cs.student.main.broadband.CensusUpstreamConfig;
+import edu.brown.cs.student.main.broadband.CircuitBreaker;
+import edu.brown.cs.student.main.broadband.exceptions.DataSourceException;
+import edu.brown.cs.student.main.metrics.CallTimer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests the retries, hedging, deadline and circuit breaker against a local stub census API. */
+public class TestCensusUpstream {
+  private static final byte[] STATES =
+      "[[\"NAME\",\"state\"],[\"California\",\"06\"]]".getBytes(StandardCharsets.UTF_8);
+
+  private HttpServer server;
+  private ExecutorService executor;
+  private final AtomicInteger requests = new AtomicInteger();
+  /* The next this many requests are answered with failureStatus */
+  private final AtomicInteger failures = new AtomicInteger();
+  private volatile int failureStatus = 503;
+  /* The request with this number stalls for stallMillis; every request does if it is 0 */
+  private volatile int stalledRequest = -1;
+  private volatile long stallMillis;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/data/2010/dec/sf1",
+        exchange -> {
+          int number = requests.incrementAndGet();
+          if (stalledRequest == 0 || stalledRequest == number) {
+            try {
+              Thread.sleep(stallMillis);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+          if (failures.getAndUpdate(f -> Math.max(0, f - 1)) > 0) {
+            exchange.sendResponseHeaders(failureStatus, -1);
+            exchange.close();
+            return;
+          }
+          exchange.sendResponseHeaders(200, STATES.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(STATES);
+          }
+        });
+    server.createContext(
+        "/data/2021/acs/acs1",
+        exchange -> {
+          byte[] body =
+              ("[[\"name\",\"label\",\"concept\"],[\"S2802_C03_022E\",\"Broadband\",\"X\"],"
+                      + "[\"DP02_0001E\",\"Households\",\"Y\"]]")
+                  .getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  @AfterEach
+  public void teardown() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private ACSCensusDataSource census(CensusUpstreamConfig config) {
+    return new ACSCensusDataSource(
+        HttpClient.newHttpClient(),
+        URI.create("http://localhost:" + server.getAddress().getPort()),
+        Duration.ofSeconds(5),
+        config);
+  }
+
+  private static CensusUpstreamConfig config(
+      int maxAttempts, Duration hedgeDelay, Duration deadline, int breakerFailures) {
+    return new CensusUpstreamConfig(
+        maxAttempts,
+        Duration.ofMillis(10),
+        hedgeDelay,
+        deadline,
+        breakerFailures,
+        Duration.ofMillis(300));
+  }
+
+  @Test
+  public void testTransientFailuresRetried() throws Exception {
+    ACSCensusDataSource census = census(config(3, null, Duration.ofSeconds(5), 5));
+    failures.set(2);
+    census.getStateCode();
+    assertEquals("06", census.getStatecode_map().get("California"));
+    assertEquals(3, requests.get());
+    assertEquals(2, census.getUpstream().getRetryCount());
+    assertEquals(2, census.getUpstreamTimer().getErrorCount());
+
+    // three failures are one too many
+    failures.set(3);
+    assertThrows(DataSourceException.class, census::getStateCode);
+    assertEquals(6, requests.get());
+  }
+
+  @Test
+  public void testClientErrorsNotRetried() {
+    ACSCensusDataSource census = census(config(3, null, Duration.ofSeconds(5), 5));
+    failureStatus = 400;
+    failures.set(1);
+    assertThrows(DataSourceException.class, census::getStateCode);
+    assertEquals(1, requests.get());
+    assertEquals(0, census.getUpstream().getRetryCount());
+    // the API answered, so the breaker stays closed
+    assertEquals(CircuitBreaker.State.CLOSED, census.getUpstream().getBreakerState());
+  }
+
+  @Test
+  public void testBreakerOpensAndRecovers() throws Exception {
+    ACSCensusDataSource census = census(config(1, null, Duration.ofSeconds(5), 2));
+    failures.set(2);
+    assertThrows(DataSourceException.class, census::getStateCode);
+    assertThrows(DataSourceException.class, census::getStateCode);
+    assertEquals(CircuitBreaker.State.OPEN, census.getUpstream().getBreakerState());
+
+    // while open, calls fail without a request
+    assertThrows(DataSourceException.class, census::getStateCode);
+    assertEquals(2, requests.get());
+
+    Thread.sleep(400);
+    census.getStateCode();
+    assertEquals(3, requests.get());
+    assertEquals(CircuitBreaker.State.CLOSED, census.getUpstream().getBreakerState());
+  }
+
+  @Test
+  public void testSlowRequestHedged() throws Exception {
+    ACSCensusDataSource census = census(config(1, Duration.ofMillis(20), Duration.ofSeconds(5), 5));
+    // enough fast requests to know the p95 latency
+    for (int i = 0; i < 20; i++) {
+      census.getStateCode();
+    }
+    assertEquals(0, census.getUpstream().getHedgeCount());
+
+    stalledRequest = 21;
+    stallMillis = 3000;
+    long start = System.nanoTime();
+    census.getStateCode();
+    // the duplicate answered long before the stalled request would have
+    assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    assertEquals(1, census.getUpstream().getHedgeCount());
+    assertEquals(22, requests.get());
+    // the stalled request was given up on, which is not a failed call
+    Thread.sleep(100);
+    assertEquals(0, census.getUpstreamTimer().getErrorCount());
+    assertEquals(21, census.getUpstreamTimer().getLatency().snapshot().getCount());
+  }
+
+  @Test
+  public void testLosingRequestCancelled() throws Exception {
+    CallTimer timer = new CallTimer();
+    for (int i = 0; i < 20; i++) {
+      timer.record(TimeUnit.MILLISECONDS.toNanos(1), false);
+    }
+    CensusUpstream upstream =
+        new CensusUpstream(config(1, Duration.ofMillis(20), Duration.ofSeconds(5), 5), timer);
+    List<CompletableFuture<String>> sent = new CopyOnWriteArrayList<>();
+    CompletableFuture<String> answer =
+        upstream.call(
+            timeout -> {
+              CompletableFuture<String> request = new CompletableFuture<>();
+              sent.add(request);
+              if (sent.size() == 2) {
+                request.complete("hedge");
+              }
+              return request;
+            },
+            error -> true);
+    assertEquals("hedge", answer.get(2, TimeUnit.SECONDS));
+    assertEquals(2, sent.size());
+    // the stalled request itself is given up on, not just the stage that waited for it
+    assertThrows(CancellationException.class, () -> sent.get(0).get(2, TimeUnit.SECONDS));
+    assertEquals(CircuitBreaker.State.CLOSED, upstream.getBreakerState());
+  }
+
+  @Test
+  public void testDeadline() {
+    ACSCensusDataSource census = census(config(3, null, Duration.ofMillis(300), 5));
+    stalledRequest = 0;
+    stallMillis = 3000;
+    long start = System.nanoTime();
+    assertThrows(DataSourceException.class, census::getStateCode);
+    // neither the stalled request nor a retry is waited for
+    assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void testVariableListsStreamed() throws Exception {
+    ACSCensusDataSource census = census(CensusUpstreamConfig.DEFAULT);
+    census.getACSVariables();
+    assertEquals(List.of("S2802_C03_022E"), census.findVariables("S28"));
+    assertFalse(census.isUnknownVariable("DP02_0001E"));
+    assertTrue(census.isUnknownVariable("Broadband"));
+    assertEquals(2, census.getUpstreamTimer().getLatency().snapshot().getCount());
+  }
+
+  @Test
+  public void testCircuitBreaker() {
+    ManualClock clock = new ManualClock();
+    CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), clock);
+    assertTrue(breaker.tryAcquire());
+    breaker.onFailure();
+    assertTrue(breaker.tryAcquire());
+    breaker.onSuccess();
+    // failures must be in a row
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquire());
+    // a call made before the breaker opened cannot close it
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquire());
+
+    // one trial once the breaker has been open long enough
+    clock.advance(Duration.ofSeconds(10));
+    assertTrue(breaker.tryAcquire());
+    assertFalse(breaker.tryAcquire());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    clock.advance(Duration.ofSeconds(10));
+    assertTrue(breaker.tryAcquire());
+    breaker.onCancel();
+    assertTrue(breaker.tryAcquire());
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testConfigFromProperties() {
+    Properties properties = new Properties();
+    assertEquals(CensusUpstreamConfig.DEFAULT, CensusUpstreamConfig.fromProperties(properties));
+    properties.setProperty("census.maxAttempts", "1");
+    properties.setProperty("census.hedgeDelayMillis", "0");
+    properties.setProperty("census.deadlineMillis", "2000");
+    CensusUpstreamConfig config = CensusUpstreamConfig.fromProperties(properties);
+    assertEquals(1, config.maxAttempts());
+    assertNull(config.hedgeDelay());
+    assertEquals(Duration.ofSeconds(2), config.deadline());
+    properties.setProperty("census.breakerFailures", "0");
+    assertThrows(
+        IllegalArgumentException.class, () -> CensusUpstreamConfig.fromProperties(properties));
+    properties.setProperty("census.breakerFailures", "many");
+    assertThrows(
+        IllegalArgumentException.class, () -> CensusUpstreamConfig.fromProperties(properties));
+  }
+
+  /** A clock that only moves when told to. */
+  private static class ManualClock extends Clock {
+    private long millis = 1_000_000;
+
+    void advance(Duration duration) {
+      millis += duration.toMillis();
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneOffset getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(java.time.ZoneId zone) {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.broadband.exceptions.InputNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestCountyCodes {
+  private static final String COUNTY_LIST = "for=county:*";
+
+  private FakeCensusDataSource census;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    census = new FakeCensusDataSource();
+    census.getStateCode();
+    census.endpoints.clear();
+  }
+
+  @Test
+  public void testCountyListFetchedOncePerState() throws Exception {
+    assertEquals(
+        "subject:S2802_C03_022E", census.getBroadbandPercentage("Napa County", "California"));
+    assertEquals(2, census.endpoints.size());
+    // later lookups in the same state make exactly one upstream call
+    census.getBroadbandPercentage("Kern County", "California");
+    census.getBroadbandPercentage("Napa County", "California", "DP02_0001E");
+    assertEquals(1, census.requests(COUNTY_LIST));
+    assertEquals(4, census.endpoints.size());
+
+    census.getBroadbandPercentage("Kent County", "Rhode Island");
+    assertEquals(2, census.requests(COUNTY_LIST));
+    assertThrows(
+        InputNotFoundException.class,
+        () -> census.getBroadbandPercentage("Napa County", "Rhode Island"));
+    assertEquals(2, census.requests(COUNTY_LIST));
+
+    // the code maps of a state are immutable
+    Map<String, String> codes = census.getCountyCodes("06");
+    assertEquals(Map.of("Napa County", "055", "Kern County", "029"), codes);
+    assertThrows(UnsupportedOperationException.class, () -> codes.put("Orange County", "059"));
+  }
+
+  @Test
+  public void testPreload() throws Exception {
+    census.preloadCountyCodes();
+    assertEquals(1, census.endpoints.size());
+    assertEquals("003", census.getCountyCodes("44").get("Kent County"));
+    census.getBroadbandPercentage("Napa County", "California");
+    census.getBroadbandPercentage("Kent County", "Rhode Island");
+    assertEquals(1, census.requests(COUNTY_LIST));
+    assertEquals(3, census.endpoints.size());
+  }
+
+  @Test
+  public void testConcurrentLookups() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 64; i++) {
+      String county = i % 2 == 0 ? "Napa County" : "Kern County";
+      results.add(executor.submit(() -> census.getBroadbandPercentage(county, "California")));
+    }
+    for (Future<String> result : results) {
+      assertEquals("subject:S2802_C03_022E", result.get());
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    // concurrent first lookups of a state share one fetch of its county list
+    assertEquals(1, census.requests(COUNTY_LIST));
+    assertEquals(64, census.dataRequests());
+  }
+}
@@ -0,0 +1,164 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.broadband.ACSCensusDataSource;
+import edu.brown.cs.student.main.broadband.CachedACSDataSource;
+import edu.brown.cs.student.main.broadband.DiskCacheStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestDiskCacheStore {
+
+  @TempDir Path tempDir;
+
+  /** A clock that only moves when told to. */
+  private static class ManualClock extends Clock {
+    private long millis = 1_000_000;
+
+    void advance(Duration duration) {
+      millis += duration.toMillis();
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneOffset getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(java.time.ZoneId zone) {
+      return this;
+    }
+  }
+
+  /** Answers every county with a fixed value, counting its calls, without the census API. */
+  private static class CountingSource extends ACSCensusDataSource {
+    int calls;
+
+    @Override
+    public String getBroadbandPercentage(String countyname, String statename, String variable) {
+      calls++;
+      return "88.5";
+    }
+  }
+
+  @Test
+  void testSurvivesReopen() throws Exception {
+    Path file = tempDir.resolve("cache/broadband.kv");
+    long size;
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      store.put("Kent County,Rhode Island", "85.1");
+      store.put("Napa County,California", "90.2");
+      store.put("Kent County,Rhode Island", "86.0");
+      assertEquals("86.0", store.get("Kent County,Rhode Island"));
+      assertNull(store.get("Orange County,California"));
+      size = store.fileSize();
+    }
+    // the unused end of the mapped chunk is not left in the file
+    assertEquals(size, Files.size(file));
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      assertEquals(2, store.size());
+      assertEquals("86.0", store.get("Kent County,Rhode Island"));
+      assertEquals("90.2", store.get("Napa County,California"));
+    }
+  }
+
+  @Test
+  void testTimeToLive() throws Exception {
+    ManualClock clock = new ManualClock();
+    Path file = tempDir.resolve("ttl.kv");
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofMinutes(10), clock)) {
+      store.put("old", "1");
+      clock.advance(Duration.ofMinutes(6));
+      store.put("new", "2");
+      clock.advance(Duration.ofMinutes(6));
+      assertNull(store.get("old"));
+      assertEquals("2", store.get("new"));
+
+      // compaction drops the expired entry
+      long before = store.fileSize();
+      store.compact();
+      assertTrue(store.fileSize() < before);
+      assertEquals(1, store.size());
+      assertEquals("2", store.get("new"));
+    }
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofMinutes(10), clock)) {
+      assertEquals("2", store.get("new"));
+    }
+  }
+
+  @Test
+  void testCompactsWhenMostlyStale() throws Exception {
+    Path file = tempDir.resolve("compact.kv");
+    String value = "x".repeat(1000);
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      for (int i = 0; i < 5000; i++) {
+        store.put("key" + (i % 10), value + i);
+      }
+      // 5000 records of about 1KB were written, but only 10 keys are live
+      assertTrue(store.fileSize() < 3 << 20, "file size " + store.fileSize());
+      for (int i = 0; i < 10; i++) {
+        assertEquals(value + (4990 + i), store.get("key" + i));
+      }
+    }
+  }
+
+  @Test
+  void testTornTailIsDropped() throws Exception {
+    Path file = tempDir.resolve("torn.kv");
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      store.put("a", "1");
+      store.put("b", "2");
+    }
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      assertEquals("1", store.get("a"));
+      assertNull(store.get("b"));
+      store.put("c", "3");
+    }
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      assertEquals("1", store.get("a"));
+      assertEquals("3", store.get("c"));
+    }
+  }
+
+  @Test
+  void testDiskTierServesAfterRestart() throws Exception {
+    Path file = tempDir.resolve("broadband.kv");
+    CountingSource source = new CountingSource();
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      CachedACSDataSource cached = new CachedACSDataSource(source, store);
+      assertEquals("88.5", cached.getBroadbandPercentage("Kent County", "Rhode Island", "X"));
+      assertEquals("88.5", cached.getBroadbandPercentage("Kent County", "Rhode Island", "X"));
+      assertEquals(1, source.calls);
+    }
+    // a new in-memory cache, as after a restart
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      CachedACSDataSource cached = new CachedACSDataSource(source, store);
+      assertEquals("88.5", cached.getBroadbandPercentage("Kent County", "Rhode Island", "X"));
+      assertEquals(1, source.calls);
+      assertEquals(1, cached.getDiskHitCount());
+      assertEquals(1, cached.getCacheMissCount());
+    }
+  }
+}
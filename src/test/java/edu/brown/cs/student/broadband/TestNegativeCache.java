@@ -0,0 +1,274 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import edu.brown.cs.student.main.broadband.ACSCensusDataSource;
+import edu.brown.cs.student.main.broadband.CachedACSDataSource;
+import edu.brown.cs.student.main.broadband.CensusCacheConfig;
+import edu.brown.cs.student.main.broadband.CensusUpstreamConfig;
+import edu.brown.cs.student.main.broadband.CircuitBreaker;
+import edu.brown.cs.student.main.broadband.exceptions.DataSourceException;
+import edu.brown.cs.student.main.broadband.exceptions.InputNotFoundException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestNegativeCache {
+
+  private FakeCensusDataSource census;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    census = new FakeCensusDataSource();
+    census.getStateCode();
+  }
+
+  private CachedACSDataSource cached(Duration negativeExpiry) {
+    return new CachedACSDataSource(
+        census,
+        null,
+        false,
+        new CensusCacheConfig(100, Duration.ofMinutes(1), null, 100, negativeExpiry));
+  }
+
+  @Test
+  public void testUnknownCountyIsRemembered() throws Exception {
+    CachedACSDataSource cached = cached(Duration.ofMinutes(1));
+    assertThrows(
+        InputNotFoundException.class,
+        () -> cached.getBroadbandPercentage("Napa Cuonty", "California"));
+    int requests = census.endpoints.size();
+    assertEquals(0, cached.getNegativeHitCount());
+
+    // the same lookup is rejected without a request, or a load of the cache
+    for (int i = 0; i < 5; i++) {
+      assertThrows(
+          InputNotFoundException.class,
+          () -> cached.getBroadbandPercentage("Napa Cuonty", "California"));
+    }
+    assertEquals(requests, census.endpoints.size());
+    assertEquals(5, cached.getNegativeHitCount());
+    assertEquals(1, cached.getCacheLoadCount());
+
+    // other counties are still looked up
+    assertEquals(
+        "subject:S2802_C03_022E", cached.getBroadbandPercentage("Napa County", "California"));
+  }
+
+  @Test
+  public void testAsyncLookupsAreRemembered() {
+    CachedACSDataSource cached = cached(Duration.ofMinutes(1));
+    assertThrows(
+        CompletionException.class,
+        () -> cached.getBroadbandPercentageAsync("Napa County", "Atlantis", "DP02_0001E").join());
+    int requests = census.endpoints.size();
+    CompletableFuture<String> rejected =
+        cached.getBroadbandPercentageAsync("Napa County", "Atlantis", "DP02_0001E");
+    assertTrue(rejected.isCompletedExceptionally());
+    assertEquals(requests, census.endpoints.size());
+    assertEquals(1, cached.getNegativeHitCount());
+
+    // a variable without data is remembered for the batched lookup too
+    assertThrows(
+        InputNotFoundException.class,
+        () -> cached.getBroadbandPercentages("Napa County", "California", List.of("DP_MISSING")));
+    requests = census.endpoints.size();
+    assertThrows(
+        InputNotFoundException.class,
+        () ->
+            cached.getBroadbandPercentages(
+                "Napa County", "California", List.of("DP02_0001E", "DP_MISSING")));
+    assertEquals(requests, census.endpoints.size());
+  }
+
+  @Test
+  public void testUnavailableApiNotRemembered() throws Exception {
+    CachedACSDataSource cached = cached(Duration.ofMinutes(1));
+    census.unavailable.set(1);
+    // an unavailable census API is not reported as bad input
+    assertThrows(
+        DataSourceException.class,
+        () -> cached.getBroadbandPercentage("Napa County", "California", "DP02_0001E"));
+    // the lookup is tried again, and answered, as soon as the census API is back
+    assertEquals(
+        "profile:DP02_0001E",
+        cached.getBroadbandPercentage("Napa County", "California", "DP02_0001E"));
+    assertEquals(0, cached.getNegativeHitCount());
+
+    census.unavailable.set(1);
+    assertThrows(
+        CompletionException.class,
+        () -> cached.getBroadbandPercentageAsync("Kern County", "California", "DP02_0001E").join());
+    assertEquals(
+        "profile:DP02_0001E",
+        cached.getBroadbandPercentageAsync("Kern County", "California", "DP02_0001E").join());
+    assertEquals(0, cached.getNegativeHitCount());
+  }
+
+  @Test
+  public void testOpenBreakerNotRemembered() throws Exception {
+    // a census API that knows its states and counties, but answers every data request with a 503
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          String query = exchange.getRequestURI().getQuery();
+          String json =
+              query.contains("for=state:*")
+                  ? "[[\"NAME\",\"state\"],[\"California\",\"06\"]]"
+                  : "[[\"NAME\",\"state\",\"county\"],[\"Napa County, California\",\"06\",\"055\"]]";
+          if (exchange.getRequestURI().getPath().startsWith("/data/2021/")) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+          }
+          byte[] body = json.getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    server.start();
+    try {
+      ACSCensusDataSource source =
+          new ACSCensusDataSource(
+              HttpClient.newHttpClient(),
+              URI.create("http://localhost:" + server.getAddress().getPort()),
+              Duration.ofSeconds(5),
+              new CensusUpstreamConfig(
+                  1, Duration.ofMillis(10), null, Duration.ofSeconds(5), 1, Duration.ofMinutes(1)));
+      source.getStateCode();
+      source.getCountyCodes("06");
+      CachedACSDataSource cached =
+          new CachedACSDataSource(
+              source,
+              null,
+              false,
+              new CensusCacheConfig(100, Duration.ofMinutes(1), null, 100, Duration.ofMinutes(1)));
+
+      // the 503 opens the breaker, and the next lookup is turned away by it
+      assertThrows(
+          DataSourceException.class,
+          () -> cached.getBroadbandPercentage("Napa County", "California", "DP02_0001E"));
+      assertEquals(CircuitBreaker.State.OPEN, source.getUpstream().getBreakerState());
+      CompletionException error =
+          assertThrows(
+              CompletionException.class,
+              () ->
+                  cached
+                      .getBroadbandPercentageAsync("Napa County", "California", "DP02_0001E")
+                      .join());
+      assertTrue(error.getCause() instanceof DataSourceException);
+      DataSourceException open =
+          assertThrows(
+              DataSourceException.class,
+              () -> cached.getBroadbandPercentage("Napa County", "California", "DP02_0001E"));
+      assertTrue(open.getMessage().contains("circuit breaker open"));
+      assertThrows(
+          DataSourceException.class,
+          () ->
+              cached.getBroadbandPercentages(
+                  "Napa County", "California", List.of("DP02_0001E", "DP02_0002E")));
+      // neither failure was remembered as an unknown input
+      assertEquals(0, cached.getNegativeHitCount());
+      assertEquals(2, cached.getCacheLoadCount());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testRememberedForShortWhile() throws Exception {
+    CachedACSDataSource cached = cached(Duration.ofMillis(200));
+    assertThrows(
+        InputNotFoundException.class,
+        () -> cached.getBroadbandPercentage("Orange County", "California", "DP02_0001E"));
+    assertThrows(
+        InputNotFoundException.class,
+        () -> cached.getBroadbandPercentage("Orange County", "California", "DP02_0001E"));
+    assertEquals(1, cached.getNegativeHitCount());
+    Thread.sleep(300);
+
+    // once forgotten, the lookup is tried again
+    assertThrows(
+        InputNotFoundException.class,
+        () -> cached.getBroadbandPercentage("Orange County", "California", "DP02_0001E"));
+    assertEquals(1, cached.getNegativeHitCount());
+    assertEquals(2, cached.getCacheLoadCount());
+  }
+
+  @Test
+  public void testWithoutNegativeCache() {
+    CachedACSDataSource cached = cached(null);
+    for (int i = 0; i < 2; i++) {
+      assertThrows(
+          InputNotFoundException.class,
+          () -> cached.getBroadbandPercentage("Napa Cuonty", "California"));
+    }
+    assertEquals(0, cached.getNegativeHitCount());
+    assertEquals(2, cached.getCacheLoadCount());
+  }
+
+  @Test
+  public void testUnknownVariableRejectedLocally() throws Exception {
+    // without the variable lists, an unknown variable is asked for
+    assertFalse(census.isUnknownVariable("S9999_C01_001E"));
+    census.getACSVariables();
+    assertEquals(2, census.requests("/variables"));
+    assertTrue(census.isUnknownVariable("S9999_C01_001E"));
+    assertTrue(census.isUnknownVariable("DP99_0001E"));
+    assertFalse(census.isUnknownVariable("DP03_0009PE"));
+
+    census.getCountyCodes("06");
+    census.endpoints.clear();
+    assertThrows(
+        InputNotFoundException.class,
+        () -> census.getBroadbandPercentage("Napa County", "California", "S9999_C01_001E"));
+    assertThrows(
+        InputNotFoundException.class,
+        () ->
+            census.getBroadbandPercentages(
+                "Napa County", "California", List.of("DP02_0001E", "DP99_0001E")));
+    assertThrows(
+        InputNotFoundException.class,
+        () -> census.getStateBroadbandPercentages("California", "S9999_C01_001E"));
+    assertEquals(0, census.endpoints.size());
+    assertEquals(
+        "subject:S2704_C01_022E",
+        census.getBroadbandPercentage("Napa County", "California", "S2704_C01_022E"));
+  }
+
+  @Test
+  public void testConfig() {
+    Properties properties = new Properties();
+    CensusCacheConfig config = CensusCacheConfig.fromProperties(properties);
+    assertEquals(10_000, config.negativeMaximumSize());
+    assertEquals(Duration.ofMinutes(1), config.negativeExpireAfterWrite());
+    properties.setProperty("census.negativeCacheSize", "500");
+    properties.setProperty("census.negativeCacheExpireSeconds", "0");
+    config = CensusCacheConfig.fromProperties(properties);
+    assertEquals(500, config.negativeMaximumSize());
+    assertNull(config.negativeExpireAfterWrite());
+
+    properties.setProperty("census.negativeCacheSize", "0");
+    assertThrows(
+        IllegalArgumentException.class, () -> CensusCacheConfig.fromProperties(properties));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new CensusCacheConfig(10, Duration.ofMinutes(1), null, 10, Duration.ofSeconds(-1)));
+  }
+}
@@ -0,0 +1,110 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.brown.cs.student.main.broadband.CachedACSDataSource;
+import edu.brown.cs.student.main.broadband.DiskCacheStore;
+import edu.brown.cs.student.main.broadband.exceptions.InputNotFoundException;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestStatePrefetch {
+  private static final String WHOLE_STATE = "for=county:*&in=state:";
+
+  @TempDir Path tempDir;
+
+  private FakeCensusDataSource census;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    census = new FakeCensusDataSource();
+    census.getStateCode();
+    census.endpoints.clear();
+  }
+
+  @Test
+  public void testFirstMissFetchesState() throws Exception {
+    CachedACSDataSource cached = new CachedACSDataSource(census, null, true);
+    assertEquals(
+        "subject:S2802_C03_022E", cached.getBroadbandPercentage("Napa County", "California"));
+    assertEquals(1, census.endpoints.size());
+    assertEquals(
+        1, census.requests("/acs1/subject/variables?get=NAME,S2802_C03_022E&" + WHOLE_STATE));
+
+    // the other counties of the state are answered without calling the census API
+    assertEquals(
+        "subject:S2802_C03_022E",
+        cached.getBroadbandPercentage("Kern County", "California", "S2802_C03_022E"));
+    assertEquals(1, census.endpoints.size());
+
+    // another variable or state is fetched as a whole once
+    cached.getBroadbandPercentage("Kern County", "California", "DP02_0001E");
+    cached.getBroadbandPercentage("Napa County", "California", "DP02_0001E");
+    cached.getBroadbandPercentage("Kent County", "Rhode Island");
+    assertEquals(3, census.requests(WHOLE_STATE));
+    assertEquals(3, census.endpoints.size());
+  }
+
+  @Test
+  public void testWithoutPrefetch() throws Exception {
+    CachedACSDataSource cached = new CachedACSDataSource(census);
+    cached.getBroadbandPercentage("Napa County", "California");
+    cached.getBroadbandPercentage("Kern County", "California");
+    assertEquals(
+        0, census.requests("/acs1/subject/variables?get=NAME,S2802_C03_022E&" + WHOLE_STATE));
+    assertEquals(2, census.dataRequests());
+  }
+
+  @Test
+  public void testUnknownStateFallsBack() {
+    CachedACSDataSource cached = new CachedACSDataSource(census, null, true);
+    assertThrows(
+        RuntimeException.class, () -> cached.getBroadbandPercentage("Napa County", "Atlantis"));
+    assertThrows(
+        InputNotFoundException.class, () -> cached.prefetchState("Atlantis", "DP02_0001E"));
+  }
+
+  @Test
+  public void testFailedStateFetchNotRetried() throws Exception {
+    String stateFetch = "/acs1/subject/variables?get=NAME,S2802_C03_022E&" + WHOLE_STATE;
+    CachedACSDataSource cached = new CachedACSDataSource(census, null, true);
+    census.unavailable.set(1);
+    // the whole-state fetch fails, and the county is looked up alone
+    assertEquals(
+        "subject:S2802_C03_022E", cached.getBroadbandPercentage("Napa County", "California"));
+    assertEquals(1, census.requests(stateFetch));
+
+    // the state is not fetched again on the next miss
+    assertEquals(
+        "subject:S2802_C03_022E", cached.getBroadbandPercentage("Kern County", "California"));
+    assertEquals(1, census.requests(stateFetch));
+    assertEquals(3, census.dataRequests());
+  }
+
+  @Test
+  public void testWarmupFillsDiskTier() throws Exception {
+    Path file = tempDir.resolve("broadband.kv");
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      CachedACSDataSource cached = new CachedACSDataSource(census, store, true);
+      assertEquals(2, cached.prefetchState("California", "DP02_0001E"));
+      assertEquals(1, census.endpoints.size());
+      assertEquals(
+          "profile:DP02_0001E",
+          cached.getBroadbandPercentage("Kern County", "California", "DP02_0001E"));
+      assertEquals(1, census.endpoints.size());
+    }
+    // after a restart, the prefetched counties are on disk
+    try (DiskCacheStore store = new DiskCacheStore(file, Duration.ofHours(1))) {
+      CachedACSDataSource cached = new CachedACSDataSource(census, store, true);
+      assertEquals(
+          "profile:DP02_0001E",
+          cached.getBroadbandPercentage("Napa County", "California", "DP02_0001E"));
+      assertEquals(1, cached.getDiskHitCount());
+      assertEquals(1, census.endpoints.size());
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package edu.brown.cs.student.broadband;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.squareup.moshi.JsonReader;
+import edu.brown.cs.student.main.broadband.VariableCatalog;
+import java.io.IOException;
+import java.util.List;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+public class TestVariableCatalog {
+
+  private static VariableCatalog read(String json) throws IOException {
+    return VariableCatalog.read(JsonReader.of(new Buffer().writeUtf8(json)));
+  }
+
+  @Test
+  public void testRead() throws IOException {
+    // only the name column is kept, wherever it is, whatever else the rows hold
+    VariableCatalog catalog =
+        read(
+            "[[\"label\",\"name\",\"concept\"],"
+                + "[\"Broadband\",\"S2802_C03_022E\",{\"nested\":[1,2]}],"
+                + "[\"Households\",\"DP02_0001E\",null],"
+                + "[\"Coverage\",\"S2704_C01_022E\",3.5],"
+                + "[\"Broadband again\",\"S2802_C03_022E\",\"\"],"
+                + "[\"Short row\"]]");
+    assertEquals(3, catalog.size());
+    assertTrue(catalog.contains("S2802_C03_022E"));
+    assertTrue(catalog.contains("DP02_0001E"));
+    assertFalse(catalog.contains("Broadband"));
+    assertFalse(catalog.contains("S2802"));
+
+    assertEquals(0, read("[]").size());
+    assertEquals(0, read("[[\"name\"]]").size());
+    assertThrows(IOException.class, () -> read("[[\"label\"],[\"x\"]]"));
+    assertThrows(IOException.class, () -> read("{\"name\":\"x\"}"));
+  }
+
+  @Test
+  public void testPrefix() {
+    VariableCatalog catalog =
+        VariableCatalog.of(
+            List.of("S2802_C03_022E", "S2802_C01_001E", "S2801_C01_001E", "S2802", "DP02_0001E"));
+    assertEquals(List.of("S2802", "S2802_C01_001E", "S2802_C03_022E"), catalog.withPrefix("S2802"));
+    assertEquals(List.of("S2802_C03_022E"), catalog.withPrefix("S2802_C03"));
+    assertEquals(5, catalog.withPrefix("").size());
+    assertEquals(List.of(), catalog.withPrefix("S29"));
+    assertEquals(List.of(), catalog.withPrefix("Z"));
+  }
+
+  @Test
+  public void testVariablesRouted() throws Exception {
+    FakeCensusDataSource census = new FakeCensusDataSource();
+    census.getStateCode();
+    assertEquals(List.of(), census.findVariables("S"));
+    census.getACSVariables();
+    assertEquals(List.of("S2704_C01_022E", "S2802_C03_022E"), census.findVariables("S2"));
+    assertEquals(List.of("DP03_0009PE"), census.findVariables("DP03"));
+
+    // a variable is looked up in the dataset whose list has it, whatever its name starts with
+    assertEquals(
+        "subject:GEO_ID", census.getBroadbandPercentage("Napa County", "California", "GEO_ID"));
+    assertEquals(
+        "profile:DP02_0001E",
+        census.getBroadbandPercentage("Napa County", "California", "DP02_0001E"));
+  }
+}
@@ -0,0 +1,105 @@
+package edu.brown.cs.student.csv;
+
+import edu.brown.cs.student.main.csv.CSVTokenizer;
+import edu.brown.cs.student.main.csv.Parser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compares rows/sec of the old regex row splitter against the {@link Parser} tokenizer on a
+ * synthetic, quote-heavy CSV file shaped like income_by_race.csv.
+ *
+ * <p>This is not a unit test (surefire does not pick it up). Run it by hand with the target file
+ * size in megabytes as the only argument, e.g. 4096 for a 4 GB file. Both paths only count rows and
+ * fields, so memory stays flat regardless of the file size.
+ */
+public class ParserBenchmark {
+
+  // the splitter Parser used before the tokenizer was introduced
+  private static final Pattern regexSplitCSVRow =
+      Pattern.compile(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*(?![^\\\"]*\\\"))");
+
+  public static void main(String[] args) throws Exception {
+    long megabytes = args.length > 0 ? Long.parseLong(args[0]) : 64;
+    Path file = Files.createTempFile("parser-benchmark", ".csv");
+    try {
+      long rows = writeSyntheticFile(file, megabytes * 1024 * 1024);
+      System.out.printf("Synthetic file: %d MB, %d rows%n", megabytes, rows);
+
+      long start = System.nanoTime();
+      long regexRows = 0;
+      long regexFields = 0;
+      try (BufferedReader reader =
+          new BufferedReader(new FileReader(file.toFile(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          regexFields += regexSplitCSVRow.split(line).length;
+          regexRows++;
+        }
+      }
+      report("regex", regexRows, System.nanoTime() - start);
+      System.out.printf("regex: %d fields%n", regexFields);
+
+      start = System.nanoTime();
+      long tokenizerRows = 0;
+      long tokenizerFields = 0;
+      try (FileReader reader = new FileReader(file.toFile(), StandardCharsets.UTF_8)) {
+        CSVTokenizer tokenizer = new CSVTokenizer(reader);
+        List<String> record;
+        while ((record = tokenizer.nextRecord()) != null) {
+          tokenizerFields += record.size();
+          tokenizerRows++;
+        }
+      }
+      report("tokenizer", tokenizerRows, System.nanoTime() - start);
+      System.out.printf("tokenizer: %d fields%n", tokenizerFields);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static long writeSyntheticFile(Path file, long targetBytes) throws IOException {
+    String header =
+        "ID Race,Race,ID Year,Year,Household Income by Race,Household Income by Race Moe,"
+            + "Geography,ID Geography,Slug Geography";
+    String[] counties = {"Bristol", "Kent", "Newport", "Providence", "Washington"};
+    long written = 0;
+    long rows = 0;
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file.toFile()))) {
+      writer.write(header);
+      writer.newLine();
+      while (written < targetBytes) {
+        String county = counties[(int) (rows % counties.length)];
+        String row =
+            "%d,\"Race, %d\",2020,2020,\"%d\",\"%d\",\"%s County, RI\",05000US44%03d,%s-county-ri"
+                .formatted(
+                    rows % 8,
+                    rows % 8,
+                    50000 + rows % 40000,
+                    1000 + rows % 5000,
+                    county,
+                    rows % 10,
+                    county.toLowerCase());
+        writer.write(row);
+        writer.newLine();
+        written += row.length() + 1;
+        rows++;
+      }
+    }
+    return rows;
+  }
+
+  private static void report(String name, long rows, long nanos) {
+    double seconds = nanos / 1e9;
+    System.out.printf(
+        "%s: %d rows in %.2f s (%.0f rows/sec)%n", name, rows, seconds, rows / seconds);
+  }
+}
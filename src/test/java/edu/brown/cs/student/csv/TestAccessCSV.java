@@ -0,0 +1,198 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.csv.AccessCSV;
+import edu.brown.cs.student.main.csv.CsvPage;
+import edu.brown.cs.student.main.csv.CsvSnapshot;
+import edu.brown.cs.student.main.csv.Dataset;
+import edu.brown.cs.student.main.csv.LoadJob;
+import edu.brown.cs.student.main.csv.LoadJobManager;
+import edu.brown.cs.student.main.csv.LoadProgress;
+import edu.brown.cs.student.main.csv.PageRequest;
+import edu.brown.cs.student.main.csv.exceptions.CsvNotLoadedException;
+import edu.brown.cs.student.main.csv.exceptions.PaginationException;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class TestAccessCSV {
+  private static final String INCOME = "data/census/income_by_race.csv";
+  private static final String STARS = "data/stars/ten-star.csv";
+
+  @Test
+  void testNamedDatasets() throws Exception {
+    AccessCSV accessCSV = new AccessCSV();
+    accessCSV.LoadCSV("income", INCOME, true, false);
+    accessCSV.LoadCSV("stars", STARS, true, false);
+    assertEquals(List.of("income", "stars"), accessCSV.getDatasetNames());
+
+    assertEquals(323, accessCSV.ViewCSV("income").size());
+    assertEquals(10, accessCSV.ViewCSV("stars").size());
+    assertEquals(
+        List.of(List.of("0", "Sol", "0", "0", "0")), accessCSV.searchCSV("stars", "1,Sol"));
+    assertTrue(accessCSV.searchCSV("income", "1,Sol").isEmpty());
+
+    // the default dataset is separate from the named ones
+    assertThrows(CsvNotLoadedException.class, accessCSV::ViewCSV);
+    assertThrows(CsvNotLoadedException.class, () -> accessCSV.ViewCSV("planets"));
+    accessCSV.LoadCSV(STARS, true);
+    assertEquals(accessCSV.ViewCSV("stars"), accessCSV.ViewCSV());
+  }
+
+  @Test
+  void testEmptySearchPage() throws Exception {
+    AccessCSV accessCSV = new AccessCSV();
+    accessCSV.LoadCSV("stars", STARS, true, false);
+    CsvPage page =
+        accessCSV.searchCSV(
+            "stars", "1,Rigel Kentaurus A", PageRequest.parse(null, "0", null, null));
+    assertTrue(page.rows().isEmpty());
+    // the cursor of an empty page resumes at the first matching row
+    assertNotNull(page.nextCursor());
+    CsvPage next =
+        accessCSV.searchCSV(
+            "stars", "1,Rigel Kentaurus A", PageRequest.parse(null, "1", page.nextCursor(), null));
+    assertEquals(
+        List.of(List.of("71457", "Rigel Kentaurus A", "-0.50362", "-0.42139", "-1.17665")),
+        next.rows());
+    assertNull(next.nextCursor());
+    // nothing matches, so there is no next page either
+    assertNull(
+        accessCSV
+            .searchCSV("stars", "1,Vega", PageRequest.parse(null, "0", null, null))
+            .nextCursor());
+  }
+
+  @Test
+  void testReloadPublishesNewDataset() throws Exception {
+    AccessCSV accessCSV = new AccessCSV();
+    Dataset first = accessCSV.LoadCSV("data", INCOME, true, false);
+    CsvPage page = accessCSV.ViewCSV("data", PageRequest.parse(null, "5", null, null));
+    assertNotNull(page.nextCursor());
+
+    Dataset second = accessCSV.LoadCSV("data", STARS, true, false);
+    assertNotEquals(first.version(), second.version());
+    assertSame(second, accessCSV.getDataset("data"));
+    // the first dataset is unchanged by the reload
+    assertEquals(323, first.data().getRowCount());
+    // a cursor only works on the dataset it came from
+    assertThrows(
+        PaginationException.class,
+        () -> accessCSV.ViewCSV("data", PageRequest.parse(null, null, page.nextCursor(), null)));
+    accessCSV.LoadCSV("other", INCOME, true, false);
+    assertThrows(
+        PaginationException.class,
+        () -> accessCSV.ViewCSV("other", PageRequest.parse(null, null, page.nextCursor(), null)));
+  }
+
+  @Test
+  void testSearchesDuringReloads() throws Exception {
+    AccessCSV accessCSV = new AccessCSV();
+    accessCSV.LoadCSV("data", INCOME, true, false);
+    List<List<String>> expected = accessCSV.searchCSV("data", "Race,White");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> readers = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        readers.add(
+            executor.submit(
+                () -> {
+                  for (int j = 0; j < 200; j++) {
+                    // every search sees a whole dataset, whichever load it comes from
+                    assertEquals(expected, accessCSV.searchCSV("data", "Race,White"));
+                  }
+                  return null;
+                }));
+      }
+      Future<?> loader =
+          executor.submit(
+              () -> {
+                for (int j = 0; j < 20; j++) {
+                  accessCSV.LoadCSV("data", INCOME, true, j % 2 == 0);
+                }
+                return null;
+              });
+      loader.get();
+      for (Future<?> reader : readers) {
+        reader.get();
+      }
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void testLoadProgress() throws Exception {
+    AccessCSV accessCSV = new AccessCSV();
+    for (boolean parallel : new boolean[] {false, true}) {
+      Files.deleteIfExists(CsvSnapshot.snapshotPath(Paths.get(INCOME)));
+      LoadProgress progress = new LoadProgress();
+      accessCSV.LoadCSV("data", INCOME, true, parallel, progress);
+      assertEquals(323, progress.getRowsParsed());
+      assertEquals(Files.size(Paths.get(INCOME)), progress.getTotalBytes());
+      assertEquals(progress.getTotalBytes(), progress.getBytesRead());
+      assertEquals(0, progress.getEtaMillis());
+    }
+  }
+
+  @Test
+  void testLoadJobs() throws Exception {
+    AccessCSV accessCSV = new AccessCSV();
+    LoadJobManager loadJobs = new LoadJobManager(accessCSV, 1, 1);
+    LoadJob job = loadJobs.submit("stars", STARS, true, false);
+    assertSame(job, loadJobs.getJob(job.getId()));
+    assertThrows(
+        FileNotFoundException.class, () -> loadJobs.submit("stars", "data/xxx.csv", true, false));
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (job.getState() != LoadJob.State.SUCCEEDED && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(LoadJob.State.SUCCEEDED, job.getState());
+    assertEquals(10, job.getProgress().getRowsParsed());
+    assertEquals(10, accessCSV.ViewCSV("stars").size());
+    loadJobs.shutdown();
+  }
+
+  @Test
+  void testLoadJobFailsOnError() throws Exception {
+    AccessCSV accessCSV =
+        new AccessCSV() {
+          @Override
+          public Dataset LoadCSV(
+              String dataset,
+              String filePath,
+              boolean hasHeader,
+              boolean parallel,
+              LoadProgress progress) {
+            throw new StackOverflowError();
+          }
+        };
+    LoadJobManager loadJobs = new LoadJobManager(accessCSV, 1, 1);
+    LoadJob job = loadJobs.submit("stars", STARS, true, false);
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (job.getState() != LoadJob.State.FAILED && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    // an error ends the job too, rather than leaving it running
+    assertEquals(LoadJob.State.FAILED, job.getState());
+    assertEquals(StackOverflowError.class.getName(), job.getError());
+    loadJobs.shutdown();
+  }
+}
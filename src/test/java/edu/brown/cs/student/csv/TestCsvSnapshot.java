@@ -0,0 +1,120 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.csv.AccessCSV;
+import edu.brown.cs.student.main.csv.ColumnType;
+import edu.brown.cs.student.main.csv.ColumnarParsedResult;
+import edu.brown.cs.student.main.csv.CsvSnapshot;
+import edu.brown.cs.student.main.csv.ListStringCreaterFromRow;
+import edu.brown.cs.student.main.csv.Parser;
+import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestCsvSnapshot {
+
+  @TempDir Path tempDir;
+
+  private static ColumnarParsedResult parse(Path path, boolean hasHeader) throws Exception {
+    Parser<List<String>> parser =
+        new Parser<>(
+            new FileReader(path.toFile(), StandardCharsets.UTF_8),
+            new ListStringCreaterFromRow(),
+            hasHeader);
+    try (Stream<List<String>> rows = parser.stream()) {
+      return ColumnarParsedResult.fromRows(parser.getHeaderMap(), rows.iterator());
+    }
+  }
+
+  @Test
+  void testRoundTrip() throws Exception {
+    Path csv = tempDir.resolve("people.csv");
+    Files.writeString(
+        csv, "name,age,city\nJohn,30,\"Kent, RI\"\nJané,,Bristol\nJoe,25\nJohn,30,Kent\n");
+    CsvSnapshot.Fingerprint fingerprint = CsvSnapshot.fingerprint(csv, true);
+    ColumnarParsedResult parsed = parse(csv, true);
+    CsvSnapshot.write(csv, fingerprint, parsed);
+    assertTrue(Files.isRegularFile(CsvSnapshot.snapshotPath(csv)));
+
+    ColumnarParsedResult snapshot = CsvSnapshot.read(csv, CsvSnapshot.fingerprint(csv, true));
+    assertNotNull(snapshot);
+    assertEquals(parsed.getData(), snapshot.getData());
+    assertEquals(parsed.getHeaderMap(), snapshot.getHeaderMap());
+    assertEquals(ColumnType.LONG, snapshot.getColumnType(1));
+    assertArrayEquals(new int[] {0, 3}, snapshot.getColumnIndex(0).lookup("John"));
+    assertArrayEquals(new int[] {0, 3}, snapshot.getSortedIndex(1).range(26, 30));
+  }
+
+  @Test
+  void testStaleSnapshotsAreIgnored() throws Exception {
+    Path csv = tempDir.resolve("years.csv");
+    Files.writeString(csv, "year\n2019\n2020\n");
+    CsvSnapshot.Fingerprint fingerprint = CsvSnapshot.fingerprint(csv, true);
+    CsvSnapshot.write(csv, fingerprint, parse(csv, true));
+
+    // parsed with a different header setting
+    assertNull(CsvSnapshot.read(csv, CsvSnapshot.fingerprint(csv, false)));
+    // same size, different content
+    Files.writeString(csv, "year\n2019\n2021\n");
+    assertNull(CsvSnapshot.read(csv, CsvSnapshot.fingerprint(csv, true)));
+
+    // a truncated snapshot is treated as missing
+    Path snapshotPath = CsvSnapshot.snapshotPath(csv);
+    byte[] bytes = Files.readAllBytes(snapshotPath);
+    Files.write(snapshotPath, Arrays.copyOf(bytes, bytes.length - 6));
+    assertNull(CsvSnapshot.read(csv, fingerprint));
+  }
+
+  @Test
+  void testCorruptSnapshotsAreIgnored() throws Exception {
+    Path csv = tempDir.resolve("cities.csv");
+    Files.writeString(csv, "city,population\nProvidence,190934\nBristol,22493\nKent,\n");
+    CsvSnapshot.Fingerprint fingerprint = CsvSnapshot.fingerprint(csv, true);
+    CsvSnapshot.write(csv, fingerprint, parse(csv, true));
+    CsvSnapshot.write(csv, fingerprint, parse(csv, true));
+    // each write moved its own temporary file into place
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertEquals(2, files.count());
+    }
+
+    Path snapshotPath = CsvSnapshot.snapshotPath(csv);
+    byte[] bytes = Files.readAllBytes(snapshotPath);
+    for (int i = 0; i < bytes.length; i++) {
+      byte[] corrupt = bytes.clone();
+      corrupt[i] ^= 0x10;
+      Files.write(snapshotPath, corrupt);
+      assertNull(CsvSnapshot.read(csv, fingerprint), "flipped byte " + i);
+    }
+    Files.write(snapshotPath, bytes);
+    assertNotNull(CsvSnapshot.read(csv, fingerprint));
+  }
+
+  @Test
+  void testAccessCSVReloadsFromSnapshot() throws Exception {
+    String filePath = "data/census/income_by_race.csv";
+    Files.deleteIfExists(CsvSnapshot.snapshotPath(Paths.get(filePath)));
+    AccessCSV accessCSV = new AccessCSV();
+    accessCSV.LoadCSV(filePath, true);
+    List<List<String>> parsed = accessCSV.ViewCSV();
+    assertTrue(Files.isRegularFile(CsvSnapshot.snapshotPath(Paths.get(filePath))));
+
+    AccessCSV reloaded = new AccessCSV();
+    reloaded.LoadCSV(filePath, true);
+    assertEquals(parsed, reloaded.ViewCSV());
+    assertEquals(
+        accessCSV.searchCSV("Year,>=2020&&Race,^White"),
+        reloaded.searchCSV("Year,>=2020&&Race,^White"));
+  }
+}
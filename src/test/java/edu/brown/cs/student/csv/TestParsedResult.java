@@ -2,9 +2,13 @@ package edu.brown.cs.student.csv;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import edu.brown.cs.student.main.csv.ColumnIndex;
+import edu.brown.cs.student.main.csv.ColumnType;
+import edu.brown.cs.student.main.csv.ColumnarParsedResult;
 import edu.brown.cs.student.main.csv.ListStringCreaterFromRow;
 import edu.brown.cs.student.main.csv.ParsedResult;
 import edu.brown.cs.student.main.csv.Parser;
+import edu.brown.cs.student.main.csv.SortedColumnIndex;
 import edu.brown.cs.student.main.csv.exceptions.HeaderFailureException;
 import java.io.FileReader;
 import java.util.HashMap;
@@ -52,6 +56,89 @@ public class TestParsedResult {
     assertEquals(headerMap, parsedResult.getHeaderMap());
   }
 
+  @Test
+  void testColumnarParsedResult() {
+    List<List<String>> rows =
+        List.of(
+            List.of("Kent County, RI", "2020", "White"),
+            List.of("Kent County, RI", "2020"),
+            List.of("Bristol County, RI", "2021", "White", "extra"));
+    ColumnarParsedResult columnar =
+        ColumnarParsedResult.fromRows(Map.of("Geography", 0), rows.iterator());
+
+    assertEquals(rows, columnar.getData());
+    assertEquals(3, columnar.getRowCount());
+    assertEquals(4, columnar.getColumnCount());
+    // repeated values share one dictionary entry
+    assertEquals(2, columnar.getDictionarySize(0));
+    assertEquals(1, columnar.getDictionarySize(2));
+    assertEquals(ColumnarParsedResult.MISSING, columnar.getColumnCodes(2)[1]);
+    assertEquals(ColumnarParsedResult.MISSING, columnar.lookupCode(0, "Newport County, RI"));
+    assertEquals("2021", columnar.getValue(1, columnar.lookupCode(1, "2021")));
+  }
+
+  @Test
+  void testGetColumnIndex() {
+    List<List<String>> rows =
+        List.of(List.of("John", "30"), List.of("Jane", "25"), List.of("Joe", "30"));
+    ParsedResult<List<String>> parsedResult = new ParsedResult<>(Map.of(), rows);
+    ColumnarParsedResult columnar = ColumnarParsedResult.fromRows(Map.of(), rows.iterator());
+
+    for (ParsedResult<List<String>> result : List.of(parsedResult, columnar)) {
+      ColumnIndex index = result.getColumnIndex(1);
+      assertArrayEquals(new int[] {0, 2}, index.lookup("30"));
+      assertArrayEquals(new int[0], index.lookup("99"));
+      assertEquals(2, index.distinctValues());
+      // the index is kept alongside the result
+      assertSame(index, result.getColumnIndex(1));
+    }
+  }
+
+  @Test
+  void testColumnTypes() {
+    List<List<String>> rows =
+        List.of(
+            List.of("John", "30", "74,489.00", "2021-03-04", ""),
+            List.of("Jane", "-2", "0.5", "2020-12-31", ""),
+            List.of("Joe", "", "1e3", "2021-01-01", ""));
+    ParsedResult<List<String>> parsedResult = new ParsedResult<>(Map.of(), rows);
+    ColumnarParsedResult columnar = ColumnarParsedResult.fromRows(Map.of(), rows.iterator());
+
+    for (ParsedResult<List<String>> result : List.of(parsedResult, columnar)) {
+      assertEquals(ColumnType.STRING, result.getColumnType(0));
+      assertEquals(ColumnType.LONG, result.getColumnType(1));
+      assertEquals(ColumnType.DOUBLE, result.getColumnType(2));
+      assertEquals(ColumnType.DATE, result.getColumnType(3));
+      assertEquals(ColumnType.STRING, result.getColumnType(4)); // only blank cells
+
+      SortedColumnIndex years = result.getSortedIndex(1);
+      assertEquals(2, years.size()); // the blank cell is left out
+      assertArrayEquals(new int[] {0, 1}, years.range(-2, 30));
+      assertArrayEquals(new int[] {1}, years.range(Long.MIN_VALUE, 0));
+      SortedColumnIndex amounts = result.getSortedIndex(2);
+      ColumnType type = ColumnType.DOUBLE;
+      assertArrayEquals(
+          new int[] {0, 2}, amounts.range(type.lowerBound("1000", true), Long.MAX_VALUE));
+      assertArrayEquals(
+          new int[] {0}, amounts.range(type.lowerBound("1000", false), Long.MAX_VALUE));
+      assertEquals(0, result.getSortedIndex(0).size());
+    }
+  }
+
+  @Test
+  void testColumnTypeBounds() {
+    // integer columns round fractional bounds inward
+    assertEquals(3, ColumnType.LONG.lowerBound("2.5", true));
+    assertEquals(3, ColumnType.LONG.lowerBound("2", false));
+    assertEquals(2, ColumnType.LONG.upperBound("2.5", false));
+    assertEquals(1, ColumnType.LONG.upperBound("2", false));
+    assertTrue(ColumnType.DOUBLE.sortKey("-1.5") < ColumnType.DOUBLE.sortKey("-0.5"));
+    assertEquals(ColumnType.DOUBLE.sortKey("-0.0"), ColumnType.DOUBLE.sortKey("0"));
+    assertTrue(ColumnType.DATE.sortKey("2019-12-31") < ColumnType.DATE.sortKey("2020-01-01"));
+    assertThrows(IllegalArgumentException.class, () -> ColumnType.LONG.lowerBound("x", true));
+    assertThrows(IllegalArgumentException.class, () -> ColumnType.STRING.upperBound("1", true));
+  }
+
   @Test
   void testParsedResultIterator() throws Exception {
     FileReader fileReader = new FileReader("data/stars/stardata.csv");
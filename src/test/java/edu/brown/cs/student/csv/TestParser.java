@@ -3,16 +3,25 @@ package edu.brown.cs.student.csv;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import edu.brown.cs.student.main.csv.CSVTokenizer;
 import edu.brown.cs.student.main.csv.CreatorFromRow;
 import edu.brown.cs.student.main.csv.FactoryFailureException;
 import edu.brown.cs.student.main.csv.ListStringCreaterFromRow;
+import edu.brown.cs.student.main.csv.ParallelParser;
 import edu.brown.cs.student.main.csv.ParsedResult;
 import edu.brown.cs.student.main.csv.Parser;
+import edu.brown.cs.student.main.csv.exceptions.StreamParseException;
 import java.io.FileReader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 
 public class TestParser {
@@ -101,6 +110,80 @@ public class TestParser {
     assertThrows(FactoryFailureException.class, myObjectParser::parse);
   }
 
+  @Test
+  void testParseQuotedFields() throws Exception {
+    String csvContent =
+        "name,city\n\"Doe, John\",\"Kent County, RI\"\n\"say \"\"hi\"\"\",\"two\nlines\"\r\nlast,\n";
+    Parser<List<String>> parser =
+        new Parser<>(new StringReader(csvContent), new ListStringCreaterFromRow(), true);
+
+    ParsedResult<List<String>> result = parser.parse();
+
+    assertEquals(
+        List.of(
+            List.of("Doe, John", "Kent County, RI"),
+            List.of("say \"hi\"", "two\nlines"),
+            List.of("last", "")),
+        result.getData());
+  }
+
+  @Test
+  void testSplitRow() {
+    assertEquals(List.of("a", "", "c"), CSVTokenizer.splitRow("a,,c"));
+    assertEquals(
+        List.of("Geography", "Bristol County, RI"),
+        CSVTokenizer.splitRow("Geography,\"Bristol County, RI\""));
+    assertEquals(List.of(""), CSVTokenizer.splitRow(""));
+  }
+
+  @Test
+  void testParallelParserMatchesParser() throws Exception {
+    Path file = Files.createTempFile("parallel-parser", ".csv");
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      StringBuilder csvContent = new StringBuilder("id,note\n");
+      for (int i = 0; i < 200; i++) {
+        csvContent.append(i).append(",\"line one, \"\"quoted\"\"\nline two\"\n");
+        csvContent.append(i).append(",plain\n");
+      }
+      Files.writeString(file, csvContent);
+
+      ParsedResult<List<String>> expected =
+          new Parser<>(
+                  new FileReader(file.toFile(), StandardCharsets.UTF_8),
+                  new ListStringCreaterFromRow(),
+                  true)
+              .parse();
+      // tiny chunks force boundaries inside quoted fields
+      ParsedResult<List<String>> actual =
+          new ParallelParser<>(file, new ListStringCreaterFromRow(), true, 7, pool).parse();
+
+      assertEquals(expected.getHeaderMap(), actual.getHeaderMap());
+      assertEquals(expected.getData(), actual.getData());
+      assertEquals(400, actual.getData().size());
+    } finally {
+      pool.shutdown();
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void testStream() throws Exception {
+    String csvContent = "id,name\n1,John\n2,Jane\n3,Joe\n";
+    Parser<List<String>> parser =
+        new Parser<>(new StringReader(csvContent), new ListStringCreaterFromRow(), true);
+
+    try (Stream<List<String>> rows = parser.stream()) {
+      assertEquals(new HashMap<>(Map.of("id", 0, "name", 1)), parser.getHeaderMap());
+      assertEquals(2, rows.filter(row -> row.get(1).startsWith("Jo")).count());
+    }
+
+    Parser<MyObject> myObjectParser =
+        new Parser<>(new StringReader("id,name\nMarry,John\n"), new MyObjectCreator(), true);
+    Iterator<MyObject> iterator = myObjectParser.iterator();
+    assertThrows(StreamParseException.class, iterator::next);
+  }
+
   @Test
   void testGetColIDFromColName() throws Exception {
     String csvHeader = "id,name";
@@ -0,0 +1,183 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.brown.cs.student.main.csv.ColumnarParsedResult;
+import edu.brown.cs.student.main.csv.ParsedResult;
+import edu.brown.cs.student.main.csv.RowSet;
+import edu.brown.cs.student.main.csv.exceptions.HeaderFailureException;
+import edu.brown.cs.student.main.csv.exceptions.InValidColumnIndexException;
+import edu.brown.cs.student.main.csv.exceptions.QueryFormatException;
+import edu.brown.cs.student.main.csv.query.Clause;
+import edu.brown.cs.student.main.csv.query.Query;
+import edu.brown.cs.student.main.csv.query.QueryParser;
+import edu.brown.cs.student.main.csv.query.QueryPlan;
+import edu.brown.cs.student.main.csv.query.QueryPlanCache;
+import edu.brown.cs.student.main.csv.query.RangeTerm;
+import edu.brown.cs.student.main.csv.query.ValueTerm;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestQueryPlan {
+
+  private ColumnarParsedResult data;
+
+  @BeforeEach
+  void setUp() {
+    List<List<String>> rows =
+        List.of(
+            List.of("John", "25", "Kent"), // 0
+            List.of("Jane", "30", "Kent"), // 1
+            List.of("Joe", "30", "Bristol"), // 2
+            List.of("Ann", "41", "Kent, RI")); // 3
+    data = ColumnarParsedResult.fromRows(Map.of("name", 0, "age", 1, "county", 2), rows.iterator());
+  }
+
+  private int[] run(String query) throws Exception {
+    return QueryPlan.compile(QueryParser.parse(query), data).execute(data).toArray();
+  }
+
+  @Test
+  void testParse() throws Exception {
+    Query query = QueryParser.parse("1,17|18&&name,^Nim&^Tim&&county,\"Kent, RI\"");
+    assertEquals(
+        List.of(
+            new Clause("1", List.of(new ValueTerm("17"), new ValueTerm("18")), false),
+            new Clause("name", List.of(new ValueTerm("Nim"), new ValueTerm("Tim")), true),
+            new Clause("county", List.of(new ValueTerm("Kent, RI")), false)),
+        query.clauses());
+    assertThrows(QueryFormatException.class, () -> QueryParser.parse("John"));
+    assertThrows(QueryFormatException.class, () -> QueryParser.parse(",John"));
+  }
+
+  @Test
+  void testExecute() throws Exception {
+    assertArrayEquals(new int[] {1, 2}, run("age,30"));
+    assertArrayEquals(new int[] {1}, run("age,30&&county,Kent"));
+    assertArrayEquals(new int[] {0, 3}, run("age,^30"));
+    assertArrayEquals(new int[] {3}, run("county,\"Kent, RI\""));
+    assertArrayEquals(new int[] {0, 1}, run("*,Kent|25"));
+    assertArrayEquals(new int[] {2}, run("age,30&&*,^Kent"));
+  }
+
+  @Test
+  void testMergeAndPushDown() throws Exception {
+    // same-column clauses intersect their values
+    assertArrayEquals(new int[] {1, 2}, run("age,25|30&&age,30|41"));
+    assertArrayEquals(new int[0], run("age,25&&age,30"));
+    // a negation on the same column is folded into the plain clause
+    assertArrayEquals(new int[] {0}, run("age,25|30&&age,^30"));
+    assertArrayEquals(new int[0], run("name,John&&name,^John"));
+  }
+
+  @Test
+  void testScanMatchesBruteForce() throws Exception {
+    // large enough to be split across the fork-join pool
+    Random random = new Random(8);
+    List<List<String>> rows = new ArrayList<>();
+    for (int rowID = 0; rowID < 300_000; rowID++) {
+      rows.add(
+          List.of(
+              "v" + random.nextInt(50),
+              "v" + random.nextInt(7),
+              String.valueOf(random.nextInt(1000))));
+    }
+    ColumnarParsedResult columnar = ColumnarParsedResult.fromRows(Map.of(), rows.iterator());
+    ParsedResult<List<String>> rowMajor = new ParsedResult<>(Map.of(), rows);
+    String query = "*,v3|v4&&1,^v3&&2,^>=990";
+
+    RowSet.Builder expected = new RowSet.Builder();
+    for (int rowID = 0; rowID < rows.size(); rowID++) {
+      List<String> row = rows.get(rowID);
+      if ((row.contains("v3") || row.contains("v4"))
+          && !row.get(1).equals("v3")
+          && Integer.parseInt(row.get(2)) < 990) {
+        expected.add(rowID);
+      }
+    }
+    int[] expectedRows = expected.build().toArray();
+    assertArrayEquals(
+        expectedRows,
+        QueryPlan.compile(QueryParser.parse(query), columnar).execute(columnar).toArray());
+    assertArrayEquals(
+        expectedRows,
+        QueryPlan.compile(QueryParser.parse(query), rowMajor).execute(rowMajor).toArray());
+  }
+
+  @Test
+  void testRanges() throws Exception {
+    assertArrayEquals(new int[] {1, 2, 3}, run("age,>25"));
+    assertArrayEquals(new int[] {0, 1, 2}, run("age,<=30"));
+    assertArrayEquals(new int[] {1, 2}, run("age,between 26 and 40"));
+    assertArrayEquals(new int[] {0, 3}, run("age,<30|>=41"));
+    assertArrayEquals(new int[] {0, 3}, run("age,^between 30 and 30"));
+    assertArrayEquals(new int[] {1}, run("age,>25&&county,Kent"));
+    assertArrayEquals(new int[] {2}, run("*,Bristol&&age,>29.5"));
+    assertEquals(
+        List.of(new RangeTerm("2018", true, "2020", true)),
+        QueryParser.parse("Year,BETWEEN 2018 and 2020").clauses().get(0).terms());
+    assertThrows(QueryFormatException.class, () -> QueryParser.parse("age,>="));
+    // not a range of the column's values, so searched for as a value
+    assertArrayEquals(new int[] {}, run("name,>J"));
+    assertArrayEquals(new int[] {}, run("*,>30"));
+    assertArrayEquals(new int[] {}, run("age,>thirty"));
+  }
+
+  @Test
+  void testRangeLikeValues() throws Exception {
+    List<List<String>> rows =
+        List.of(
+            List.of("Kent", "<1%", "<= 5"), // 0
+            List.of("Bristol", "12%", "7"), // 1
+            List.of("Newport", "<1%", "between 1 and 2")); // 2
+    ColumnarParsedResult shares =
+        ColumnarParsedResult.fromRows(Map.of("county", 0, "share", 1, "note", 2), rows.iterator());
+    assertArrayEquals(new int[] {0, 2}, runOn("share,<1%", shares));
+    assertArrayEquals(new int[] {0, 2}, runOn("*,<1%", shares));
+    assertArrayEquals(new int[] {1}, runOn("share,^<1%", shares));
+    assertArrayEquals(new int[] {0}, runOn("note,<= 5", shares));
+    assertArrayEquals(new int[] {2}, runOn("note,between 1 and 2", shares));
+    // a bound of the column's type is still a range
+    assertArrayEquals(new int[] {1, 2, 3}, run("age,> 25"));
+  }
+
+  private static int[] runOn(String query, ColumnarParsedResult data) throws Exception {
+    return QueryPlan.compile(QueryParser.parse(query), data).execute(data).toArray();
+  }
+
+  @Test
+  void testSelect() throws Exception {
+    // index path
+    QueryPlan plan = QueryPlan.compile(QueryParser.parse("county,Kent|Bristol"), data);
+    assertArrayEquals(new int[] {1, 2}, plan.select(data, 0, 1, 2));
+    assertArrayEquals(new int[] {2}, plan.select(data, 2, 0, 5));
+    // scan path
+    plan = QueryPlan.compile(QueryParser.parse("*,30|Kent"), data);
+    assertArrayEquals(new int[] {0, 1}, plan.select(data, 0, 0, 2));
+    assertArrayEquals(new int[] {2}, plan.select(data, 1, 1, 5));
+    assertArrayEquals(new int[0], plan.select(data, 3, 0, 5));
+  }
+
+  @Test
+  void testColumnErrors() {
+    assertThrows(HeaderFailureException.class, () -> run("height,30"));
+    assertThrows(InValidColumnIndexException.class, () -> run("3,30"));
+  }
+
+  @Test
+  void testPlanCache() throws Exception {
+    QueryPlanCache cache = new QueryPlanCache(2);
+    QueryPlan plan = cache.getPlan("age,30", 1, data);
+    assertEquals(plan, cache.getPlan("age,30", 1, data));
+    assertEquals(1, cache.getHitCount());
+    cache.getPlan("age,30", 2, data); // a new dataset version needs a new plan
+    assertEquals(2, cache.getMissCount());
+    assertThrows(HeaderFailureException.class, () -> cache.getPlan("height,30", 1, data));
+  }
+}
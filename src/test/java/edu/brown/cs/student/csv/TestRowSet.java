@@ -0,0 +1,88 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.csv.RowSet;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+public class TestRowSet {
+
+  @Test
+  void testSmallSets() {
+    RowSet a = RowSet.of(1, 3, 5, 7);
+    RowSet b = RowSet.of(3, 4, 5);
+
+    assertArrayEquals(new int[] {1, 3, 4, 5, 7}, a.or(b).toArray());
+    assertArrayEquals(new int[] {3, 5}, a.and(b).toArray());
+    assertArrayEquals(new int[] {1, 7}, a.andNot(b).toArray());
+    assertTrue(a.contains(7));
+    assertFalse(a.contains(4));
+    assertTrue(RowSet.empty().isEmpty());
+    assertTrue(a.and(RowSet.of(100)).isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> RowSet.of(3, 2));
+  }
+
+  @Test
+  void testMatchesTreeSet() {
+    // densities on both sides of the array/bitmap switch, across several containers
+    Random random = new Random(32);
+    for (double density : new double[] {0.001, 0.05, 0.5, 0.95}) {
+      TreeSet<Integer> expectedA = new TreeSet<>();
+      TreeSet<Integer> expectedB = new TreeSet<>();
+      RowSet.Builder builderA = new RowSet.Builder();
+      RowSet.Builder builderB = new RowSet.Builder();
+      for (int rowId = 0; rowId < 200_000; rowId++) {
+        if (random.nextDouble() < density) {
+          expectedA.add(rowId);
+          builderA.add(rowId);
+        }
+        if (random.nextDouble() < 0.1) {
+          expectedB.add(rowId);
+          builderB.add(rowId);
+        }
+      }
+      RowSet a = builderA.build();
+      RowSet b = builderB.build();
+      assertEquals(expectedA.size(), a.cardinality());
+
+      TreeSet<Integer> union = new TreeSet<>(expectedA);
+      union.addAll(expectedB);
+      TreeSet<Integer> intersection = new TreeSet<>(expectedA);
+      intersection.retainAll(expectedB);
+      TreeSet<Integer> difference = new TreeSet<>(expectedA);
+      difference.removeAll(expectedB);
+
+      assertArrayEquals(toArray(union), a.or(b).toArray());
+      assertArrayEquals(toArray(intersection), a.and(b).toArray());
+      assertArrayEquals(toArray(difference), a.andNot(b).toArray());
+      assertArrayEquals(toArray(difference), a.andNot(b).andNot(b).toArray());
+    }
+    assertEquals(70_000, RowSet.range(0, 70_000).cardinality());
+  }
+
+  @Test
+  void testSelect() {
+    RowSet.Builder builder = new RowSet.Builder();
+    for (int rowId = 0; rowId < 300_000; rowId += 3) {
+      builder.add(rowId);
+    }
+    RowSet rows = builder.build();
+    assertArrayEquals(new int[] {0, 3, 6}, rows.select(0, 0, 3));
+    assertArrayEquals(new int[] {15, 18}, rows.select(10, 1, 2));
+    // whole containers are skipped by their cardinality
+    assertArrayEquals(new int[] {210_000, 210_003}, rows.select(0, 70_000, 2));
+    assertArrayEquals(new int[] {299_997}, rows.select(299_990, 2, 10));
+    assertArrayEquals(new int[0], rows.select(300_000, 0, 10));
+    assertArrayEquals(new int[0], rows.select(0, 100_000, 10));
+  }
+
+  private static int[] toArray(TreeSet<Integer> set) {
+    return set.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
@@ -3,10 +3,14 @@ package edu.brown.cs.student.csv;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import edu.brown.cs.student.main.csv.ColumnarParsedResult;
+import edu.brown.cs.student.main.csv.ListStringCreaterFromRow;
 import edu.brown.cs.student.main.csv.ParsedResult;
+import edu.brown.cs.student.main.csv.Parser;
 import edu.brown.cs.student.main.csv.Searcher;
 import edu.brown.cs.student.main.csv.exceptions.HeaderFailureException;
 import edu.brown.cs.student.main.csv.exceptions.InValidColumnIndexException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -68,4 +72,47 @@ public class TestSearcher {
 
     assertThrows(HeaderFailureException.class, () -> searcher.search("John", "invalidColumn"));
   }
+
+  @Test
+  void testSearchColumnar() throws Exception {
+    List<List<String>> testData =
+        List.of(List.of("John", "25"), List.of("Jane", "30"), List.of("Joe", "30"));
+    Searcher<String> columnarSearcher =
+        new Searcher<>(
+            ColumnarParsedResult.fromRows(Map.of("name", 0, "age", 1), testData.iterator()));
+
+    assertEquals(
+        Map.of(1, List.of("Jane", "30"), 2, List.of("Joe", "30")),
+        columnarSearcher.search("30", "age"));
+    assertEquals(Map.of(0, List.of("John", "25")), columnarSearcher.search("John"));
+    assertEquals(Map.of(), columnarSearcher.search("Nobody", 0));
+    assertThrows(InValidColumnIndexException.class, () -> columnarSearcher.search("John", 2));
+  }
+
+  @Test
+  void testSearchStream() throws Exception {
+    String csvContent = "name,age\nJohn,25\nJane,30\nJoe,30\n";
+
+    Map<Integer, List<String>> result =
+        Searcher.searchStream(
+            new Parser<>(new StringReader(csvContent), new ListStringCreaterFromRow(), true),
+            "30",
+            "age");
+    assertEquals(Map.of(1, List.of("Jane", "30"), 2, List.of("Joe", "30")), result);
+
+    result =
+        Searcher.searchStream(
+            new Parser<>(new StringReader(csvContent), new ListStringCreaterFromRow(), true),
+            "John",
+            "*");
+    assertEquals(Map.of(0, List.of("John", "25")), result);
+
+    assertThrows(
+        InValidColumnIndexException.class,
+        () ->
+            Searcher.searchStream(
+                new Parser<>(new StringReader(csvContent), new ListStringCreaterFromRow(), true),
+                "John",
+                "5"));
+  }
 }
@@ -0,0 +1,65 @@
+package edu.brown.cs.student.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.metrics.CallTimer;
+import edu.brown.cs.student.main.metrics.LatencyHistogram;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class TestLatencyHistogram {
+
+  @Test
+  void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    LatencyHistogram.Snapshot empty = histogram.snapshot();
+    assertEquals(0, empty.getCount());
+    assertEquals(0, empty.getPercentileNanos(0.99));
+
+    // 1us to 100ms, evenly
+    for (long micros = 1; micros <= 100_000; micros++) {
+      histogram.record(micros * 1000);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(100_000, snapshot.getCount());
+    assertEquals(100_000_000, snapshot.getMaxNanos());
+    assertEquals(50_000_500, snapshot.getMeanNanos(), 1);
+    double[] quantiles = {0.5, 0.95, 0.99, 0.999, 1.0};
+    for (double quantile : quantiles) {
+      double expected = quantile * 100_000_000;
+      long actual = snapshot.getPercentileNanos(quantile);
+      // percentiles are rounded up to the end of their bucket, at most about 3% away
+      assertTrue(actual >= expected && actual <= expected * 1.035, quantile + ": " + actual);
+    }
+    // small values are exact
+    LatencyHistogram small = new LatencyHistogram();
+    small.record(3);
+    small.record(-5);
+    assertEquals(0, small.snapshot().getPercentileNanos(0.5));
+    assertEquals(3, small.snapshot().getPercentileNanos(1.0));
+  }
+
+  @Test
+  void testConcurrentRecording() throws Exception {
+    CallTimer timer = new CallTimer();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int thread = 0; thread < 4; thread++) {
+      executor.execute(
+          () -> {
+            for (int i = 0; i < 100_000; i++) {
+              timer.record(i, i % 10 == 0);
+            }
+          });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    Map<String, Object> description = timer.describe();
+    assertEquals(400_000L, description.get("count"));
+    assertEquals(40_000L, description.get("errors"));
+    assertEquals(0.1, (double) description.get("errorRate"), 1e-9);
+  }
+}
@@ -1,21 +1,34 @@
 package edu.brown.cs.student.server;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
+import edu.brown.cs.student.broadband.FakeCensusDataSource;
 import edu.brown.cs.student.broadband.MockDataSource;
+import edu.brown.cs.student.main.broadband.CachedACSDataSource;
 import edu.brown.cs.student.main.broadband.CensusDataSource;
 import edu.brown.cs.student.main.csv.AccessCSV;
+import edu.brown.cs.student.main.csv.LoadJobManager;
+import edu.brown.cs.student.main.metrics.MetricsRegistry;
 import edu.brown.cs.student.main.server.BroadbandHandler;
 import edu.brown.cs.student.main.server.LoadCSVHandler;
+import edu.brown.cs.student.main.server.LoadStatusHandler;
+import edu.brown.cs.student.main.server.MetricsHandler;
 import edu.brown.cs.student.main.server.SearchCSVHandler;
 import edu.brown.cs.student.main.server.ViewCSVHandler;
+import edu.brown.cs.student.main.server.WarmupHandler;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,11 +41,16 @@ import spark.Spark;
 
 public class TestHandlers {
   private final JsonAdapter<Map<String, Object>> adapter;
+  private final JsonAdapter<List<List<String>>> rowsAdapter;
 
   public TestHandlers() {
     Moshi moshi = new Moshi.Builder().build();
     Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
     adapter = moshi.adapter(type);
+    Type rowsType =
+        Types.newParameterizedType(
+            List.class, Types.newParameterizedType(List.class, String.class));
+    rowsAdapter = moshi.adapter(rowsType);
   }
 
   @BeforeAll
@@ -46,9 +64,14 @@ public class TestHandlers {
     // Re-initialize state, etc. for _every_ test method run
     AccessCSV accessCSV = new AccessCSV();
     // In fact, restart the entire Spark server for every test!
-    Spark.get("loadcsv", new LoadCSVHandler(accessCSV));
-    Spark.get("searchcsv", new SearchCSVHandler(accessCSV));
-    Spark.get("viewcsv", new ViewCSVHandler(accessCSV));
+    MetricsRegistry metrics = new MetricsRegistry();
+    LoadJobManager loadJobs = new LoadJobManager(accessCSV);
+    Spark.get("loadcsv", metrics.timed("loadcsv", new LoadCSVHandler(accessCSV, loadJobs)));
+    Spark.get("loadstatus", new LoadStatusHandler(loadJobs));
+    Spark.get("searchcsv", metrics.timed("searchcsv", new SearchCSVHandler(accessCSV)));
+    Spark.get("viewcsv", metrics.timed("viewcsv", new ViewCSVHandler(accessCSV)));
+    metrics.gauge("datasets", () -> MetricsHandler.describeDatasets(accessCSV));
+    Spark.get("metrics", new MetricsHandler(metrics));
     CensusDataSource mockedsource = new MockDataSource();
     //    ACSCensusDataSource source = new ACSCensusDataSource();
     //    try {
@@ -60,6 +83,13 @@ public class TestHandlers {
 
     // CachedACSDataSource cached_source = new CachedACSDataSource(source);
     Spark.get("broadband", new BroadbandHandler(mockedsource));
+    FakeCensusDataSource census = new FakeCensusDataSource();
+    try {
+      census.getStateCode();
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    Spark.get("warmup", new WarmupHandler(new CachedACSDataSource(census, null, true)));
     Spark.init();
     Spark.awaitInitialization(); // don't continue until the server is listening
   }
@@ -68,9 +98,12 @@ public class TestHandlers {
   public void teardown() {
     // Gracefully stop Spark listening on both endpoints after each test
     Spark.unmap("loadcsv");
+    Spark.unmap("loadstatus");
+    Spark.unmap("metrics");
     Spark.unmap("searchcsv");
     Spark.unmap("viewcsv");
     Spark.unmap("broadband");
+    Spark.unmap("warmup");
     Spark.awaitStop(); // don't proceed until the server is stopped
   }
 
@@ -94,6 +127,130 @@ public class TestHandlers {
     assertEquals("success", response.get("result"));
   }
 
+  @Test
+  public void testLoadCSVParallelSuccess() throws IOException {
+    HttpURLConnection clientConnection =
+        tryRequest("loadcsv?path=data/census/income_by_race.csv&hasHeader=true&parallel=true");
+    assertEquals(200, clientConnection.getResponseCode());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("success", response.get("result"));
+  }
+
+  @Test
+  public void testNamedDatasets() throws IOException {
+    Map<String, Object> response =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(
+                    tryRequest(
+                            "loadcsv?path=data/census/income_by_race.csv&hasHeader=true&dataset=income")
+                        .getInputStream()));
+    assertEquals("success", response.get("result"));
+    assertEquals("income", response.get("dataset"));
+    response =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(
+                    tryRequest("loadcsv?path=data/stars/ten-star.csv&hasHeader=true&dataset=stars")
+                        .getInputStream()));
+    assertEquals("success", response.get("result"));
+
+    // both files are served at once
+    response =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest("viewcsv?dataset=income").getInputStream()));
+    assertEquals(323, ((List<?>) response.get("loadedCSV")).size());
+    response =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(tryRequest("searchcsv?dataset=stars&query=1,Sol").getInputStream()));
+    assertEquals(List.of(List.of("0", "Sol", "0", "0", "0")), response.get("searchedResult"));
+
+    // nothing was loaded without a dataset name
+    response = adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+    assertEquals("Exception", response.get("result"));
+    response =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest("viewcsv?dataset=planets").getInputStream()));
+    assertEquals("Exception", response.get("result"));
+  }
+
+  @Test
+  public void testAsyncLoad() throws Exception {
+    Map<String, Object> response =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(
+                    tryRequest(
+                            "loadcsv?path=data/census/income_by_race.csv&hasHeader=true&async=true")
+                        .getInputStream()));
+    assertEquals("success", response.get("result"));
+    String jobId = (String) response.get("jobId");
+    assertNotNull(jobId);
+
+    // poll until the load is done
+    long deadline = System.currentTimeMillis() + 10_000;
+    do {
+      response =
+          adapter.fromJson(
+              new Buffer().readFrom(tryRequest("loadstatus?jobId=" + jobId).getInputStream()));
+      assertEquals("success", response.get("result"));
+      Thread.sleep(10);
+    } while (!response.get("state").equals("SUCCEEDED") && System.currentTimeMillis() < deadline);
+    assertEquals("SUCCEEDED", response.get("state"));
+    assertEquals(323.0, response.get("rowsParsed"));
+    assertEquals(response.get("totalBytes"), response.get("bytesRead"));
+    assertEquals(0.0, response.get("etaMillis"));
+
+    response = adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+    assertEquals(323, ((List<?>) response.get("loadedCSV")).size());
+
+    // bad paths are rejected before a job is created
+    response =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(
+                    tryRequest("loadcsv?path=data/xxx.csv&hasHeader=true&async=true")
+                        .getInputStream()));
+    assertEquals("Exception", response.get("result"));
+    response =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest("loadstatus?jobId=load-0").getInputStream()));
+    assertEquals("Exception", response.get("result"));
+  }
+
+  @Test
+  public void testMetrics() throws IOException {
+    tryRequest("loadcsv?path=data/stars/ten-star.csv&hasHeader=true&dataset=stars")
+        .getInputStream();
+    tryRequest("viewcsv?dataset=stars").getInputStream().readAllBytes();
+    tryRequest("viewcsv?dataset=planets").getInputStream().readAllBytes();
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(tryRequest("metrics").getInputStream()));
+    assertEquals("success", response.get("result"));
+
+    Moshi moshi = new Moshi.Builder().build();
+    Type metricsType = Types.newParameterizedType(Map.class, String.class, Object.class);
+    Type groupType = Types.newParameterizedType(Map.class, String.class, metricsType);
+    JsonAdapter<Map<String, Map<String, Object>>> routesAdapter = moshi.adapter(groupType);
+    Map<String, Map<String, Object>> routes = routesAdapter.fromJsonValue(response.get("routes"));
+    Map<String, Object> view = routes.get("viewcsv");
+    assertEquals(2.0, view.get("count"));
+    assertEquals(1.0, view.get("errors"));
+    assertEquals(0.5, view.get("errorRate"));
+    assertTrue((double) view.get("p99Micros") >= (double) view.get("p50Micros"));
+    assertEquals(0.0, routes.get("searchcsv").get("count"));
+
+    JsonAdapter<Map<String, Map<String, Map<String, Object>>>> gaugesAdapter =
+        moshi.adapter(Types.newParameterizedType(Map.class, String.class, groupType));
+    Map<String, Map<String, Map<String, Object>>> gauges =
+        gaugesAdapter.fromJsonValue(response.get("gauges"));
+    Map<String, Object> stars = gauges.get("datasets").get("stars");
+    assertEquals(10.0, stars.get("rows"));
+    assertEquals(5.0, stars.get("columns"));
+  }
+
   @Test
   public void testLoadCSVInvalidPath() throws IOException {
     HttpURLConnection clientConnection = tryRequest("loadcsv?path=data/xxx.csv&hasHeader=true");
@@ -120,9 +277,79 @@ public class TestHandlers {
     assertEquals(200, clientConnection1.getResponseCode());
     HttpURLConnection clientConnection = tryRequest("viewcsv");
     assertEquals(200, clientConnection.getResponseCode());
+    assertTrue(clientConnection.getContentType().startsWith("application/json"));
     Map<String, Object> response =
         adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
     assertEquals("success", response.get("result"));
+    List<List<String>> rows = rowsAdapter.fromJsonValue(response.get("loadedCSV"));
+    assertEquals(323, rows.size());
+    assertEquals("Bristol County, RI", rows.get(0).get(6));
+  }
+
+  @Test
+  public void testViewCSVHandlerPages() throws IOException {
+    HttpURLConnection clientConnection1 =
+        tryRequest("loadcsv?path=data/census/income_by_race.csv&hasHeader=true");
+    assertEquals(200, clientConnection1.getResponseCode());
+    Map<String, Object> response =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(
+                    tryRequest("viewcsv?offset=1&limit=2&columns=Year,Geography,0")
+                        .getInputStream()));
+    assertEquals("success", response.get("result"));
+    assertEquals(
+        List.of(
+            List.of("2020", "Kent County, RI", "0"), List.of("2020", "Newport County, RI", "0")),
+        response.get("loadedCSV"));
+
+    // following the cursors visits every row once
+    int rows = 0;
+    String cursor = null;
+    do {
+      String call = "viewcsv?limit=100" + (cursor == null ? "" : "&cursor=" + cursor);
+      response = adapter.fromJson(new Buffer().readFrom(tryRequest(call).getInputStream()));
+      rows += ((List<?>) response.get("loadedCSV")).size();
+      cursor = (String) response.get("nextCursor");
+    } while (cursor != null);
+    assertEquals(323, rows);
+
+    response =
+        adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv?limit=-1").getInputStream()));
+    assertEquals("Exception", response.get("result"));
+    response =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest("viewcsv?cursor=bogus").getInputStream()));
+    assertEquals("Exception", response.get("result"));
+  }
+
+  @Test
+  public void testSearchCSVHandlerPages() throws IOException {
+    HttpURLConnection clientConnection1 =
+        tryRequest("loadcsv?path=data/census/income_by_race.csv&hasHeader=true");
+    assertEquals(200, clientConnection1.getResponseCode());
+    Map<String, Object> all =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(tryRequest("searchcsv?query=*,White&columns=1").getInputStream()));
+    List<?> expected = (List<?>) all.get("searchedResult");
+    assertFalse(expected.isEmpty());
+
+    List<Object> paged = new ArrayList<>();
+    String cursor = null;
+    do {
+      String call =
+          "searchcsv?query=*,White&columns=1&limit=7" + (cursor == null ? "" : "&cursor=" + cursor);
+      Map<String, Object> response =
+          adapter.fromJson(new Buffer().readFrom(tryRequest(call).getInputStream()));
+      assertEquals("success", response.get("result"));
+      paged.addAll((List<?>) response.get("searchedResult"));
+      cursor = (String) response.get("nextCursor");
+    } while (cursor != null);
+    assertEquals(expected, paged);
+    for (Object row : paged) {
+      assertEquals(List.of("White"), row);
+    }
   }
 
   @Test
@@ -146,6 +373,42 @@ public class TestHandlers {
     assertEquals("success", response.get("result"));
   }
 
+  @Test
+  public void testSearchCSVHandlerNegation() throws IOException {
+    HttpURLConnection clientConnection1 =
+        tryRequest("loadcsv?path=data/census/income_by_race.csv&hasHeader=true");
+    assertEquals(200, clientConnection1.getResponseCode());
+    HttpURLConnection clientConnection = tryRequest("searchcsv?query=Year,2020%26%26Race,%5EWhite");
+    assertEquals(200, clientConnection.getResponseCode());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("success", response.get("result"));
+    List<List<String>> rows = rowsAdapter.fromJsonValue(response.get("searchedResult"));
+    assertFalse(rows.isEmpty());
+    for (List<String> row : rows) {
+      assertEquals("2020", row.get(3));
+      assertNotEquals("White", row.get(1));
+    }
+  }
+
+  @Test
+  public void testSearchCSVHandlerRange() throws IOException {
+    HttpURLConnection clientConnection1 =
+        tryRequest("loadcsv?path=data/census/income_by_race.csv&hasHeader=true");
+    assertEquals(200, clientConnection1.getResponseCode());
+    HttpURLConnection clientConnection =
+        tryRequest("searchcsv?query=Household%20Income%20by%20Race,%3E80000");
+    assertEquals(200, clientConnection.getResponseCode());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("success", response.get("result"));
+    List<List<String>> rows = rowsAdapter.fromJsonValue(response.get("searchedResult"));
+    assertFalse(rows.isEmpty());
+    for (List<String> row : rows) {
+      assertTrue(Long.parseLong(row.get(4)) > 80000);
+    }
+  }
+
   @Test
   public void testSearchCSVHandlerFailure() throws IOException {
     HttpURLConnection clientConnection = tryRequest("searchcsv?query=Race,White|Black");
@@ -203,6 +466,43 @@ public class TestHandlers {
     assertEquals("100", response2.get("S0102_C02_044E"));
   }
 
+  @Test
+  public void testBroadbandHandlerPartialVariables() throws IOException {
+    HttpURLConnection clientConnection =
+        tryRequest(
+            "broadband?County=Napa%20County&State=California&ACSVariable=S2704_C01_022E,"
+                + MockDataSource.UNKNOWN_VARIABLE
+                + ",S0102_C02_044E");
+    assertEquals(200, clientConnection.getResponseCode());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    // the unknown variable is reported, and the others are still answered
+    assertEquals("Exception", response.get("result"));
+    assertTrue(((String) response.get("error")).contains(MockDataSource.UNKNOWN_VARIABLE));
+    assertEquals("100", response.get("S2704_C01_022E"));
+    assertEquals("100", response.get("S0102_C02_044E"));
+    assertFalse(response.containsKey(MockDataSource.UNKNOWN_VARIABLE));
+  }
+
+  @Test
+  public void testWarmup() throws IOException {
+    HttpURLConnection clientConnection = tryRequest("warmup?State=California");
+    assertEquals(200, clientConnection.getResponseCode());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    assertEquals("success", response.get("result"));
+    assertEquals("S2802_C03_022E", response.get("ACSVariable"));
+    assertEquals(2.0, response.get("counties"));
+
+    response =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest("warmup?State=Atlantis").getInputStream()));
+    assertEquals("Exception", response.get("result"));
+    response = adapter.fromJson(new Buffer().readFrom(tryRequest("warmup").getInputStream()));
+    assertEquals("Exception", response.get("result"));
+    assertEquals("state name not provided", response.get("error"));
+  }
+
   @Test
   public void testBroadbandHandlerFailure() throws IOException {
     HttpURLConnection clientConnection = tryRequest("broadband");
@@ -0,0 +1,107 @@
+package edu.brown.cs.student.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.server.ExecutorServiceThreadPool;
+import edu.brown.cs.student.main.server.ServerThreads;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.junit.jupiter.api.Test;
+
+public class TestServerThreads {
+
+  @Test
+  public void testFromProperties() {
+    Properties properties = new Properties();
+    properties.setProperty("server.threads", "pool");
+    properties.setProperty("server.maxThreads", "32");
+    properties.setProperty("server.minThreads", "4");
+    properties.setProperty("server.idleTimeoutMillis", "5000");
+    ThreadPool threadPool = ServerThreads.fromProperties(properties);
+    assertTrue(threadPool instanceof QueuedThreadPool);
+    QueuedThreadPool pool = (QueuedThreadPool) threadPool;
+    assertEquals(32, pool.getMaxThreads());
+    assertEquals(4, pool.getMinThreads());
+    assertEquals(5000, pool.getIdleTimeout());
+
+    // virtual threads when the runtime has them
+    ThreadPool defaultPool = ServerThreads.fromProperties(new Properties());
+    if (ServerThreads.virtualThreadsSupported()) {
+      assertTrue(defaultPool instanceof ExecutorServiceThreadPool);
+    } else {
+      assertTrue(defaultPool instanceof QueuedThreadPool);
+      assertThrows(UnsupportedOperationException.class, ServerThreads::virtualThreads);
+    }
+
+    properties.setProperty("server.threads", "green");
+    assertThrows(IllegalArgumentException.class, () -> ServerThreads.fromProperties(properties));
+    properties.setProperty("server.threads", "pool");
+    properties.setProperty("server.queueSize", "many");
+    assertThrows(IllegalArgumentException.class, () -> ServerThreads.fromProperties(properties));
+    assertThrows(IllegalArgumentException.class, () -> ServerThreads.boundedPool(4, 8, 10, 1000));
+  }
+
+  @Test
+  public void testBlockingRequestsRunConcurrently() throws Exception {
+    int requests = 64;
+    CountDownLatch allArrived = new CountDownLatch(requests);
+    // a request only completes once every request is being handled at the same time
+    Server server = new Server(new ExecutorServiceThreadPool(Executors::newCachedThreadPool));
+    ServerConnector connector = new ServerConnector(server);
+    connector.setPort(0);
+    server.addConnector(connector);
+    server.setHandler(
+        new AbstractHandler() {
+          @Override
+          public void handle(
+              String target,
+              Request baseRequest,
+              HttpServletRequest request,
+              HttpServletResponse response) {
+            allArrived.countDown();
+            try {
+              response.setStatus(allArrived.await(10, TimeUnit.SECONDS) ? 200 : 503);
+            } catch (InterruptedException e) {
+              response.setStatus(500);
+            }
+            baseRequest.setHandled(true);
+          }
+        });
+    server.start();
+    try {
+      HttpClient client = HttpClient.newHttpClient();
+      URI uri = URI.create("http://localhost:" + connector.getLocalPort() + "/");
+      List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+      for (int i = 0; i < requests; i++) {
+        responses.add(
+            client.sendAsync(
+                HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()));
+      }
+      for (CompletableFuture<HttpResponse<Void>> response : responses) {
+        assertEquals(200, response.get(20, TimeUnit.SECONDS).statusCode());
+      }
+    } finally {
+      server.stop();
+    }
+    assertTrue(server.isStopped());
+  }
+}